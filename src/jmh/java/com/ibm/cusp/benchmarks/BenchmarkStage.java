@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.benchmarks;
+
+import com.ibm.cusp.graph.stages.AbstractStage;
+
+/**
+ * A stage that adds one to its input after doing some {@link Work}, or fails as its {@link Failure} says.
+ * {@link AbstractStage} considers stages of the same class equal, so these are told apart by name instead.
+ */
+class BenchmarkStage extends AbstractStage<Long, Long> {
+    private final String name;
+    private final Work work;
+    private final Failure failure;
+
+    BenchmarkStage(String name, Work work, Failure failure) {
+        this.name = name;
+        this.work = work;
+        this.failure = failure;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public Long execute(Long input) throws Exception {
+        work.run();
+        switch (failure) {
+            case THROWN:
+                throw new Exception("benchmark stage failed");
+            case SIGNALLED:
+                return fail(Failure.SIGNAL);
+            default:
+                return input + 1;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof BenchmarkStage && name.equals(((BenchmarkStage) o).name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.benchmarks;
+
+import com.ibm.cusp.execution.CuspExecutor;
+import com.ibm.cusp.graph.Cusp;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the recovery path: a {@link Topology#RECOVERY} chain whose stages fail either by throwing a new exception or
+ * by returning a {@link com.ibm.cusp.graph.stages.StageFailure}, against {@link #succeed}, a {@link Topology#CHAIN}
+ * running the same number of stages without failing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FailurePathBenchmark {
+    @Param({"1", "10", "100"})
+    public int length;
+
+    @Param({"THROWN", "SIGNALLED"})
+    public Failure failure;
+
+    private Cusp recovering;
+    private Cusp succeeding;
+    private ExecutorService taskExecutor;
+    private ScheduledExecutorService timerScheduler;
+
+    @Setup
+    public void setUp() {
+        recovering = Topology.RECOVERY.build(length, Work.NOOP, failure);
+        recovering.validateGraph();
+        succeeding = Topology.CHAIN.build(length * 2, Work.NOOP);
+        succeeding.validateGraph();
+        taskExecutor = Executors.newSingleThreadExecutor();
+        timerScheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @TearDown
+    public void tearDown() {
+        taskExecutor.shutdownNow();
+        timerScheduler.shutdownNow();
+    }
+
+    @State(Scope.Thread)
+    public static class ExecutorState {
+        CuspExecutor recovering;
+        CuspExecutor succeeding;
+
+        @Setup
+        public void setUp(FailurePathBenchmark benchmark) {
+            recovering = new CuspExecutor(benchmark.recovering, benchmark.taskExecutor, benchmark.timerScheduler);
+            succeeding = new CuspExecutor(benchmark.succeeding, benchmark.taskExecutor, benchmark.timerScheduler);
+        }
+    }
+
+    @Benchmark
+    public Object recover(ExecutorState state) throws Exception {
+        state.recovering.constructPipeline(Topology.INITIAL_STAGE, 0L);
+        return state.recovering.execute();
+    }
+
+    @Benchmark
+    public Object succeed(ExecutorState state) throws Exception {
+        state.succeeding.constructPipeline(Topology.INITIAL_STAGE, 0L);
+        return state.succeeding.execute();
+    }
+}
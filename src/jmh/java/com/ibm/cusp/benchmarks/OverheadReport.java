@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.*;
+
+/**
+ * Runs {@link StageHopBenchmark} with the GC profiler and reports, for each chain length, the time and allocation per
+ * stage hop that each layer adds over calling the stages directly. A stage whose own work takes less than CUSP's cost
+ * per hop spends most of its time in the framework, and is better merged into its neighbour.
+ *
+ * Arguments are JMH options, e.g. {@code -p length=1,100 -f 2}.
+ */
+public class OverheadReport {
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+    private static final List<String> LAYERS = Arrays.asList(
+            "parseqBlocking", "parseqCuspShape", "cusp", "cuspWithListeners", "cuspWithRecoveryRoutes",
+            "staticPipeline");
+
+    public static void main(String[] args) throws Exception {
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(StageHopBenchmark.class.getName() + "\\.")
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+
+        System.out.println();
+        System.out.print(report(results));
+    }
+
+    static String report(Collection<RunResult> results) {
+        Map<Integer, Map<String, RunResult>> byLength = new TreeMap<>();
+        for (RunResult result : results) {
+            int length = Integer.parseInt(result.getParams().getParam("length"));
+            String benchmark = result.getParams().getBenchmark();
+            byLength.computeIfAbsent(length, ignored -> new HashMap<>())
+                    .put(benchmark.substring(benchmark.lastIndexOf('.') + 1), result);
+        }
+
+        StringBuilder report = new StringBuilder(String.format("%-24s %8s %14s %14s %14s%n",
+                "layer", "length", "us/execution", "ns/hop", "bytes/hop"));
+        for (Map.Entry<Integer, Map<String, RunResult>> entry : byLength.entrySet()) {
+            int hops = entry.getKey() + 1;
+            RunResult direct = entry.getValue().get("direct");
+            report.append(row("direct", entry.getKey(), hops, direct, null));
+            for (String layer : LAYERS) {
+                RunResult result = entry.getValue().get(layer);
+                if (result != null) {
+                    report.append(row(layer, entry.getKey(), hops, result, direct));
+                }
+            }
+        }
+        report.append("Except for direct, ns/hop and bytes/hop are in excess of calling the stages directly. ")
+                .append("Every chain has one more hop than its length, for the initial stage.\n");
+        return report.toString();
+    }
+
+    private static String row(String layer, int length, int hops, RunResult result, RunResult baseline) {
+        double micros = result.getPrimaryResult().getScore();
+        double bytes = allocation(result);
+        if (baseline != null) {
+            micros -= baseline.getPrimaryResult().getScore();
+            bytes -= allocation(baseline);
+        }
+        return String.format("%-24s %8d %14.3f %14.1f %14.1f%n", layer, length, result.getPrimaryResult().getScore(),
+                micros * 1000 / hops, bytes / hops);
+    }
+
+    private static double allocation(RunResult result) {
+        Result allocation = result.getSecondaryResults().get(ALLOCATION);
+        return allocation == null ? Double.NaN : allocation.getScore();
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.benchmarks;
+
+import com.ibm.cusp.execution.CompletableFutureExecutionEngine;
+import com.ibm.cusp.execution.CuspExecutor;
+import com.ibm.cusp.execution.ExecutionPlan;
+import com.ibm.cusp.execution.StaticPipeline;
+import com.ibm.cusp.graph.Cusp;
+import com.linkedin.parseq.Task;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency and throughput of constructing and executing pipelines of each {@link Topology}, size and kind of
+ * {@link Work}, on task pools of several sizes. {@link #completableFuture()} runs the same stages as
+ * hand-written {@link java.util.concurrent.CompletableFuture} code on the same pool, so the difference from
+ * {@link #execute} is CUSP's overhead. {@link #executeStatic} runs the pipeline compiled into a {@link StaticPipeline}
+ * on the benchmark thread, with fanned out stages run one after another, and {@link #executePlan} runs it on a
+ * {@link CompletableFutureExecutionEngine} on the same pool. Run with {@code -prof gc} for allocation per execution.
+ *
+ * Every benchmark thread has its own {@link CuspExecutor}, since an executor runs one pipeline at a time; use
+ * JMH's {@code -t} to run executions concurrently.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineBenchmark {
+    @Param({"CHAIN", "FAN_OUT", "RECOVERY"})
+    public Topology topology;
+
+    @Param({"1", "10", "100"})
+    public int size;
+
+    @Param({"NOOP", "CPU", "BLOCKING"})
+    public Work work;
+
+    @Param({"1", "8"})
+    public int poolThreads;
+
+    private Cusp cusp;
+    private StaticPipeline<Long, Object> staticPipeline;
+    private ExecutionPlan<Long, Object> plan;
+    private ThreadPoolExecutor taskExecutor;
+    private ScheduledExecutorService timerScheduler;
+
+    @Setup
+    public void setUp() {
+        cusp = topology.build(size, work);
+        cusp.validateGraph();
+        staticPipeline = StaticPipeline.compile(cusp, Topology.INITIAL_STAGE);
+        taskExecutor = (ThreadPoolExecutor) Executors.newFixedThreadPool(poolThreads);
+        plan = new CompletableFutureExecutionEngine(taskExecutor).compile(cusp, Topology.INITIAL_STAGE);
+        timerScheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @TearDown
+    public void tearDown() {
+        taskExecutor.shutdownNow();
+        timerScheduler.shutdownNow();
+    }
+
+    @State(Scope.Thread)
+    public static class ExecutorState {
+        CuspExecutor executor;
+
+        @Setup
+        public void setUp(PipelineBenchmark benchmark) {
+            executor = new CuspExecutor(benchmark.cusp, benchmark.taskExecutor, benchmark.timerScheduler);
+        }
+    }
+
+    @Benchmark
+    public Task<?> constructPipeline(ExecutorState state) {
+        state.executor.constructPipeline(Topology.INITIAL_STAGE, 0L);
+        return state.executor.getPipeline();
+    }
+
+    @Benchmark
+    public Object execute(ExecutorState state) throws Exception {
+        state.executor.constructPipeline(Topology.INITIAL_STAGE, 0L);
+        return state.executor.execute();
+    }
+
+    @Benchmark
+    public Object executeStatic() throws Exception {
+        return staticPipeline.execute(0L);
+    }
+
+    @Benchmark
+    public Object executePlan() {
+        return plan.execute(0L).join();
+    }
+
+    @Benchmark
+    public Long completableFuture() {
+        return topology.completableFuture(cusp, size, taskExecutor).join();
+    }
+}
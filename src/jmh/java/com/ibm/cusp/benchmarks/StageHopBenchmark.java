@@ -0,0 +1,194 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.benchmarks;
+
+import com.ibm.cusp.execution.CuspExecutor;
+import com.ibm.cusp.execution.StageOutcomeListener;
+import com.ibm.cusp.execution.StaticPipeline;
+import com.ibm.cusp.graph.Cusp;
+import com.ibm.cusp.graph.stages.Stage;
+import com.linkedin.parseq.Engine;
+import com.linkedin.parseq.EngineBuilder;
+import com.linkedin.parseq.Task;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CUSP's own cost per stage hop, over chains of no-op stages of each length. Each benchmark adds one layer to the
+ * previous one, so the differences between them attribute the overhead:
+ * <ol>
+ *     <li>{@link #direct}: calling {@link Stage#execute} in a loop</li>
+ *     <li>{@link #parseqBlocking}: a {@link Task#blocking} task per stage, chained with {@code flatMap}</li>
+ *     <li>{@link #parseqCuspShape}: the map, flatten, blocking and onFailure tasks CUSP creates per stage</li>
+ *     <li>{@link #cusp}: a {@link CuspExecutor}, adding its per-stage bookkeeping</li>
+ *     <li>{@link #cuspWithListeners}: with a {@link StageOutcomeListener} and a
+ *     {@link com.ibm.cusp.execution.StageEventListener} receiving every outcome</li>
+ *     <li>{@link #cuspWithRecoveryRoutes}: with a recovery stage wired to every stage, none of which fail</li>
+ * </ol>
+ * {@link #staticPipeline} runs the same chain compiled into a {@link StaticPipeline} instead, as the alternative to
+ * {@link #cusp} for pipelines whose stages are too short for a task per stage to pay off.
+ *
+ * {@link OverheadReport} runs these and reports the cost per hop of each layer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StageHopBenchmark {
+    @Param({"1", "10", "100", "1000"})
+    public int length;
+
+    private Cusp chain;
+    private Cusp guardedChain;
+    private StaticPipeline<Long, Long> staticChain;
+    private List<Stage<Long, Long>> stages;
+    private ExecutorService taskExecutor;
+    private ScheduledExecutorService timerScheduler;
+    private Engine engine;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        chain = Topology.CHAIN.build(length, Work.NOOP);
+        chain.validateGraph();
+        guardedChain = Topology.GUARDED_CHAIN.build(length, Work.NOOP);
+        guardedChain.validateGraph();
+        staticChain = StaticPipeline.compile(chain, Topology.INITIAL_STAGE);
+
+        stages = new ArrayList<>();
+        stages.add(chain.getStage(Topology.INITIAL_STAGE));
+        for (int i = 0; i < length; i++) {
+            stages.add(chain.getStage("stage-" + i));
+        }
+
+        taskExecutor = Executors.newSingleThreadExecutor();
+        timerScheduler = Executors.newSingleThreadScheduledExecutor();
+        engine = new EngineBuilder().setTaskExecutor(taskExecutor).setTimerScheduler(timerScheduler).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        engine.shutdown();
+        taskExecutor.shutdownNow();
+        timerScheduler.shutdownNow();
+    }
+
+    @State(Scope.Thread)
+    public static class ExecutorState {
+        CuspExecutor plain;
+        CuspExecutor listening;
+        CuspExecutor guarded;
+        Object lastOutcome;
+
+        @Setup
+        public void setUp(StageHopBenchmark benchmark) {
+            plain = new CuspExecutor(benchmark.chain, benchmark.taskExecutor, benchmark.timerScheduler);
+            listening = new CuspExecutor(benchmark.chain, benchmark.taskExecutor, benchmark.timerScheduler);
+            listening.useStageOutcomeListener(new StageOutcomeListener() {
+                @Override
+                public void success(Stage currentStage, Object currentStageOutput, long elapsedMs) {
+                    lastOutcome = currentStageOutput;
+                }
+
+                @Override
+                public void failure(Stage failureStage, Throwable throwable, long elapsedMs) {
+                    lastOutcome = throwable;
+                }
+
+                @Override
+                public void recover(Stage currentStage, Stage recoverStage, Throwable throwable, long elapsedMs) {
+                    lastOutcome = throwable;
+                }
+            });
+            listening.useStageEventListener(event -> lastOutcome = event.getOutput());
+            guarded = new CuspExecutor(benchmark.guardedChain, benchmark.taskExecutor, benchmark.timerScheduler);
+        }
+    }
+
+    @Benchmark
+    public Long direct() throws Exception {
+        Long value = 0L;
+        for (Stage<Long, Long> stage : stages) {
+            value = stage.execute(value);
+        }
+        return value;
+    }
+
+    @Benchmark
+    public Long parseqBlocking() throws InterruptedException {
+        Task<Long> task = Task.value(0L);
+        for (Stage<Long, Long> stage : stages) {
+            task = task.flatMap(input -> Task.blocking(() -> stage.execute(input), taskExecutor));
+        }
+        engine.run(task);
+        task.await();
+        return task.get();
+    }
+
+    @Benchmark
+    public Long parseqCuspShape() throws InterruptedException {
+        Task<Long> task = Task.value(0L);
+        for (Stage<Long, Long> stage : stages) {
+            Task<Long> previous = task;
+            Task<Task<Long>> next = previous.map("use output of " + previous.getName(), input ->
+                    Task.blocking(stage.name(), () -> stage.execute(input), taskExecutor)
+                            .onFailure("failure handler for " + stage.name(), thrown -> { }));
+            task = Task.flatten("flattened " + stage.name(), next);
+        }
+        engine.run(task);
+        task.await();
+        return task.get();
+    }
+
+    @Benchmark
+    public Long staticPipeline() throws Exception {
+        return staticChain.execute(0L);
+    }
+
+    @Benchmark
+    public Object cusp(ExecutorState state) throws Exception {
+        return execute(state.plain);
+    }
+
+    @Benchmark
+    public Object cuspWithListeners(ExecutorState state) throws Exception {
+        return execute(state.listening);
+    }
+
+    @Benchmark
+    public Object cuspWithRecoveryRoutes(ExecutorState state) throws Exception {
+        return execute(state.guarded);
+    }
+
+    private static Object execute(CuspExecutor executor) throws Exception {
+        executor.constructPipeline(Topology.INITIAL_STAGE, 0L);
+        return executor.execute();
+    }
+}
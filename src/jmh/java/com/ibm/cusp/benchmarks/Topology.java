@@ -0,0 +1,168 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.benchmarks;
+
+import com.ibm.cusp.graph.Cusp;
+import com.ibm.cusp.graph.stages.Stage;
+import com.ibm.cusp.graph.stages.StageFailure;
+import com.ibm.cusp.graph.stages.StageOutcomes;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Pipeline shapes to benchmark, each starting at {@link #INITIAL_STAGE} and built from {@code size} working stages.
+ * Each shape can also run its stages as hand-written {@link CompletableFuture} code, as a baseline for CUSP's overhead.
+ */
+public enum Topology {
+    /** {@code size} stages, each using the output of the previous one. */
+    CHAIN {
+        @Override
+        void connect(Cusp cusp, int size, Work work, Failure failure) {
+            String previous = INITIAL_STAGE;
+            for (int i = 0; i < size; i++) {
+                String stage = add(cusp, "stage-" + i, work, Failure.NONE);
+                cusp.addRoute(previous, StageOutcomes.SUCCESS, stage);
+                previous = stage;
+            }
+        }
+
+        @Override
+        CompletableFuture<Long> completableFuture(Cusp cusp, int size, Executor executor) {
+            CompletableFuture<Long> future = initial(cusp, executor);
+            for (int i = 0; i < size; i++) {
+                Stage<Long, Long> stage = cusp.getStage("stage-" + i);
+                future = future.thenApplyAsync(input -> call(stage, input), executor);
+            }
+            return future;
+        }
+    },
+    /** A {@link #CHAIN} whose stages each have a recovery stage that is never needed. */
+    GUARDED_CHAIN {
+        @Override
+        void connect(Cusp cusp, int size, Work work, Failure failure) {
+            CHAIN.connect(cusp, size, work, failure);
+            for (int i = 0; i < size; i++) {
+                cusp.addRoute("stage-" + i, StageOutcomes.RECOVERABLE_FAILURE, add(cusp, "fallback-" + i, Work.NOOP, Failure.NONE));
+            }
+        }
+
+        @Override
+        CompletableFuture<Long> completableFuture(Cusp cusp, int size, Executor executor) {
+            return CHAIN.completableFuture(cusp, size, executor);
+        }
+    },
+    /** {@code size} concurrent leaf stages using the output of the initial stage. */
+    FAN_OUT {
+        @Override
+        void connect(Cusp cusp, int size, Work work, Failure failure) {
+            for (int i = 0; i < size; i++) {
+                cusp.addRoute(INITIAL_STAGE, StageOutcomes.SUCCESS, add(cusp, "leaf-" + i, work, Failure.NONE));
+            }
+        }
+
+        @Override
+        CompletableFuture<Long> completableFuture(Cusp cusp, int size, Executor executor) {
+            return initial(cusp, executor).thenCompose(input -> {
+                CompletableFuture<?>[] leaves = new CompletableFuture<?>[size];
+                for (int i = 0; i < size; i++) {
+                    Stage<Long, Long> leaf = cusp.getStage("leaf-" + i);
+                    leaves[i] = CompletableFuture.supplyAsync(() -> call(leaf, input), executor);
+                }
+                return CompletableFuture.allOf(leaves).thenApply(done -> input);
+            });
+        }
+    },
+    /**
+     * A chain of {@code size} failing stages, each recovered from by a stage that continues the chain. Stages throw
+     * unless built with another {@link Failure}.
+     */
+    RECOVERY {
+        @Override
+        void connect(Cusp cusp, int size, Work work, Failure failure) {
+            String previous = INITIAL_STAGE;
+            for (int i = 0; i < size; i++) {
+                String failing = add(cusp, "failing-" + i, work, failure);
+                String recovery = add(cusp, "recovery-" + i, Work.NOOP, Failure.NONE);
+                cusp.addRoute(previous, StageOutcomes.SUCCESS, failing);
+                cusp.addRoute(failing, StageOutcomes.RECOVERABLE_FAILURE, recovery);
+                previous = recovery;
+            }
+        }
+
+        @Override
+        CompletableFuture<Long> completableFuture(Cusp cusp, int size, Executor executor) {
+            CompletableFuture<Long> future = initial(cusp, executor);
+            for (int i = 0; i < size; i++) {
+                Stage<Long, Long> failing = cusp.getStage("failing-" + i);
+                Stage<Long, Long> recovery = cusp.getStage("recovery-" + i);
+                future = future.thenComposeAsync(input -> CompletableFuture.supplyAsync(() -> call(failing, input), executor)
+                        .exceptionally(thrown -> call(recovery, input)), executor);
+            }
+            return future;
+        }
+    };
+
+    static final String INITIAL_STAGE = "initial";
+
+    Cusp build(int size, Work work) {
+        return build(size, work, Failure.THROWN);
+    }
+
+    Cusp build(int size, Work work, Failure failure) {
+        Cusp cusp = new Cusp();
+        add(cusp, INITIAL_STAGE, Work.NOOP, Failure.NONE);
+        connect(cusp, size, work, failure);
+        return cusp;
+    }
+
+    abstract void connect(Cusp cusp, int size, Work work, Failure failure);
+
+    /**
+     * @param cusp built by {@link #build}, whose stages are run without CUSP
+     */
+    abstract CompletableFuture<Long> completableFuture(Cusp cusp, int size, Executor executor);
+
+    private static CompletableFuture<Long> initial(Cusp cusp, Executor executor) {
+        Stage<Long, Long> initial = cusp.getStage(INITIAL_STAGE);
+        return CompletableFuture.supplyAsync(() -> call(initial, 0L), executor);
+    }
+
+    private static Long call(Stage<Long, Long> stage, Long input) {
+        Long output;
+        try {
+            output = stage.execute(input);
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+        if (output == null) {
+            throw new CompletionException(StageFailure.take());
+        }
+        return output;
+    }
+
+    private static String add(Cusp cusp, String name, Work work, Failure failure) {
+        cusp.addStage(new BenchmarkStage(name, work, failure));
+        return name;
+    }
+}
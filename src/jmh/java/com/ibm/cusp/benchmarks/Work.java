@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.benchmarks;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * What each benchmark stage does before returning.
+ */
+public enum Work {
+    /** Measures the framework alone. */
+    NOOP {
+        @Override
+        void run() { }
+    },
+    /** About a microsecond of computation. */
+    CPU {
+        @Override
+        void run() {
+            Blackhole.consumeCPU(CPU_TOKENS);
+        }
+    },
+    /** Parks for 100 microseconds, like a fast remote call. */
+    BLOCKING {
+        @Override
+        void run() {
+            LockSupport.parkNanos(BLOCKING_NANOS);
+        }
+    };
+
+    static final long CPU_TOKENS = 250;
+    static final long BLOCKING_NANOS = 100_000;
+
+    abstract void run();
+}
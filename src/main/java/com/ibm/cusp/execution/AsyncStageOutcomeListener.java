@@ -0,0 +1,331 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.execution;
+
+import com.ibm.cusp.graph.stages.Stage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Flushable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link StageOutcomeListener} that takes stage outcomes off the stages' worker threads: outcomes are put on a
+ * bounded lock-free ring buffer and delivered to the wrapped listener in batches on a dedicated daemon thread, so a
+ * slow listener no longer adds to pipeline latency. If the wrapped listener is {@link Flushable}, it is flushed after
+ * every batch.
+ *
+ * The ring's slots are preallocated, so publishing an outcome neither allocates nor locks unless the ring is full, in
+ * which case the {@link OverflowPolicy} decides what happens. The wrapped listener is called from the dispatch thread
+ * only, except under {@link OverflowPolicy#CALLER_RUNS}. Close the listener to deliver what is queued and stop the
+ * thread.
+ */
+public class AsyncStageOutcomeListener implements StageOutcomeListener, AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    public enum OverflowPolicy {
+        /** Discard the outcome that did not fit and count it in {@link #getDroppedCount()}. */
+        DROP_NEWEST,
+        /** Wait on the stage's worker thread until the dispatch thread makes room. */
+        BLOCK,
+        /** Deliver the outcome on the stage's worker thread, concurrently with the dispatch thread. */
+        CALLER_RUNS
+    }
+
+    private enum Kind { SUCCESS, FAILURE, RECOVER, CANCELLED, DEGRADED }
+
+    private static final class Slot {
+        Kind kind;
+        Stage stage;
+        Stage recoverStage;
+        Object output;
+        Throwable throwable;
+        long elapsedMs;
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final StageOutcomeListener delegate;
+    private final OverflowPolicy overflowPolicy;
+    private final Slot[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final Thread dispatcher;
+    private volatile boolean sleeping;
+    private volatile boolean closed;
+    /** publishers that may still put an outcome on the ring; the dispatch thread waits for them before it stops */
+    private final AtomicInteger publishing = new AtomicInteger();
+
+    public AsyncStageOutcomeListener(StageOutcomeListener delegate) {
+        this(delegate, DEFAULT_CAPACITY, OverflowPolicy.DROP_NEWEST);
+    }
+
+    /**
+     * @param delegate listener to deliver outcomes to
+     * @param capacity number of outcomes that can be queued, rounded up to a power of two
+     * @param overflowPolicy what to do with outcomes published while the ring is full
+     */
+    public AsyncStageOutcomeListener(StageOutcomeListener delegate, int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+
+        int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.delegate = delegate;
+        this.overflowPolicy = overflowPolicy;
+        this.slots = new Slot[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+            sequences.set(i, i);
+        }
+
+        this.dispatcher = new Thread(this::dispatch, "cusp-listener-dispatch");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    @Override
+    public void success(Stage currentStage, Object currentStageOutput, long elapsedMs) {
+        publish(Kind.SUCCESS, currentStage, null, currentStageOutput, null, elapsedMs);
+    }
+
+    @Override
+    public void failure(Stage failureStage, Throwable throwable, long elapsedMs) {
+        publish(Kind.FAILURE, failureStage, null, null, throwable, elapsedMs);
+    }
+
+    @Override
+    public void recover(Stage currentStage, Stage recoverStage, Throwable throwable, long elapsedMs) {
+        publish(Kind.RECOVER, currentStage, recoverStage, null, throwable, elapsedMs);
+    }
+
+    @Override
+    public void cancelled(Stage cancelledStage, Throwable throwable, long elapsedMs) {
+        publish(Kind.CANCELLED, cancelledStage, null, null, throwable, elapsedMs);
+    }
+
+    @Override
+    public void degraded(Stage degradedStage, Object degradedOutput, long elapsedMs) {
+        publish(Kind.DEGRADED, degradedStage, null, degradedOutput, null, elapsedMs);
+    }
+
+    /**
+     * @return outcomes discarded because the ring was full or the listener was closed
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return outcomes delivered to the wrapped listener
+     */
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    /**
+     * @return outcomes waiting to be delivered
+     */
+    public int getQueuedCount() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    /**
+     * Stop accepting outcomes, deliver those already queued and stop the dispatch thread.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        LockSupport.unpark(dispatcher);
+        dispatcher.join();
+    }
+
+    /**
+     * Every outcome is either delivered or counted as dropped: a publisher that finds the listener open is waited for
+     * by the dispatch thread's final drain.
+     */
+    private void publish(Kind kind, Stage stage, Stage recoverStage, Object output, Throwable throwable, long elapsedMs) {
+        publishing.incrementAndGet();
+        try {
+            publishOpen(kind, stage, recoverStage, output, throwable, elapsedMs);
+        } finally {
+            publishing.decrementAndGet();
+        }
+    }
+
+    private void publishOpen(Kind kind, Stage stage, Stage recoverStage, Object output, Throwable throwable, long elapsedMs) {
+        if (closed) {
+            dropped.increment();
+            return;
+        }
+
+        while (!tryPublish(kind, stage, recoverStage, output, throwable, elapsedMs)) {
+            switch (overflowPolicy) {
+                case DROP_NEWEST:
+                    dropped.increment();
+                    return;
+                case CALLER_RUNS:
+                    deliver(kind, stage, recoverStage, output, throwable, elapsedMs);
+                    return;
+                case BLOCK:
+                    if (closed) {
+                        dropped.increment();
+                        return;
+                    }
+                    LockSupport.unpark(dispatcher);
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+            }
+        }
+
+        if (sleeping) {
+            LockSupport.unpark(dispatcher);
+        }
+    }
+
+    private boolean tryPublish(Kind kind, Stage stage, Stage recoverStage, Object output, Throwable throwable, long elapsedMs) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long available = sequences.get(index) - position;
+            if (available < 0) {
+                return false;
+            } else if (available == 0 && tail.compareAndSet(position, position + 1)) {
+                Slot slot = slots[index];
+                slot.kind = kind;
+                slot.stage = stage;
+                slot.recoverStage = recoverStage;
+                slot.output = output;
+                slot.throwable = throwable;
+                slot.elapsedMs = elapsedMs;
+                sequences.set(index, position + 1);
+                return true;
+            }
+        }
+    }
+
+    private void dispatch() {
+        while (true) {
+            int batch = drain();
+            if (batch > 0) {
+                flush();
+                continue;
+            }
+
+            if (closed) {
+                while (publishing.get() > 0) {
+                    Thread.yield();
+                }
+                if (drain() > 0) {
+                    flush();
+                }
+                return;
+            }
+
+            sleeping = true;
+            if (!hasQueued() && !closed) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            sleeping = false;
+        }
+    }
+
+    private int drain() {
+        int batch = 0;
+        while (batch < slots.length) {
+            int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+
+            Slot slot = slots[index];
+            Kind kind = slot.kind;
+            Stage stage = slot.stage;
+            Stage recoverStage = slot.recoverStage;
+            Object output = slot.output;
+            Throwable throwable = slot.throwable;
+            long elapsedMs = slot.elapsedMs;
+            slot.stage = null;
+            slot.recoverStage = null;
+            slot.output = null;
+            slot.throwable = null;
+            sequences.set(index, head + slots.length);
+            head++;
+
+            deliver(kind, stage, recoverStage, output, throwable, elapsedMs);
+            batch++;
+        }
+        return batch;
+    }
+
+    private boolean hasQueued() {
+        return sequences.get((int) (head & mask)) == head + 1;
+    }
+
+    private void deliver(Kind kind, Stage stage, Stage recoverStage, Object output, Throwable throwable, long elapsedMs) {
+        try {
+            switch (kind) {
+                case SUCCESS:
+                    delegate.success(stage, output, elapsedMs);
+                    break;
+                case FAILURE:
+                    delegate.failure(stage, throwable, elapsedMs);
+                    break;
+                case RECOVER:
+                    delegate.recover(stage, recoverStage, throwable, elapsedMs);
+                    break;
+                case CANCELLED:
+                    delegate.cancelled(stage, throwable, elapsedMs);
+                    break;
+                case DEGRADED:
+                    delegate.degraded(stage, output, elapsedMs);
+                    break;
+            }
+            delivered.increment();
+        } catch (RuntimeException e) {
+            logger.warn("Stage outcome listener failed on {} of stage {}", kind, stage.name(), e);
+        }
+    }
+
+    private void flush() {
+        if (delegate instanceof Flushable) {
+            try {
+                ((Flushable) delegate).flush();
+            } catch (Exception e) {
+                logger.warn("Stage outcome listener failed to flush", e);
+            }
+        }
+    }
+}
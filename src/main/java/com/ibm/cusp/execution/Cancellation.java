@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.execution;
+
+import com.ibm.cusp.graph.stages.CancellationToken;
+import com.linkedin.parseq.Task;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * A handle to cancel one execution of a pipeline, e.g. when the client that asked for it disconnects. Get it from
+ * {@link CuspExecutor#getCancellation()} after constructing the pipeline, and call {@link #cancel(String)} from any
+ * thread.
+ *
+ * Cancelling fails the execution at once, so {@link CuspExecutor#execute()} throws a
+ * {@link com.ibm.cusp.graph.errors.ExecutionCancelledException}. Stages that have not started are skipped when a
+ * worker picks them up, and no recovery stage runs for them. Stages that are running finish unless they check the
+ * execution's {@link CancellationToken}, or the executor {@link CuspExecutor#useInterruption(boolean) interrupts} them.
+ * Every stage that was skipped or stopped is reported as cancelled to the {@link StageOutcomeListener}.
+ */
+public class Cancellation extends CancellationToken {
+    private final boolean interruptible;
+    private final Thread[] running;
+    private volatile Task<?> pipeline;
+
+    Cancellation(int stageCount, boolean interruptible) {
+        this.interruptible = interruptible;
+        this.running = interruptible ? new Thread[stageCount] : null;
+    }
+
+    /**
+     * Cancel the execution; only the first call has any effect.
+     * @param reason why the execution was cancelled, reported in the exceptions it fails with
+     * @return whether this call cancelled the execution
+     */
+    public boolean cancel(String reason) {
+        if (interruptible) {
+            synchronized (this) {
+                if (!markCancelled(reason)) {
+                    return false;
+                }
+                for (Thread thread : running) {
+                    if (thread != null) {
+                        thread.interrupt();
+                    }
+                }
+            }
+        } else if (!markCancelled(reason)) {
+            return false;
+        }
+
+        Task<?> pipeline = this.pipeline;
+        if (pipeline != null) {
+            pipeline.cancel(new CancellationException(reason));
+        }
+        return true;
+    }
+
+    public boolean cancel() {
+        return cancel("cancelled");
+    }
+
+    @Override
+    protected synchronized boolean markCancelled(String reason) {
+        return super.markCancelled(reason);
+    }
+
+    void attach(Task<?> pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * Remember that {@code thread} is running the stage, so that it can be interrupted.
+     */
+    void started(int stageIndex, Thread thread) {
+        if (interruptible) {
+            synchronized (this) {
+                running[stageIndex] = thread;
+            }
+        }
+    }
+
+    /**
+     * Forget the stage's thread, clearing the interrupt if cancelling set it, so that it does not leak into whatever
+     * the thread runs next.
+     */
+    void finished(int stageIndex) {
+        if (interruptible) {
+            synchronized (this) {
+                running[stageIndex] = null;
+                if (isCancelled()) {
+                    Thread.interrupted();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.execution;
+
+import com.ibm.cusp.graph.Cusp;
+import com.ibm.cusp.graph.routes.LabeledEdge;
+import com.ibm.cusp.graph.stages.CustomOutcome;
+import com.ibm.cusp.graph.stages.EarlyExit;
+import com.ibm.cusp.graph.stages.Stage;
+import com.ibm.cusp.graph.stages.StageFailure;
+import com.ibm.cusp.graph.stages.StageOutcomes;
+import com.ibm.cusp.graph.stages.StageSignals;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * A stage with all of its routes resolved, compiled once from a {@link Cusp} and shared by every execution of the
+ * plan it belongs to. Runtimes such as {@link StaticPipeline} and {@link CompletableFutureExecutionEngine} decide how
+ * the stages are scheduled; this decides where each outcome leads. Compiled stages are immutable once compiled.
+ */
+final class CompiledStage {
+    private static final CompiledStage[] NO_STAGES = new CompiledStage[0];
+
+    final Stage stage;
+    private final boolean mayExitEarly;
+    /** the type of the pipeline's output when this stage exits early, or {@code null} if it is not known */
+    private final Class<?> exitType;
+    /** the stage run on the same input when this one fails, or {@code null} */
+    CompiledStage recovery;
+    /** the stage whose output the pipeline continues with, or {@code null} at the end of the pipeline */
+    CompiledStage next;
+    /** terminal stages run alongside {@link #next} on the same input */
+    CompiledStage[] leaves;
+    private CompiledStage[] customRoutes;
+
+    private CompiledStage(Stage stage, boolean mayExitEarly, Class<?> exitType) {
+        this.stage = stage;
+        this.mayExitEarly = mayExitEarly;
+        this.exitType = exitType;
+    }
+
+    /**
+     * @param cusp
+     * @param initialStageName
+     * @return the initial stage of the pipeline, compiled with every stage reachable from it
+     * @throws com.ibm.cusp.graph.errors.CuspConstructionError if the graph is invalid
+     */
+    static CompiledStage compile(Cusp cusp, String initialStageName) {
+        cusp.validateGraph();
+        return new Compiler(cusp).compile(cusp.getStage(initialStageName));
+    }
+
+    /**
+     * Execute the stage, turning an outcome it signalled by returning {@code null} into what it stands for.
+     * @param input
+     * @return the stage's output, a {@link CustomOutcome.Emission} or an {@link EarlyExit}
+     * @throws Exception if the stage threw, or signalled a failure or an outcome it cannot have
+     */
+    Object invoke(Object input) throws Exception {
+        Object output = StageSignals.execute(stage, input);
+        if (output instanceof CustomOutcome.Emission) {
+            checkRouted((CustomOutcome.Emission) output);
+        } else if (output instanceof EarlyExit) {
+            if (!mayExitEarly) {
+                throw new StageFailure("Stage " + stage.name() + " tried to complete the pipeline, but is not allowed to exit early");
+            }
+            CuspExecutor.checkEarlyExitType(stage, (EarlyExit) output, exitType);
+        }
+        return output;
+    }
+
+    /**
+     * @param emission an emission returned by {@link #invoke}
+     * @return the stage the emitted outcome is routed to
+     */
+    CompiledStage route(CustomOutcome.Emission emission) {
+        return customRoutes[emission.getOutcome().getIndex()];
+    }
+
+    private void checkRouted(CustomOutcome.Emission emission) throws StageFailure {
+        int index = emission.getOutcome().getIndex();
+        if (customRoutes == null || index >= customRoutes.length || customRoutes[index] == null) {
+            throw new StageFailure("Stage " + stage.name() + " emitted outcome " + emission.getOutcome() + ", which is not routed");
+        }
+    }
+
+    private static final class Compiler {
+        private final Cusp cusp;
+        private final Map<String, CompiledStage> compiled = new HashMap<>();
+
+        private Compiler(Cusp cusp) {
+            this.cusp = cusp;
+        }
+
+        private CompiledStage compile(Stage stage) {
+            CompiledStage compiledStage = compiled.get(stage.name());
+            if (compiledStage != null) {
+                return compiledStage;
+            }
+
+            boolean mayExitEarly = cusp.canExitEarly(stage);
+            compiledStage = new CompiledStage(stage, mayExitEarly, mayExitEarly ? cusp.getEarlyExitType(stage) : null);
+            compiled.put(stage.name(), compiledStage);
+
+            compiledStage.recovery = cusp.getNextStage(stage.name(), StageOutcomes.RECOVERABLE_FAILURE).map(this::compile).orElse(null);
+
+            Set<Stage> successStages = cusp.getNextStages(stage.name(), StageOutcomes.SUCCESS);
+            Set<Stage> leafStages = successStages.stream().filter(successStage -> cusp.isTerminal(successStage.name())).collect(Collectors.toSet());
+            List<Stage> stages = successStages.stream().filter(successStage -> !leafStages.contains(successStage)).collect(Collectors.toList());
+            // Cusp#validateGraph guarantees there is at most one internal stage; as in a CuspExecutor, the first of
+            // these stages is the one the pipeline continues with
+            stages.addAll(leafStages);
+            compiledStage.next = stages.isEmpty() ? null : compile(stages.get(0));
+            compiledStage.leaves = stages.size() <= 1 ? NO_STAGES : stages.subList(1, stages.size()).stream().map(this::compile).toArray(CompiledStage[]::new);
+
+            for (LabeledEdge edge : cusp.getStageGraph().outgoingEdgesOf(stage)) {
+                CustomOutcome<?> outcome = edge.getCustomOutcome();
+                if (outcome != null) {
+                    if (compiledStage.customRoutes == null) {
+                        compiledStage.customRoutes = new CompiledStage[CustomOutcome.count()];
+                    }
+                    compiledStage.customRoutes[outcome.getIndex()] = compile(cusp.getStageGraph().getEdgeTarget(edge));
+                }
+            }
+            return compiledStage;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.execution;
+
+import com.ibm.cusp.graph.Cusp;
+import com.ibm.cusp.graph.errors.StageFailedException;
+import com.ibm.cusp.graph.errors.UnknownExecutionError;
+import com.ibm.cusp.graph.stages.CustomOutcome;
+import com.ibm.cusp.graph.stages.EarlyExit;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A lightweight {@link ExecutionEngine} that runs every stage as a {@link CompletableFuture} on the caller's
+ * {@link Executor}, following routes compiled once per plan. An execution builds no ParSeq task graph or trace, and
+ * keeps no state beyond its futures, so it suits high-throughput services that have no use for them.
+ *
+ * Terminal stages run concurrently with the stage the pipeline continues with, as on a {@link CuspExecutor}, and a
+ * stage never blocks a thread waiting for another. A stage that throws an {@link Error} is recovered from or reported as
+ * failed like one that throws an exception, and an execution it fails completes with an {@link UnknownExecutionError},
+ * as on a {@link CuspExecutor}. Deadlines, cancellation, metrics, tracing and prioritization are
+ * only available on the {@link ParSeqExecutionEngine}.
+ */
+public class CompletableFutureExecutionEngine implements ExecutionEngine {
+    private static final StageOutcomeListener NO_LISTENER = new CuspExecutor.NoOpStageOutcomeListener();
+
+    private final Executor executor;
+
+    public CompletableFutureExecutionEngine(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public <I, O> ExecutionPlan<I, O> compile(Cusp cusp, String initialStageName) {
+        CompiledStage initialStage = CompiledStage.compile(cusp, initialStageName);
+        return (input, stageOutcomeListener) -> {
+            CompletableFuture<O> output = new CompletableFuture<>();
+            run(initialStage, input, stageOutcomeListener != null ? stageOutcomeListener : NO_LISTENER).whenComplete((result, failure) -> {
+                if (failure != null) {
+                    output.completeExceptionally(failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure);
+                } else {
+                    output.complete(result(result));
+                }
+            });
+            return output;
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <O> O result(Object output) {
+        return (O) (output instanceof EarlyExit ? ((EarlyExit) output).getResult() : output);
+    }
+
+    /**
+     * @return a future of the output of the last stage, or of an {@link EarlyExit}
+     */
+    private CompletableFuture<Object> run(CompiledStage stage, Object input, StageOutcomeListener listener) {
+        return CompletableFuture.supplyAsync(() -> attempt(stage, input), executor)
+                .thenCompose(attempt -> proceed(stage, input, attempt, listener));
+    }
+
+    private static Attempt attempt(CompiledStage stage, Object input) {
+        long startNanos = System.nanoTime();
+        try {
+            Object output = stage.invoke(input);
+            return new Attempt(output, null, startNanos);
+        } catch (Throwable t) {
+            return new Attempt(null, t, startNanos);
+        }
+    }
+
+    private CompletableFuture<Object> proceed(CompiledStage stage, Object input, Attempt attempt, StageOutcomeListener listener) {
+        if (attempt.failure != null) {
+            if (stage.recovery == null) {
+                listener.failure(stage.stage, attempt.failure, attempt.elapsedMs);
+                CompletableFuture<Object> failed = new CompletableFuture<>();
+                failed.completeExceptionally(attempt.failure instanceof Error
+                        ? new UnknownExecutionError(attempt.failure)
+                        : StageFailedException.stackless(stage.stage.name(), attempt.failure));
+                return failed;
+            }
+            listener.recover(stage.stage, stage.recovery.stage, attempt.failure, attempt.elapsedMs);
+            return run(stage.recovery, input, listener).thenCompose(output ->
+                    output instanceof EarlyExit ? CompletableFuture.completedFuture(output) : successors(stage, output, listener));
+        }
+
+        listener.success(stage.stage, attempt.output, attempt.elapsedMs);
+        if (attempt.output instanceof EarlyExit) {
+            return CompletableFuture.completedFuture(attempt.output);
+        }
+        if (attempt.output instanceof CustomOutcome.Emission) {
+            CustomOutcome.Emission emission = (CustomOutcome.Emission) attempt.output;
+            return run(stage.route(emission), emission.getValue(), listener);
+        }
+        return successors(stage, attempt.output, listener);
+    }
+
+    private CompletableFuture<Object> successors(CompiledStage stage, Object output, StageOutcomeListener listener) {
+        if (stage.next == null) {
+            return CompletableFuture.completedFuture(output);
+        }
+
+        CompletableFuture<Object> next = run(stage.next, output, listener);
+        if (stage.leaves.length == 0) {
+            return next;
+        }
+
+        // as with Task.par, the pipeline waits for its terminal stages, and fails if any of them fail
+        CompletableFuture<?>[] all = new CompletableFuture<?>[stage.leaves.length + 1];
+        all[0] = next;
+        for (int i = 0; i < stage.leaves.length; i++) {
+            all[i + 1] = run(stage.leaves[i], output, listener);
+        }
+        return CompletableFuture.allOf(all).thenCompose(ignored -> next);
+    }
+
+    private static final class Attempt {
+        private final Object output;
+        private final Throwable failure;
+        private final long elapsedMs;
+
+        private Attempt(Object output, Throwable failure, long startNanos) {
+            this.output = output;
+            this.failure = failure;
+            this.elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        }
+    }
+}
@@ -21,21 +21,38 @@
  */
 package com.ibm.cusp.execution;
 
-import com.google.common.base.Stopwatch;
-import com.google.common.collect.Maps;
+import com.ibm.cusp.execution.jfr.CuspFlightRecorder;
+import com.ibm.cusp.execution.metrics.CuspMetrics;
+import com.ibm.cusp.execution.metrics.StageMetrics;
+import com.ibm.cusp.execution.trace.ExecutionTrace;
+import com.ibm.cusp.execution.trace.TailTraceReservoir;
+import com.ibm.cusp.execution.trace.TraceSampler;
+import com.ibm.cusp.execution.trace.TraceSink;
 import com.ibm.cusp.graph.Cusp;
+import com.ibm.cusp.graph.analysis.CriticalPathAnalyzer;
+import com.ibm.cusp.graph.analysis.StageLatencies;
 import com.ibm.cusp.graph.errors.*;
+import com.ibm.cusp.graph.stages.CancellationToken;
+import com.ibm.cusp.graph.stages.CustomOutcome;
+import com.ibm.cusp.graph.stages.Degradable;
+import com.ibm.cusp.graph.stages.EarlyExit;
+import com.ibm.cusp.graph.stages.NamespacedStage;
 import com.ibm.cusp.graph.stages.Stage;
+import com.ibm.cusp.graph.stages.StageFailure;
 import com.ibm.cusp.graph.stages.StageOutcomes;
+import com.ibm.cusp.graph.stages.StageSignals;
 import com.linkedin.parseq.*;
 import com.linkedin.parseq.function.Consumer1;
 import com.linkedin.parseq.promise.PromiseException;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
@@ -43,16 +60,32 @@ import org.slf4j.LoggerFactory;
 
 
 public class CuspExecutor {
+    private static final long PRIORITY_REFRESH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final ThreadLocal<StageEvent> STAGE_EVENTS = ThreadLocal.withInitial(StageEvent::new);
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     private final Cusp cusp;
-    private final Map<String, Stopwatch> stopwatches = Maps.newConcurrentMap();
+    private final CuspFlightRecorder flightRecorder = CuspFlightRecorder.get();
     private StageOutcomeListener stageOutcomeListener = new NoOpStageOutcomeListener();
+    private StageEventListener stageEventListener;
     private Engine engine;
     private Task<?> pipeline;
+    private ExecutionContext execution;
     private String initialStageName;
     private Executor taskExecutor;
     private ScheduledExecutorService timerScheduler;
+    private StageLatencies criticalPathLatencies;
+    private CuspMetrics metrics;
+    private TraceSampler traceSampler;
+    private TraceSink traceSink;
+    private TailTraceReservoir tailTraceReservoir;
+    private boolean resourceAccounting;
+    private boolean interruptOnCancel;
+    private long deadlineNanos;
+    private volatile Map<String, Long> stagePriorities = Collections.emptyMap();
+    private String prioritizedStageName;
+    private long prioritizedAt;
 
     public CuspExecutor(Cusp cusp) {
         this.cusp = cusp;
@@ -67,6 +100,75 @@ public class CuspExecutor {
         this.stageOutcomeListener = stageOutcomeListener;
     }
 
+    /**
+     * Report every stage outcome as a {@link StageEvent}, which unlike the arguments to a {@link StageOutcomeListener}
+     * identifies the execution and carries nanosecond ready, start and end timestamps.
+     * @param stageEventListener
+     */
+    public void useStageEventListener(StageEventListener stageEventListener) {
+        this.stageEventListener = stageEventListener;
+    }
+
+    /**
+     * Record per-stage, per-route and end-to-end latencies and outcome counts into {@code metrics}.
+     * @param metrics
+     */
+    public void useMetrics(CuspMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Trace the executions chosen by {@code sampler} and pass their traces to {@code sink}, e.g. a
+     * {@link com.ibm.cusp.execution.trace.RollingTraceFileSink}. Executions that are not sampled build no trace.
+     * @param sampler
+     * @param sink
+     */
+    public void useTracing(TraceSampler sampler, TraceSink sink) {
+        this.traceSampler = sampler;
+        this.traceSink = sink;
+    }
+
+    /**
+     * Keep the traces of slow and failed executions in {@code reservoir}, independently of any sampling configured
+     * with {@link #useTracing(TraceSampler, TraceSink)}.
+     * @param reservoir
+     */
+    public void useTailRetention(TailTraceReservoir reservoir) {
+        this.tailTraceReservoir = reservoir;
+    }
+
+    /**
+     * Measure the thread CPU time and the bytes allocated by each stage's {@code execute}, and add them to the
+     * {@link #useMetrics metrics} and {@link #useTracing traces}. Each measurement reads the {@link java.lang.management.ThreadMXBean}
+     * before and after the stage, which costs around a microsecond; measurements the JVM does not support are skipped.
+     * @param resourceAccounting
+     */
+    public void useResourceAccounting(boolean resourceAccounting) {
+        this.resourceAccounting = resourceAccounting;
+    }
+
+    /**
+     * Interrupt the threads running stages when their execution is {@link Cancellation cancelled}, so that stages
+     * blocked on I/O or locks stop early. Stages must then tolerate being interrupted; the interrupt is cleared before
+     * the thread runs anything else.
+     * @param interruptOnCancel
+     */
+    public void useInterruption(boolean interruptOnCancel) {
+        this.interruptOnCancel = interruptOnCancel;
+    }
+
+    /**
+     * Bound each execution by {@code deadline} from the call to {@link #execute()}, degrading the
+     * {@link Degradable} stages that have not finished by then to keep the pipeline's latency near the deadline. The
+     * timeouts run on the timer scheduler. Stages that are not degradable are not bounded. A deadline of 0 turns this
+     * off.
+     * @param deadline
+     * @param unit
+     */
+    public void useDeadline(long deadline, TimeUnit unit) {
+        this.deadlineNanos = unit.toNanos(deadline);
+    }
+
     public void useEngine(Engine engine) {
         if(this.engine != null) {
             engine.shutdown();
@@ -79,10 +181,62 @@ public class CuspExecutor {
         createEngine(taskExecutor, timerScheduler);
     }
 
+    /**
+     * Queue stages by their remaining critical-path length, as estimated from the latencies this executor observes
+     * while running pipelines. See {@link #prioritizeCriticalPath(StageLatencies)}.
+     */
+    public void prioritizeCriticalPath() {
+        prioritizeCriticalPath(new StageLatencies());
+    }
+
+    /**
+     * Queue stages by their remaining critical-path length, so that when the task executor is saturated, stages that
+     * still have the longest path to the end of the pipeline ahead of them run before stages with slack. The latencies
+     * given may be declared up front; the latencies this executor observes are recorded into them as well, and the
+     * priorities are recomputed from them at most once a second when pipelines are constructed.
+     *
+     * Priorities only take effect when the task executor is a {@link PriorityTaskExecutor}, which is what is created
+     * when no executors are given.
+     *
+     * @param latencies
+     */
+    public void prioritizeCriticalPath(StageLatencies latencies) {
+        this.criticalPathLatencies = latencies;
+        this.prioritizedStageName = null;
+
+        if (taskExecutor != null && !(taskExecutor instanceof PriorityTaskExecutor)) {
+            logger.warn("Critical path prioritization has no effect with task executor {}; use a {}",
+                    taskExecutor.getClass().getName(), PriorityTaskExecutor.class.getSimpleName());
+        }
+    }
+
     public void constructPipeline(String initialStageName, Object input) {
         this.cusp.validateGraph();
         this.initialStageName = initialStageName;
+        refreshStagePriorities(initialStageName);
+        boolean sampled = traceSampler != null && traceSampler.sample(initialStageName);
+        boolean detailed = metrics != null || stageEventListener != null || tailTraceReservoir != null || resourceAccounting;
+        this.execution = new ExecutionContext(cusp.getStageCount(), sampled, detailed, interruptOnCancel);
         this.pipeline = toTask(cusp.getStage(initialStageName), input);
+        this.execution.cancellation.attach(pipeline);
+    }
+
+    /**
+     * @return the handle to cancel the execution of the most recently constructed pipeline; see {@link Cancellation}
+     */
+    public Cancellation getCancellation() {
+        return execution == null ? null : execution.cancellation;
+    }
+
+    /**
+     * @return identifier of the execution of the most recently constructed pipeline, as reported in {@link StageEvent}s
+     */
+    public long getExecutionId() {
+        return execution == null ? 0 : execution.id;
+    }
+
+    public Map<String, Long> getStagePriorities() {
+        return stagePriorities;
     }
 
     public Task<?> getPipeline() {
@@ -104,6 +258,72 @@ public class CuspExecutor {
     // TODO: find a way to avoid the case of assigning the output of this to a variable of the wrong type,
     // which will compile but will fail at runtime with a ClassCashException
     public <T> T execute() throws InterruptedException, UnknownExecutionError, StageFailedException {
+        Task<?> pipeline = startExecution();
+        ExecutionContext execution = this.execution;
+        String initialStageName = this.initialStageName;
+
+        logger.debug("Running pipeline");
+        long startNanos = System.nanoTime();
+        execution.setDeadline(deadlineNanos > 0 ? startNanos + deadlineNanos : 0);
+        Object pipelineRecording = flightRecorder.beginPipeline();
+        LongAdder inFlight = metrics == null ? null : metrics.inFlight(initialStageName);
+        if (inFlight != null) {
+            inFlight.increment();
+        }
+        try {
+            engine.run(pipeline);
+
+            logger.debug("Awaiting pipeline");
+            pipeline.await();
+        } finally {
+            if (inFlight != null) {
+                inFlight.decrement();
+            }
+        }
+        return finishExecution(pipeline, execution, initialStageName, startNanos, pipelineRecording);
+    }
+
+    /**
+     * Run the most recently constructed pipeline without blocking. The returned future completes with the pipeline's
+     * output, or the {@link StageFailedException} or {@link UnknownExecutionError} that {@link #execute()} would throw,
+     * on the thread that completes the last stage.
+     *
+     * Recovery stages and stages routed to by {@link com.ibm.cusp.graph.stages.CustomOutcome custom outcomes} are
+     * created by this executor as they are needed, so construct the next pipeline only once the future completes; use
+     * an executor per concurrent execution to run several at once.
+     *
+     * @return the pipeline's output
+     */
+    public <T> CompletableFuture<T> executeAsync() {
+        Task<?> pipeline = startExecution();
+        ExecutionContext execution = this.execution;
+        String initialStageName = this.initialStageName;
+        CompletableFuture<T> output = new CompletableFuture<>();
+
+        long startNanos = System.nanoTime();
+        execution.setDeadline(deadlineNanos > 0 ? startNanos + deadlineNanos : 0);
+        Object pipelineRecording = flightRecorder.beginPipeline();
+        LongAdder inFlight = metrics == null ? null : metrics.inFlight(initialStageName);
+        if (inFlight != null) {
+            inFlight.increment();
+        }
+        pipeline.addListener(completed -> {
+            if (inFlight != null) {
+                inFlight.decrement();
+            }
+            try {
+                output.complete(finishExecution(pipeline, execution, initialStageName, startNanos, pipelineRecording));
+            } catch (Exception | Error e) {
+                output.completeExceptionally(e);
+            }
+        });
+
+        logger.debug("Running pipeline asynchronously");
+        engine.run(pipeline);
+        return output;
+    }
+
+    private Task<?> startExecution() {
         if (engine == null) {
             createEngine();
         }
@@ -113,16 +333,18 @@ public class CuspExecutor {
         }
 
         logger.debug("PIPELINE: {}", pipeline);
+        return pipeline;
+    }
 
-        logger.debug("Running pipeline");
-        engine.run(pipeline);
-
-        logger.debug("Awaiting pipeline");
-        pipeline.await();
+    private <T> T finishExecution(Task<?> pipeline, ExecutionContext execution, String initialStageName, long startNanos,
+                                  Object pipelineRecording) throws UnknownExecutionError, StageFailedException {
+        flightRecorder.endPipeline(pipelineRecording, initialStageName, execution.id, pipeline.isFailed());
+        completeExecution(pipeline, execution, initialStageName, startNanos, System.nanoTime());
 
         try {
             logger.debug("Getting pipeline output");
-            T output = (T) pipeline.get();
+            Object result = pipeline.get();
+            T output = (T) (result instanceof EarlyExit ? ((EarlyExit) result).getResult() : result);
 
             logger.debug("Done running pipeline");
             logger.debug("FINAL OUTPUT: {}", output);
@@ -130,7 +352,9 @@ public class CuspExecutor {
             return output;
         } catch (PromiseException e) {
             Throwable cause = e.getCause();
-            if (cause instanceof StageFailedException) {
+            if (execution.cancellation.isCancelled()) {
+                throw new ExecutionCancelledException(initialStageName, execution.cancellation.getReason(), cause);
+            } else if (cause instanceof StageFailedException) {
                 StageFailedException thrownException = (StageFailedException) cause;
                 throw thrownException;
             } else if (cause instanceof MultiException) {
@@ -149,19 +373,26 @@ public class CuspExecutor {
         }
     }
 
+    /**
+     * The trace's stage tasks carry their queue wait, run and total time in nanoseconds as attributes.
+     * @return trace of the last execution
+     */
     public String generateTrace() {
+        if (execution != null) {
+            execution.annotateTrace();
+        }
         return pipeline.getTrace().toString();
     }
 
     private Task<?> toTask(Stage initialStage, Object input) {
-        return toTask(Task.value("initialization", input), initialStage);
+        return toTask(Task.value("initialization", input), null, -1, initialStage);
     }
 
     @SuppressWarnings("unchecked") // higher kinded types would be nice
-    private Task<?> toTask(Task<?> previousTask, Stage... stages) {
+    private Task<?> toTask(Task<?> previousTask, Stage previousStage, int inputStageIndex, Stage... stages) {
         logger.debug("Recursing from task " + previousTask + " to construct task subgraph based at " + stages[0].name());
 
-        Task<?> currentTask = createTask(previousTask, stages);
+        Task<?> currentTask = createTask(previousTask, previousStage, inputStageIndex, stages);
         currentTask = attachRecoveryStages(previousTask, currentTask, stages[0]);
         currentTask = attachSuccessStages(currentTask, stages[0]);
         // TODO: flatmap, etc?
@@ -169,25 +400,119 @@ public class CuspExecutor {
         return currentTask;
     }
 
-    private <S,T> Task<T> createTask(Task<S> previousTask, S previousTaskOutput, Stage<S,T> stage) {
+    private <S,T> Task<T> createTask(ExecutionContext execution, Task<S> previousTask, int inputStageIndex, S previousTaskOutput, Stage<S,T> stage, LongAdder route) {
+        if (route != null) {
+            route.increment();
+        }
+
+        int stageIndex = cusp.getStageIndex(stage);
+        execution.ready(stageIndex, stage, inputStageIndex);
+
         // The reason for using Tasks#blocking below is that it is required for concurrency
         // see: https://github.com/linkedin/parseq/issues/63
         Task<T> task = Task.blocking(stage.name(), () -> {
+            if (!execution.begin(stageIndex)) {
+                logger.debug("Stage {} was degraded before it started; not running it", stage.name());
+                return null;
+            }
+            if (execution.cancellation.isCancelled()) {
+                if (!execution.complete(stageIndex)) {
+                    return null;
+                }
+                throw cancelled(execution, stageIndex, stage, null);
+            }
             logger.debug("Executing stage {} from output of task {}, which was {}", stage.name(), previousTask, previousTaskOutput);
 
-            T currentTaskOutput = executeStageWithTimer(stage, previousTaskOutput);
+            T currentTaskOutput = executeStageWithTimer(execution, stageIndex, stage, previousTaskOutput);
+            if (execution.isDegraded(stageIndex)) {
+                return currentTaskOutput;
+            }
 
-            stageOutcomeListener.success(stage, currentTaskOutput, getElapsed(stage.name()));
+            notifySuccess(execution, stageIndex, stage, currentTaskOutput);
             logger.debug("Stage {} resulted in {}", stage.name(), currentTaskOutput);
             return currentTaskOutput;
-        }, this.taskExecutor);
+        }, executorFor(stage));
+        execution.tasks[stageIndex] = task;
 
-        return task.onFailure("failure handler for " + stage.name(), observeFailureOf(task, stage));
+        Task<T> observedTask = task.onFailure("failure handler for " + stage.name(), observeFailureOf(execution, stageIndex, task, stage));
+        Degradable<S, T> degradable = execution.deadlineNanos != 0 ? degradableOf(stage) : null;
+        if (degradable != null) {
+            return bindToDeadline(execution, stageIndex, stage, degradable, previousTaskOutput, observedTask);
+        }
+        return observedTask;
     }
 
-    private <S, T> Task<T> createTask(Task<S> previousTask, Stage<S, T>... stages) {
+    /**
+     * @return the stage, or the stage a {@link NamespacedStage} inlined from a sub-pipeline wraps, if it is degradable
+     */
+    @SuppressWarnings("unchecked")
+    private static <S, T> Degradable<S, T> degradableOf(Stage<S, T> stage) {
+        while (stage instanceof NamespacedStage) {
+            stage = ((NamespacedStage<S, T>) stage).getDelegate();
+        }
+        return stage instanceof Degradable ? (Degradable<S, T>) stage : null;
+    }
+
+    /**
+     * A degradable stage that becomes ready after the deadline is not run; one that is still running when the deadline
+     * passes is left to finish in the background while the pipeline continues with its degraded output.
+     */
+    private <S, T> Task<T> bindToDeadline(ExecutionContext execution, int stageIndex, Stage<S, T> stage, Degradable<S, T> degradable, S input, Task<T> task) {
+        long remainingNanos = execution.deadlineNanos - System.nanoTime();
+        if (remainingNanos <= 0) {
+            return Task.callable("degraded " + stage.name(), () -> degrade(execution, stageIndex, stage, degradable, input));
+        }
+
+        return task.withTimeout(remainingNanos, TimeUnit.NANOSECONDS)
+                .recover("degrade " + stage.name(), thrown -> {
+                    if (!(thrown instanceof TimeoutException)) {
+                        throw thrown instanceof Exception ? (Exception) thrown : new UnknownExecutionError(thrown);
+                    }
+                    return degrade(execution, stageIndex, stage, degradable, input);
+                });
+    }
+
+    /**
+     * Only the first of the stage completing and it being degraded reports an outcome. The stage's task may still be
+     * running, so the degraded stage's event carries the time and thread of the degradation rather than of the stage.
+     */
+    private <S, T> T degrade(ExecutionContext execution, int stageIndex, Stage<S, T> stage, Degradable<S, T> degradable, S input) throws Exception {
+        T output = degradable.degrade(input);
+        if (!execution.degrade(stageIndex)) {
+            logger.debug("Stage {} completed as it missed the deadline; continuing with its degraded output {} without reporting it", stage.name(), output);
+            return output;
+        }
+
+        logger.debug("Stage {} missed the deadline and was degraded to {}", stage.name(), output);
+        // the stage's task no longer ends the stage once it was degraded
+        execution.end(stageIndex);
+        long now = execution.endNanos[stageIndex];
+        execution.outcome(stageIndex, StageEvent.Outcome.DEGRADED, null);
+        if (stageEventListener != null) {
+            Thread thread = Thread.currentThread();
+            StageEvent event = STAGE_EVENTS.get().set(execution.id, stageIndex, stage, StageEvent.Outcome.DEGRADED, execution.attempts[stageIndex],
+                    execution.readyNanos[stageIndex], now, now, thread.getId(), thread.getName(), output, null, null);
+            try {
+                stageEventListener.onStageEvent(event);
+            } finally {
+                event.clear();
+            }
+        }
+        stageOutcomeListener.degraded(stage, output, TimeUnit.NANOSECONDS.toMillis(now - execution.readyNanos[stageIndex]));
+        return output;
+    }
+
+    private <S, T> Task<T> createTask(Task<S> previousTask, Stage previousStage, int inputStageIndex, Stage<S, T>... stages) {
+        ExecutionContext execution = this.execution;
+        LongAdder[] routes = new LongAdder[stages.length];
+        if (metrics != null && previousStage != null) {
+            for (int i = 0; i < stages.length; i++) {
+                routes[i] = metrics.route(previousStage.name(), StageOutcomes.SUCCESS, stages[i].name());
+            }
+        }
+
         if(stages.length == 1) {
-            Task<Task<T>> task = previousTask.map("use output of " + previousTask.getName(), previousTaskOutput -> createTask(previousTask, previousTaskOutput, stages[0]));
+            Task<Task<T>> task = previousTask.map("use output of " + previousTask.getName(), previousTaskOutput -> createTask(execution, previousTask, readyAfter(execution, previousStage, inputStageIndex), previousTaskOutput, stages[0], routes[0]));
             return Task.flatten("flattened " + stages[0].name(), task);
         } else {
             String combinedStageName = Arrays.stream(stages)
@@ -195,9 +520,11 @@ public class CuspExecutor {
                     .collect(Collectors.joining(" and "));
 
             Task<Task<T>> task = previousTask.map("use output of " + previousTask.getName(), previousTaskOutput -> {
-                List<Task<T>> taskList = Arrays.stream(stages)
-                        .map(stage -> createTask(previousTask, previousTaskOutput, stage))
-                        .collect(Collectors.toList());
+                int readyAfter = readyAfter(execution, previousStage, inputStageIndex);
+                List<Task<T>> taskList = new ArrayList<>(stages.length);
+                for (int i = 0; i < stages.length; i++) {
+                    taskList.add(createTask(execution, previousTask, readyAfter, previousTaskOutput, stages[i], routes[i]));
+                }
 
 
                 ParTask<T> parallelTask = Task.par(taskList);
@@ -208,12 +535,18 @@ public class CuspExecutor {
         }
     }
 
-    private Consumer1<Throwable> observeFailureOf(Task task, Stage stage) {
+    private Consumer1<Throwable> observeFailureOf(ExecutionContext execution, int stageIndex, Task task, Stage stage) {
         return thrown -> {
             if (task.isFailed()) {
-                logger.info("Stage {} failed: {}", stage.name(), thrown.getMessage());
+                if (isCancellation(thrown)) {
+                    // the stage's task reported it as cancelled
+                    return;
+                }
+                if (logger.isInfoEnabled()) {
+                    logger.info("Stage {} failed: {}", stage.name(), thrown.getMessage());
+                }
                 if(!hasRecoveryStage(stage)) {
-                    stageOutcomeListener.failure(stage, getActualCause(thrown), getElapsed(stage.name()));
+                    notifyFailure(execution, stageIndex, stage, getActualCause(thrown));
                 }
                 return;
             }
@@ -224,6 +557,17 @@ public class CuspExecutor {
         return !cusp.getNextStages(stage.name(), StageOutcomes.RECOVERABLE_FAILURE).isEmpty();
     }
 
+    private static boolean isCancellation(Throwable throwable) {
+        return asCancellation(throwable) != null;
+    }
+
+    private static ExecutionCancelledException asCancellation(Throwable throwable) {
+        if (throwable instanceof MultiException) {
+            throwable = throwable.getCause();
+        }
+        return throwable instanceof ExecutionCancelledException ? (ExecutionCancelledException) throwable : null;
+    }
+
     private Throwable getActualCause(Throwable throwable) {
         Throwable actualStageFailureCause = throwable;
         if (actualStageFailureCause instanceof MultiException) {
@@ -237,27 +581,83 @@ public class CuspExecutor {
         return actualStageFailureCause;
     }
 
+    /**
+     * @param previousStage the stage whose success stages are created, or {@code null}
+     * @return the stage the created stages are ready after
+     */
+    private int readyAfter(ExecutionContext execution, Stage previousStage, int inputStageIndex) {
+        return previousStage == null ? inputStageIndex : producedBy(execution, cusp.getStageIndex(previousStage));
+    }
+
+    /**
+     * @return the stage, or -1 if it failed and the output the pipeline continues with is its recovery stage's
+     */
+    private static int producedBy(ExecutionContext execution, int stageIndex) {
+        return execution.tasks[stageIndex].isFailed() ? -1 : stageIndex;
+    }
+
     @SuppressWarnings("unchecked")
     private Task<?> attachRecoveryStages(Task<?> previousTask, Task<?> currentTask, Stage currentStage) {
         Optional<Stage> maybeRecoverableStage = cusp.getNextStage(currentStage.name(), StageOutcomes.RECOVERABLE_FAILURE);
         logger.debug("maybeRecoverableStage for {}: {}", currentStage.name(), maybeRecoverableStage);
         if(maybeRecoverableStage.isPresent()) {
             Stage recoverableStage = maybeRecoverableStage.get();
+            ExecutionContext execution = this.execution;
+            int stageIndex = cusp.getStageIndex(currentStage);
             logger.debug("Attaching recoverable stage to {}: {}", currentStage.name(), recoverableStage.name());
             return currentTask.recoverWith(currentStage.name() + " recovering with " + recoverableStage.name(),
                     throwable -> {
+                        if (isCancellation(throwable)) {
+                            return Task.failure(throwable);
+                        }
                         Throwable actualStageFailureCause = getActualCause(throwable);
-                        stageOutcomeListener.recover(currentStage, recoverableStage, actualStageFailureCause, getElapsed(currentStage.name()));
+                        notifyRecover(execution, stageIndex, currentStage, recoverableStage, actualStageFailureCause);
                         logger.debug("Recovering from {} with {}: {}", currentStage.name(), recoverableStage.name(),throwable);
 
-                        return (Task) toTask(previousTask, recoverableStage);
+                        return (Task) toTask(previousTask, null, stageIndex, recoverableStage);
                     });
         } else {
             return currentTask;
         }
     }
 
+    /**
+     * A stage with routes for custom outcomes continues with its success stages only when it returns an output; when it
+     * emits an outcome, the emitted value is passed to the stage routed to instead.
+     *
+     * A stage that may exit early, or whose recovery stage may, ends the pipeline with its {@link EarlyExit} instead of
+     * continuing with its success stages. Their tasks are only created here, never run, and no other stage is wrapped.
+     */
+    @SuppressWarnings("unchecked")
     private Task<?> attachSuccessStages(Task<?> currentTask, Stage currentStage) {
+        Task<?> successTask = attachSuccessRoutes(currentTask, currentStage);
+        int stageIndex = cusp.getStageIndex(currentStage);
+        boolean mayExitEarly = cusp.canExitEarly(currentStage) || (cusp.hasEarlyExits() && hasRecoveryStage(currentStage));
+        if (!cusp.hasCustomRoutes(stageIndex) && !mayExitEarly) {
+            return successTask;
+        }
+
+        CuspMetrics metrics = this.metrics;
+        return currentTask.flatMap("route outcome of " + currentStage.name(), output -> {
+            if (output instanceof EarlyExit) {
+                logger.debug("Stage {} completed the pipeline early", currentStage.name());
+                return (Task) currentTask;
+            }
+            if (!(output instanceof CustomOutcome.Emission)) {
+                return (Task) successTask;
+            }
+
+            CustomOutcome.Emission emission = (CustomOutcome.Emission) output;
+            Stage target = cusp.getNextStage(stageIndex, emission.getOutcome());
+            logger.debug("Routing outcome {} of {} to {}", emission.getOutcome(), currentStage.name(), target.name());
+            if (metrics != null) {
+                metrics.route(currentStage.name(), emission.getOutcome(), target.name()).increment();
+            }
+            return (Task) toTask(Task.value(emission.getOutcome().name(), emission.getValue()), null, producedBy(execution, stageIndex), target);
+        });
+    }
+
+    private Task<?> attachSuccessRoutes(Task<?> currentTask, Stage currentStage) {
         Set<Stage> successStages = cusp.getNextStages(currentStage.name(), StageOutcomes.SUCCESS);
 
         logger.debug("maybeSuccessStage for {}: {}", currentStage.name(), successStages);
@@ -266,19 +666,12 @@ public class CuspExecutor {
             Set<Stage> internalStages = successStages;
             internalStages.removeAll(leafStages);
 
-            if(internalStages.size() > 1) {
-                throw new NondeterministicExecutionException(
-                        CuspErrorCode.NONDETERMINISTIC_PIPELINE,
-                        "Stage {0}'s output was defined as being used by multiple downstream stages, which is not supported; those downstream stages were: {1}",
-                        currentStage.name(),
-                        new ArrayList<>(internalStages).toString());
-            }
-
+            // Cusp#validateGraph guarantees there is at most one internal stage
             List<Stage> stages = new ArrayList<>();
             stages.addAll(internalStages);
             stages.addAll(leafStages);
 
-            return toTask(currentTask, stages.toArray(new Stage[0]));
+            return toTask(currentTask, currentStage, -1, stages.toArray(new Stage[0]));
 
         } else {
             return currentTask;
@@ -286,10 +679,37 @@ public class CuspExecutor {
     }
 
     private void createEngine() {
-        createEngine(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2),
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+        createEngine(criticalPathLatencies != null ? new PriorityTaskExecutor(threads) : Executors.newFixedThreadPool(threads),
                 Executors.newScheduledThreadPool(1));
     }
 
+    private void refreshStagePriorities(String initialStageName) {
+        if (criticalPathLatencies == null) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        if (initialStageName.equals(prioritizedStageName) && now - prioritizedAt < PRIORITY_REFRESH_INTERVAL_NANOS) {
+            return;
+        }
+
+        this.stagePriorities = new CriticalPathAnalyzer(cusp).remainingCriticalPaths(initialStageName, criticalPathLatencies);
+        this.prioritizedStageName = initialStageName;
+        this.prioritizedAt = now;
+        logger.debug("Stage priorities from {}: {}", initialStageName, stagePriorities);
+    }
+
+    private Executor executorFor(Stage stage) {
+        if (criticalPathLatencies == null || !(taskExecutor instanceof PriorityTaskExecutor)) {
+            return this.taskExecutor;
+        }
+
+        PriorityTaskExecutor priorityTaskExecutor = (PriorityTaskExecutor) taskExecutor;
+        long priority = stagePriorities.getOrDefault(stage.name(), 0L);
+        return command -> priorityTaskExecutor.execute(command, priority);
+    }
+
     private void createEngine(Executor taskExecutor, ScheduledExecutorService timerScheduler) {
         this.taskExecutor = taskExecutor;
         this.timerScheduler = timerScheduler;
@@ -306,44 +726,203 @@ public class CuspExecutor {
         }
     }
 
-    private <S, T> T executeStageWithTimer(Stage<S, T> stage, S previousTaskOutput) throws StageFailedException {
-        T currentTaskOutput;
+    private <S, T> T executeStageWithTimer(ExecutionContext execution, int stageIndex, Stage<S, T> stage, S previousTaskOutput) throws StageFailedException {
+        T currentTaskOutput = null;
+        Exception failure = null;
+        execution.start(stageIndex);
+        flightRecorder.queueWait(stage.name(), execution.id, execution.queueWaitNanos(stageIndex));
+        Object stageRecording = flightRecorder.beginStage();
+        if (resourceAccounting) {
+            execution.startAccounting(stageIndex);
+        }
+        Cancellation cancellation = execution.cancellation;
+        CancellationToken.bind(cancellation);
+        cancellation.started(stageIndex, Thread.currentThread());
+        boolean threw = true;
+        boolean settled;
         try {
-            startTimerForStage(stage.name());
-
-            currentTaskOutput = stage.execute(previousTaskOutput);
-
-            stopTimerForStage(stage.name());
+            Object output = StageSignals.execute(stage, previousTaskOutput);
+            if (output instanceof CustomOutcome.Emission) {
+                checkRouted(stageIndex, stage, (CustomOutcome.Emission) output);
+            } else if (output instanceof EarlyExit) {
+                checkEarlyExit(stage, (EarlyExit) output);
+            }
+            currentTaskOutput = (T) output;
+            threw = false;
         } catch (Exception e) {
-            stopTimerForStage(stage.name());
+            failure = e;
+            threw = false;
+        } finally {
+            // also on an Error, so the pool thread is neither left bound to the execution nor interrupted by its cancellation
+            cancellation.finished(stageIndex);
+            CancellationToken.bind(null);
+
+            settled = execution.complete(stageIndex);
+            if (settled) {
+                if (resourceAccounting) {
+                    execution.endAccounting(stageIndex);
+                }
+                execution.end(stageIndex);
+            }
+            flightRecorder.endStage(stageRecording, stage.name(), execution.id, stageIndex, execution.attempts[stageIndex], threw || failure != null);
+        }
 
-            throw new StageFailedException(stage.name(), e);
+        if (!settled) {
+            logger.debug("Stage {} finished after it was degraded; dropping its {}", stage.name(), failure != null ? "failure " + failure : "output " + currentTaskOutput);
+            return null;
         }
 
+        if (failure != null) {
+            if (cancellation.isCancelled()) {
+                throw cancelled(execution, stageIndex, stage, failure);
+            }
+            throw StageFailedException.stackless(stage.name(), failure);
+        }
         return currentTaskOutput;
     }
 
-    private void startTimerForStage(String name) {
-        if (stopwatches.containsKey(name)) {
-            logger.error("stage already found: {}", name);
+    /**
+     * Report the stage as cancelled from its own task: once the execution is cancelled, ParSeq may never run the
+     * continuations observing the task's failure.
+     * @return the exception to fail the stage's task with
+     */
+    private ExecutionCancelledException cancelled(ExecutionContext execution, int stageIndex, Stage stage, Throwable cause) {
+        ExecutionCancelledException cancelled = new ExecutionCancelledException(stage.name(), execution.cancellation.getReason(), cause);
+        notifyCancelled(execution, stageIndex, stage, cancelled);
+        return cancelled;
+    }
+
+    /**
+     * @throws StageFailure if the stage has no route for the outcome it emitted
+     */
+    private void checkRouted(int stageIndex, Stage stage, CustomOutcome.Emission emission) throws StageFailure {
+        if (cusp.getNextStage(stageIndex, emission.getOutcome()) == null) {
+            throw new StageFailure("Stage " + stage.name() + " emitted outcome " + emission.getOutcome() + ", which is not routed");
         }
-        stopwatches.putIfAbsent(name, Stopwatch.createStarted());
     }
 
-    private void stopTimerForStage(String stageName) {
-        Stopwatch stopwatch = stopwatches.get(stageName);
-        if (stopwatch.isRunning()) {
-            stopwatch.stop();
+    /**
+     * @throws StageFailure if the stage is not allowed to exit early, or not with a result of that type
+     */
+    private void checkEarlyExit(Stage stage, EarlyExit exit) throws StageFailure {
+        if (!cusp.canExitEarly(stage)) {
+            throw new StageFailure("Stage " + stage.name() + " tried to complete the pipeline, but is not allowed to exit early");
         }
+        checkEarlyExitType(stage, exit, cusp.getEarlyExitType(stage));
+    }
+
+    /**
+     * @param type the type of the pipeline's output, or {@code null} if it is not known
+     * @throws StageFailure if the result of the early exit is not of that type
+     */
+    static void checkEarlyExitType(Stage stage, EarlyExit exit, Class<?> type) throws StageFailure {
+        Object result = exit.getResult();
+        if (type != null && result != null && !type.isInstance(result)) {
+            throw new StageFailure("Stage " + stage.name() + " tried to complete the pipeline with a " + result.getClass().getName()
+                    + ", but the pipeline outputs " + type.getName());
+        }
+    }
+
+    private void notifySuccess(ExecutionContext execution, int stageIndex, Stage stage, Object output) {
+        long elapsedNanos = execution.runNanos(stageIndex);
+        recordLatency(stage, elapsedNanos, false);
+        if (metrics != null) {
+            StageMetrics stageMetrics = metrics.stage(stage.name());
+            stageMetrics.recordSuccess(execution.queueWaitNanos(stageIndex), elapsedNanos);
+            stageMetrics.recordResources(execution.cpuNanos[stageIndex], execution.allocatedBytes[stageIndex]);
+        }
+        execution.outcome(stageIndex, StageEvent.Outcome.SUCCESS, null);
+        publishEvent(execution, stageIndex, stage, StageEvent.Outcome.SUCCESS, output, null, null);
+        stageOutcomeListener.success(stage, output, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    }
+
+    private void notifyFailure(ExecutionContext execution, int stageIndex, Stage stage, Throwable cause) {
+        long elapsedNanos = execution.runNanos(stageIndex);
+        recordLatency(stage, elapsedNanos, true);
+        if (metrics != null) {
+            StageMetrics stageMetrics = metrics.stage(stage.name());
+            stageMetrics.recordFailure(execution.queueWaitNanos(stageIndex), elapsedNanos);
+            stageMetrics.recordResources(execution.cpuNanos[stageIndex], execution.allocatedBytes[stageIndex]);
+        }
+        execution.outcome(stageIndex, StageEvent.Outcome.FAILURE, null);
+        publishEvent(execution, stageIndex, stage, StageEvent.Outcome.FAILURE, null, cause, null);
+        stageOutcomeListener.failure(stage, cause, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    }
+
+    private void notifyRecover(ExecutionContext execution, int stageIndex, Stage stage, Stage recoveryStage, Throwable cause) {
+        long elapsedNanos = execution.runNanos(stageIndex);
+        recordLatency(stage, elapsedNanos, true);
+        if (metrics != null) {
+            StageMetrics stageMetrics = metrics.stage(stage.name());
+            stageMetrics.recordRecovery(execution.queueWaitNanos(stageIndex), elapsedNanos);
+            stageMetrics.recordResources(execution.cpuNanos[stageIndex], execution.allocatedBytes[stageIndex]);
+            metrics.route(stage.name(), StageOutcomes.RECOVERABLE_FAILURE, recoveryStage.name()).increment();
+        }
+        execution.outcome(stageIndex, StageEvent.Outcome.RECOVERY, recoveryStage);
+        flightRecorder.recovery(stage.name(), recoveryStage.name(), execution.id, cause);
+        publishEvent(execution, stageIndex, stage, StageEvent.Outcome.RECOVERY, null, cause, recoveryStage);
+        stageOutcomeListener.recover(stage, recoveryStage, cause, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    }
+
+    /**
+     * A cancelled stage is not counted in the stage metrics; one cancelled before it started is also left out of traces.
+     */
+    private void notifyCancelled(ExecutionContext execution, int stageIndex, Stage stage, ExecutionCancelledException cause) {
+        long elapsedNanos = execution.attempts[stageIndex] > 0 ? execution.runNanos(stageIndex) : 0;
+        execution.outcome(stageIndex, StageEvent.Outcome.CANCELLED, null);
+        publishEvent(execution, stageIndex, stage, StageEvent.Outcome.CANCELLED, null, cause, null);
+        stageOutcomeListener.cancelled(stage, cause, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
     }
 
-    private long getElapsed(String stageName) {
-        long elapsed = stopwatches.getOrDefault(stageName, Stopwatch.createUnstarted()).elapsed(TimeUnit.MILLISECONDS);
-        stopwatches.remove(stageName);
-        return elapsed;
+    private void publishEvent(ExecutionContext execution, int stageIndex, Stage stage, StageEvent.Outcome outcome,
+                              Object output, Throwable throwable, Stage recoveryStage) {
+        if (stageEventListener == null) {
+            return;
+        }
+
+        StageEvent event = STAGE_EVENTS.get().set(execution.id, stageIndex, stage, outcome, execution.attempts[stageIndex],
+                execution.readyNanos[stageIndex], execution.startNanos[stageIndex], execution.endNanos[stageIndex],
+                execution.threadIds[stageIndex], execution.threadNames[stageIndex], output, throwable, recoveryStage);
+        try {
+            stageEventListener.onStageEvent(event);
+        } finally {
+            event.clear();
+        }
+    }
+
+    private void completeExecution(Task<?> pipeline, ExecutionContext execution, String initialStageName, long startNanos, long endNanos) {
+        boolean failed = pipeline.isFailed();
+        if (metrics != null) {
+            if (failed) {
+                metrics.pipeline(initialStageName).recordFailure(endNanos - startNanos);
+            } else {
+                metrics.pipeline(initialStageName).recordSuccess(endNanos - startNanos);
+            }
+        }
+
+        if (execution == null) {
+            return;
+        }
+
+        boolean retained = tailTraceReservoir != null && tailTraceReservoir.qualifies(initialStageName, endNanos - startNanos, failed);
+        if (execution.sampled || retained) {
+            ExecutionTrace trace = execution.toTrace(initialStageName, startNanos, endNanos, failed);
+            if (execution.sampled) {
+                traceSink.accept(trace);
+            }
+            if (retained) {
+                tailTraceReservoir.retain(trace);
+            }
+        }
+    }
+
+    private void recordLatency(Stage stage, long elapsedNanos, boolean failed) {
+        if (criticalPathLatencies != null) {
+            criticalPathLatencies.record(stage.name(), elapsedNanos, failed);
+        }
     }
 
-    private static class NoOpStageOutcomeListener implements StageOutcomeListener {
+    static class NoOpStageOutcomeListener implements StageOutcomeListener {
         @Override
         public void success(Stage currentStage, Object currentStageOutput, long elapsedMs) { }
 
@@ -0,0 +1,245 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.execution;
+
+import com.ibm.cusp.execution.trace.ExecutionTrace;
+import com.ibm.cusp.execution.trace.StageSpan;
+import com.ibm.cusp.graph.stages.Stage;
+import com.linkedin.parseq.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-execution timing state of every stage, indexed by {@link com.ibm.cusp.graph.Cusp#getStageIndex stage index}.
+ * Every stage runs at most once per attempt within an execution, so the arrays are allocated once when the pipeline is
+ * constructed and written without synchronization by the thread handling each stage; ParSeq's task completion
+ * orders those writes before the stage's outcome handlers read them.
+ *
+ * Only the timings the {@link StageOutcomeListener} needs are kept for every execution. The threads, outcomes and
+ * resource usage behind metrics, stage events and traces are only allocated and recorded for a {@code detailed}
+ * execution, which also takes each stage's ready time from the ParSeq trace of the task producing its input.
+ *
+ * A {@link com.ibm.cusp.graph.stages.Degradable} stage under a deadline can also be settled by the timer thread that
+ * degrades it, so with a deadline each stage has an atomic state, and only the first of the stage's own completion
+ * and its degradation records and reports an outcome.
+ */
+class ExecutionContext {
+    private static final AtomicLong EXECUTION_IDS = new AtomicLong();
+    private static final int PENDING = 0;
+    private static final int RUNNING = 1;
+    private static final int COMPLETED = 2;
+    private static final int DEGRADED = 3;
+
+    final long id;
+    final boolean sampled;
+    final boolean detailed;
+    final Stage[] stages;
+    final StageEvent.Outcome[] outcomes;
+    final Stage[] recoveryStages;
+    final long[] readyNanos;
+    final long[] startNanos;
+    final long[] endNanos;
+    final int[] attempts;
+    final long[] threadIds;
+    final String[] threadNames;
+    final long[] cpuNanos;
+    final long[] allocatedBytes;
+    final Task<?>[] tasks;
+    final Cancellation cancellation;
+    long deadlineNanos;
+    private AtomicIntegerArray states;
+
+    /**
+     * @param stageCount
+     * @param sampled whether the execution is traced
+     * @param detailed whether anything besides the {@link StageOutcomeListener} reads the stages' details; implied by
+     * {@code sampled}
+     * @param interruptible
+     */
+    ExecutionContext(int stageCount, boolean sampled, boolean detailed, boolean interruptible) {
+        this.id = EXECUTION_IDS.incrementAndGet();
+        this.sampled = sampled;
+        this.detailed = detailed || sampled;
+        this.readyNanos = new long[stageCount];
+        this.startNanos = new long[stageCount];
+        this.endNanos = new long[stageCount];
+        this.attempts = new int[stageCount];
+        if (this.detailed) {
+            this.stages = new Stage[stageCount];
+            this.outcomes = new StageEvent.Outcome[stageCount];
+            this.recoveryStages = new Stage[stageCount];
+            this.threadIds = new long[stageCount];
+            this.threadNames = new String[stageCount];
+            this.cpuNanos = new long[stageCount];
+            this.allocatedBytes = new long[stageCount];
+            Arrays.fill(cpuNanos, ThreadResources.UNMEASURED);
+            Arrays.fill(allocatedBytes, ThreadResources.UNMEASURED);
+        } else {
+            this.stages = null;
+            this.outcomes = null;
+            this.recoveryStages = null;
+            this.threadIds = null;
+            this.threadNames = null;
+            this.cpuNanos = null;
+            this.allocatedBytes = null;
+        }
+        this.tasks = new Task<?>[stageCount];
+        this.cancellation = new Cancellation(stageCount, interruptible);
+    }
+
+    /**
+     * @param deadlineNanos {@link System#nanoTime()} by which degradable stages are degraded, or 0 for no deadline
+     */
+    void setDeadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+        if (deadlineNanos != 0 && states == null) {
+            states = new AtomicIntegerArray(startNanos.length);
+        }
+    }
+
+    /**
+     * Called by the stage's task before it runs the stage.
+     * @return false if the stage was already degraded, and must not run
+     */
+    boolean begin(int stageIndex) {
+        return states == null || states.compareAndSet(stageIndex, PENDING, RUNNING);
+    }
+
+    /**
+     * Called by the stage's task once the stage has run.
+     * @return false if the stage was degraded while it ran, and its outcome must be dropped
+     */
+    boolean complete(int stageIndex) {
+        return states == null || states.compareAndSet(stageIndex, RUNNING, COMPLETED);
+    }
+
+    /**
+     * @return false if the stage already completed, and its outcome was reported instead
+     */
+    boolean degrade(int stageIndex) {
+        return states == null || states.compareAndSet(stageIndex, PENDING, DEGRADED) || states.compareAndSet(stageIndex, RUNNING, DEGRADED);
+    }
+
+    /**
+     * @return whether the stage was degraded, and its task's outcome is not reported
+     */
+    boolean isDegraded(int stageIndex) {
+        return states != null && states.get(stageIndex) == DEGRADED;
+    }
+
+    /**
+     * A stage is ready when the stage producing its input ended, which includes the time ParSeq took to schedule the
+     * continuation that creates the stage's task. A recovery stage is ready when the stage it recovers from ended.
+     * @param inputStageIndex the stage that ended, or -1 if the stage is ready once that continuation runs
+     */
+    void ready(int stageIndex, Stage stage, int inputStageIndex) {
+        if (states != null) {
+            states.set(stageIndex, PENDING);
+        }
+        if (detailed) {
+            stages[stageIndex] = stage;
+        }
+        long now = System.nanoTime();
+        long inputEndNanos = inputStageIndex < 0 ? 0 : endNanos[inputStageIndex];
+        readyNanos[stageIndex] = inputEndNanos == 0 ? now : Math.min(inputEndNanos, now);
+    }
+
+    void start(int stageIndex) {
+        if (detailed) {
+            Thread thread = Thread.currentThread();
+            threadIds[stageIndex] = thread.getId();
+            threadNames[stageIndex] = thread.getName();
+        }
+        attempts[stageIndex]++;
+        startNanos[stageIndex] = System.nanoTime();
+    }
+
+    void end(int stageIndex) {
+        endNanos[stageIndex] = System.nanoTime();
+    }
+
+    /**
+     * Take the current thread's CPU time and allocated bytes before the stage executes; {@link #endAccounting} replaces
+     * them with the amounts the stage used.
+     */
+    void startAccounting(int stageIndex) {
+        cpuNanos[stageIndex] = ThreadResources.currentThreadCpuNanos();
+        allocatedBytes[stageIndex] = ThreadResources.currentThreadAllocatedBytes();
+    }
+
+    void endAccounting(int stageIndex) {
+        cpuNanos[stageIndex] = used(cpuNanos[stageIndex], ThreadResources.currentThreadCpuNanos());
+        allocatedBytes[stageIndex] = used(allocatedBytes[stageIndex], ThreadResources.currentThreadAllocatedBytes());
+    }
+
+    private static long used(long before, long after) {
+        return before == ThreadResources.UNMEASURED || after == ThreadResources.UNMEASURED ? ThreadResources.UNMEASURED : after - before;
+    }
+
+    void outcome(int stageIndex, StageEvent.Outcome outcome, Stage recoveryStage) {
+        if (!detailed) {
+            return;
+        }
+        outcomes[stageIndex] = outcome;
+        recoveryStages[stageIndex] = recoveryStage;
+    }
+
+    long queueWaitNanos(int stageIndex) {
+        return startNanos[stageIndex] - readyNanos[stageIndex];
+    }
+
+    long runNanos(int stageIndex) {
+        return endNanos[stageIndex] - startNanos[stageIndex];
+    }
+
+    /**
+     * Add each stage's queue wait, run and total time as attributes of its task in the ParSeq trace.
+     */
+    void annotateTrace() {
+        for (int i = 0; i < tasks.length; i++) {
+            if (tasks[i] != null && attempts[i] > 0 && endNanos[i] != 0) {
+                tasks[i].getShallowTraceBuilder()
+                        .addAttribute("queueWaitNanos", Long.toString(queueWaitNanos(i)))
+                        .addAttribute("runNanos", Long.toString(runNanos(i)))
+                        .addAttribute("totalNanos", Long.toString(endNanos[i] - readyNanos[i]));
+            }
+        }
+    }
+
+    ExecutionTrace toTrace(String pipelineName, long executionStartNanos, long executionEndNanos, boolean failed) {
+        List<StageSpan> spans = new ArrayList<>();
+        for (int i = 0; i < stages.length; i++) {
+            if (attempts[i] > 0) {
+                spans.add(new StageSpan(stages[i].name(), i, outcomes[i], attempts[i], threadIds[i], threadNames[i],
+                        readyNanos[i], startNanos[i], endNanos[i] == 0 ? executionEndNanos : endNanos[i],
+                        recoveryStages[i] == null ? null : recoveryStages[i].name(), cpuNanos[i], allocatedBytes[i]));
+            }
+        }
+        spans.sort(Comparator.comparingLong(StageSpan::getStartNanos));
+        return new ExecutionTrace(id, pipelineName, executionStartNanos, executionEndNanos, failed, spans);
+    }
+}
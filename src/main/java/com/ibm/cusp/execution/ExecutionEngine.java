@@ -0,0 +1,52 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.execution;
+
+import com.ibm.cusp.graph.Cusp;
+
+/**
+ * Runs pipelines. An engine compiles a pipeline into an {@link ExecutionPlan} once, checking its routes, and the plan
+ * then runs any number of executions, concurrently if need be.
+ *
+ * Every engine routes stage outcomes the same way, including recovery stages, custom outcomes, early exits and
+ * signalled failures, and reports them to a {@link StageOutcomeListener} in the same way; they differ in how the
+ * stages are scheduled and what else they support:
+ * <ul>
+ *     <li>{@link ParSeqExecutionEngine} runs each execution on a {@link CuspExecutor}, with its metrics, tracing,
+ *     deadlines and cancellation</li>
+ *     <li>{@link CompletableFutureExecutionEngine} chains the stages as {@link java.util.concurrent.CompletableFuture}s
+ *     on the caller's {@link java.util.concurrent.Executor}, without building a task graph per execution</li>
+ * </ul>
+ */
+public interface ExecutionEngine {
+    /**
+     * Compile the pipeline starting at {@code initialStageName}. Stages and routes added to {@code cusp} afterwards may
+     * not be seen by the plan.
+     *
+     * @param cusp
+     * @param initialStageName
+     * @return
+     * @throws com.ibm.cusp.graph.errors.CuspConstructionError if the graph is invalid or a stage's output is used by
+     * more than one non-terminal stage
+     */
+    <I, O> ExecutionPlan<I, O> compile(Cusp cusp, String initialStageName);
+}
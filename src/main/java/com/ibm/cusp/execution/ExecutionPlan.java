@@ -0,0 +1,46 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.execution;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A pipeline compiled by an {@link ExecutionEngine}, which is safe to execute from any number of threads at once.
+ *
+ * @param <I> input of the initial stage
+ * @param <O> output of the pipeline
+ */
+public interface ExecutionPlan<I, O> {
+    /**
+     * Start an execution of the pipeline.
+     *
+     * @param input input of the initial stage
+     * @param stageOutcomeListener told of the outcome of every stage of this execution, or {@code null}
+     * @return a future of the pipeline's output, or failed with the
+     * {@link com.ibm.cusp.graph.errors.StageFailedException} of the stage that failed without a recovery stage
+     */
+    CompletableFuture<O> execute(I input, StageOutcomeListener stageOutcomeListener);
+
+    default CompletableFuture<O> execute(I input) {
+        return execute(input, null);
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.execution;
+
+import com.ibm.cusp.graph.Cusp;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+
+/**
+ * The {@link ExecutionEngine} backed by ParSeq, which runs every execution on a {@link CuspExecutor} of its own. Each
+ * plan keeps a pool of executors, created by the engine's factory as more executions run at once, so every
+ * {@link CuspExecutor} feature configured by the factory, such as metrics, tracing or a deadline, applies to the
+ * plan's executions.
+ */
+public class ParSeqExecutionEngine implements ExecutionEngine {
+    private static final StageOutcomeListener NO_LISTENER = new CuspExecutor.NoOpStageOutcomeListener();
+
+    private final Function<Cusp, CuspExecutor> executors;
+
+    public ParSeqExecutionEngine(Executor taskExecutor, ScheduledExecutorService timerScheduler) {
+        this(cusp -> new CuspExecutor(cusp, taskExecutor, timerScheduler));
+    }
+
+    /**
+     * @param executors creates and configures an executor for a pipeline
+     */
+    public ParSeqExecutionEngine(Function<Cusp, CuspExecutor> executors) {
+        this.executors = executors;
+    }
+
+    @Override
+    public <I, O> ExecutionPlan<I, O> compile(Cusp cusp, String initialStageName) {
+        Plan<I, O> plan = new Plan<>(cusp, initialStageName);
+        // builds a task graph once, so that a pipeline that cannot be constructed fails here rather than on execution
+        CuspExecutor executor = executors.apply(cusp);
+        executor.constructPipeline(initialStageName, null);
+        plan.idleExecutors.add(executor);
+        return plan;
+    }
+
+    private class Plan<I, O> implements ExecutionPlan<I, O> {
+        private final Cusp cusp;
+        private final String initialStageName;
+        private final Queue<CuspExecutor> idleExecutors = new ConcurrentLinkedQueue<>();
+
+        private Plan(Cusp cusp, String initialStageName) {
+            this.cusp = cusp;
+            this.initialStageName = initialStageName;
+        }
+
+        @Override
+        public CompletableFuture<O> execute(I input, StageOutcomeListener stageOutcomeListener) {
+            CuspExecutor executor = idleExecutors.poll();
+            if (executor == null) {
+                executor = executors.apply(cusp);
+            }
+            executor.useStageOutcomeListener(stageOutcomeListener != null ? stageOutcomeListener : NO_LISTENER);
+            executor.constructPipeline(initialStageName, input);
+
+            CuspExecutor runningExecutor = executor;
+            CompletableFuture<O> output = new CompletableFuture<>();
+            executor.<O>executeAsync().whenComplete((result, failure) -> {
+                // the executor is done with the execution once its future completes
+                idleExecutors.add(runningExecutor);
+                if (failure != null) {
+                    output.completeExceptionally(failure);
+                } else {
+                    output.complete(result);
+                }
+            });
+            return output;
+        }
+    }
+}
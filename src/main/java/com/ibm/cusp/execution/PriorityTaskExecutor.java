@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.execution;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed-size thread pool that runs queued tasks in priority order, highest first and first-in-first-out among equal
+ * priorities.
+ *
+ * When used as the task executor of a {@link CuspExecutor} that prioritizes its critical path (see
+ * {@link CuspExecutor#prioritizeCriticalPath(com.ibm.cusp.graph.analysis.StageLatencies)}), stage tasks are queued with
+ * their remaining critical-path length as priority, so that under saturation the stages that determine end-to-end
+ * latency run before stages with slack. Tasks submitted without a priority, such as the engine's own bookkeeping, run
+ * before any stage.
+ */
+public class PriorityTaskExecutor extends ThreadPoolExecutor {
+    public static final long DEFAULT_PRIORITY = Long.MAX_VALUE;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    public PriorityTaskExecutor(int threads) {
+        this(threads, new DaemonThreadFactory());
+    }
+
+    public PriorityTaskExecutor(int threads, ThreadFactory threadFactory) {
+        super(threads, threads, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(), threadFactory);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        execute(command, DEFAULT_PRIORITY);
+    }
+
+    /**
+     * Run {@code command} once no queued task has a higher priority.
+     * @param command
+     * @param priority higher runs first
+     */
+    public void execute(Runnable command, long priority) {
+        super.execute(command instanceof PrioritizedTask ? command : new PrioritizedTask(command, priority, sequence.getAndIncrement()));
+    }
+
+    private static final class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+        private final Runnable command;
+        private final long priority;
+        private final long sequence;
+
+        PrioritizedTask(Runnable command, long priority, long sequence) {
+            this.command = command;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            command.run();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            int byPriority = Long.compare(other.priority, priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "cusp-priority-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
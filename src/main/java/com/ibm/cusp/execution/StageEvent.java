@@ -0,0 +1,195 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.execution;
+
+import com.ibm.cusp.graph.stages.Stage;
+
+/**
+ * A record of one stage outcome within one pipeline execution, passed to a {@link StageEventListener}.
+ *
+ * Timestamps are {@link System#nanoTime()} values: a stage becomes ready when the output it consumes is available, starts
+ * when a worker thread picks it up, and ends when it returns or throws. Events are mutable and reused by the executor;
+ * use {@link #copy()} to keep one beyond the listener call.
+ */
+public final class StageEvent {
+    public enum Outcome {
+        SUCCESS,
+        /** The stage failed and no recovery stage handled the failure. */
+        FAILURE,
+        /** The stage failed and its failure was routed to {@link #getRecoveryStage()}. */
+        RECOVERY,
+        /** The execution was cancelled before the stage started, or while it ran. */
+        CANCELLED,
+        /** The execution's deadline passed before the stage finished, and its degraded output was used instead. */
+        DEGRADED
+    }
+
+    private long executionId;
+    private int stageIndex;
+    private Stage stage;
+    private Outcome outcome;
+    private int attempt;
+    private long readyNanos;
+    private long startNanos;
+    private long endNanos;
+    private long threadId;
+    private String threadName;
+    private Object output;
+    private Throwable throwable;
+    private Stage recoveryStage;
+
+    StageEvent set(long executionId, int stageIndex, Stage stage, Outcome outcome, int attempt,
+                   long readyNanos, long startNanos, long endNanos, long threadId, String threadName,
+                   Object output, Throwable throwable, Stage recoveryStage) {
+        this.executionId = executionId;
+        this.stageIndex = stageIndex;
+        this.stage = stage;
+        this.outcome = outcome;
+        this.attempt = attempt;
+        this.readyNanos = readyNanos;
+        this.startNanos = startNanos;
+        this.endNanos = endNanos;
+        this.threadId = threadId;
+        this.threadName = threadName;
+        this.output = output;
+        this.throwable = throwable;
+        this.recoveryStage = recoveryStage;
+        return this;
+    }
+
+    void clear() {
+        this.stage = null;
+        this.output = null;
+        this.throwable = null;
+        this.recoveryStage = null;
+        this.threadName = null;
+    }
+
+    /**
+     * @return a copy that is not reused by the executor
+     */
+    public StageEvent copy() {
+        return new StageEvent().set(executionId, stageIndex, stage, outcome, attempt, readyNanos, startNanos, endNanos,
+                threadId, threadName, output, throwable, recoveryStage);
+    }
+
+    /**
+     * @return identifier of the pipeline execution, unique within this JVM
+     */
+    public long getExecutionId() {
+        return executionId;
+    }
+
+    /**
+     * @return the stage's {@link com.ibm.cusp.graph.Cusp#getStageIndex index} in its pipeline
+     */
+    public int getStageIndex() {
+        return stageIndex;
+    }
+
+    public Stage getStage() {
+        return stage;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * @return how many times the stage has been started within this execution, starting at 1
+     */
+    public int getAttempt() {
+        return attempt;
+    }
+
+    public long getReadyNanos() {
+        return readyNanos;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public long getEndNanos() {
+        return endNanos;
+    }
+
+    /**
+     * @return time between the stage becoming ready and a worker thread starting it
+     */
+    public long getQueueWaitNanos() {
+        return startNanos - readyNanos;
+    }
+
+    /**
+     * @return time the stage spent executing
+     */
+    public long getRunNanos() {
+        return endNanos - startNanos;
+    }
+
+    /**
+     * @return time between the stage becoming ready and it ending
+     */
+    public long getTotalNanos() {
+        return endNanos - readyNanos;
+    }
+
+    /**
+     * @return id of the thread the stage ran on
+     */
+    public long getThreadId() {
+        return threadId;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    /**
+     * @return the stage's output, if it succeeded
+     */
+    public Object getOutput() {
+        return output;
+    }
+
+    /**
+     * @return what the stage threw, if it failed
+     */
+    public Throwable getThrowable() {
+        return throwable;
+    }
+
+    /**
+     * @return the stage recovering from this one's failure, if the outcome is {@link Outcome#RECOVERY}
+     */
+    public Stage getRecoveryStage() {
+        return recoveryStage;
+    }
+
+    @Override
+    public String toString() {
+        return "StageEvent{execution=" + executionId + ", stage=" + (stage == null ? null : stage.name()) + "#" + stageIndex
+                + ", outcome=" + outcome + ", attempt=" + attempt + ", queueWaitNanos=" + getQueueWaitNanos()
+                + ", runNanos=" + getRunNanos() + ", thread=" + threadName + "}";
+    }
+}
@@ -77,4 +77,32 @@ public interface StageOutcomeListener {
      * @param elapsedMs time in milliseconds that elapsed during execution of the stage until the pipeline processed the failure
      */
     void recover(Stage currentStage, Stage recoverStage, Throwable throwable, long elapsedMs);
+
+    /**
+     * When an execution is cancelled with a {@link Cancellation}, its stages that had not started are skipped, and
+     * those that were running may stop early.
+     *
+     * This method will be called on the provided listener for each of those stages, instead of {@link #failure}, and
+     * no recovery stage is run for them. It does nothing unless overridden.
+     *
+     * @param cancelledStage the stage that was skipped or stopped
+     * @param throwable the {@link com.ibm.cusp.graph.errors.ExecutionCancelledException} describing the cancellation
+     * @param elapsedMs time in milliseconds that the stage ran before it stopped, or 0 if it never started
+     */
+    default void cancelled(Stage cancelledStage, Throwable throwable, long elapsedMs) {
+    }
+
+    /**
+     * When an executor has a deadline, a {@link com.ibm.cusp.graph.stages.Degradable} stage that has not finished by
+     * the deadline is replaced by its degraded output.
+     *
+     * This method will be called on the provided listener in this case. If the stage was running, it may still
+     * report its success later. It does nothing unless overridden.
+     *
+     * @param degradedStage the stage whose degraded output was used
+     * @param degradedOutput the output the pipeline continued with
+     * @param elapsedMs time in milliseconds between the stage becoming ready and it being degraded
+     */
+    default void degraded(Stage degradedStage, Object degradedOutput, long elapsedMs) {
+    }
 }
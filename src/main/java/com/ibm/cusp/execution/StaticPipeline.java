@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.execution;
+
+import com.ibm.cusp.graph.Cusp;
+import com.ibm.cusp.graph.errors.StageFailedException;
+import com.ibm.cusp.graph.stages.CustomOutcome;
+import com.ibm.cusp.graph.stages.EarlyExit;
+import com.ibm.cusp.graph.stages.StageFailure;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pipeline compiled for a fixed topology into a tree of steps that call the stages directly on the calling thread,
+ * with every route resolved when it is compiled. An execution creates no ParSeq tasks or per-execution state, and the
+ * compiled pipeline can be executed by any number of threads at once.
+ *
+ * Stages are routed as by a {@link CuspExecutor}, including recovery stages, {@link CustomOutcome custom outcomes},
+ * {@link EarlyExit early exits} and returned {@link StageFailure}s, and the {@link StageOutcomeListener} is told of
+ * the same outcomes. Concurrent leaf stages run one after another before the stage they were started alongside, so
+ * this suits pipelines of short, CPU-bound stages, whose cost is dominated by a task graph's own overhead. Deadlines,
+ * cancellation, metrics, tracing and prioritization are only available on a {@link CuspExecutor}.
+ *
+ * @param <I> input of the initial stage
+ * @param <O> output of the pipeline
+ */
+public class StaticPipeline<I, O> {
+    private final CompiledStage initialStage;
+    private StageOutcomeListener stageOutcomeListener;
+
+    private StaticPipeline(CompiledStage initialStage) {
+        this.initialStage = initialStage;
+    }
+
+    /**
+     * Compile the pipeline starting at {@code initialStageName}. Stages and routes added to {@code cusp} afterwards are
+     * not seen by the compiled pipeline.
+     *
+     * @param cusp
+     * @param initialStageName
+     * @return
+     * @throws com.ibm.cusp.graph.errors.CuspConstructionError if the graph is invalid or a stage's output is used by
+     * more than one non-terminal stage
+     */
+    public static <I, O> StaticPipeline<I, O> compile(Cusp cusp, String initialStageName) {
+        return new StaticPipeline<>(CompiledStage.compile(cusp, initialStageName));
+    }
+
+    public StaticPipeline<I, O> useStageOutcomeListener(StageOutcomeListener stageOutcomeListener) {
+        this.stageOutcomeListener = stageOutcomeListener;
+        return this;
+    }
+
+    /**
+     * Run the pipeline on the calling thread.
+     * @param input
+     * @return the output of the pipeline
+     * @throws StageFailedException if a stage without a recovery stage failed
+     */
+    @SuppressWarnings("unchecked")
+    public O execute(I input) throws StageFailedException {
+        Object output = run(initialStage, input, stageOutcomeListener);
+        return (O) (output instanceof EarlyExit ? ((EarlyExit) output).getResult() : output);
+    }
+
+    /**
+     * Run a stage and the stages it leads to; the main path is followed in a loop, and recovery stages, leaves and
+     * custom routes recursively.
+     * @return the output of the last stage, or an {@link EarlyExit}
+     */
+    private static Object run(CompiledStage stage, Object input, StageOutcomeListener listener) throws StageFailedException {
+        while (true) {
+            long startNanos = listener == null ? 0 : System.nanoTime();
+            Object output = null;
+            Exception failure = null;
+            try {
+                output = stage.invoke(input);
+            } catch (Exception e) {
+                failure = e;
+            }
+
+            if (failure != null) {
+                if (stage.recovery == null) {
+                    if (listener != null) {
+                        listener.failure(stage.stage, failure, elapsedMs(startNanos));
+                    }
+                    throw StageFailedException.stackless(stage.stage.name(), failure);
+                }
+                if (listener != null) {
+                    listener.recover(stage.stage, stage.recovery.stage, failure, elapsedMs(startNanos));
+                }
+                output = run(stage.recovery, input, listener);
+                if (output instanceof EarlyExit) {
+                    return output;
+                }
+            } else {
+                if (listener != null) {
+                    listener.success(stage.stage, output, elapsedMs(startNanos));
+                }
+                if (output instanceof EarlyExit) {
+                    return output;
+                }
+                if (output instanceof CustomOutcome.Emission) {
+                    CustomOutcome.Emission emission = (CustomOutcome.Emission) output;
+                    return run(stage.route(emission), emission.getValue(), listener);
+                }
+            }
+
+            for (CompiledStage leaf : stage.leaves) {
+                run(leaf, output, listener);
+            }
+            if (stage.next == null) {
+                return output;
+            }
+            input = output;
+            stage = stage.next;
+        }
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.execution;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Reads the current thread's CPU time and allocated bytes from the {@link ThreadMXBean}, where the JVM supports them.
+ * Allocated bytes need HotSpot's {@code com.sun.management.ThreadMXBean}; unsupported measurements read as -1.
+ */
+class ThreadResources {
+    private static final Logger logger = LoggerFactory.getLogger(ThreadResources.class);
+
+    static final long UNMEASURED = -1;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME = enableCpuTime();
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS = enableAllocations();
+
+    private ThreadResources() { }
+
+    static long currentThreadCpuNanos() {
+        return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : UNMEASURED;
+    }
+
+    static long currentThreadAllocatedBytes() {
+        return ALLOCATIONS != null ? ALLOCATIONS.getThreadAllocatedBytes(Thread.currentThread().getId()) : UNMEASURED;
+    }
+
+    private static boolean enableCpuTime() {
+        try {
+            if (THREADS.isCurrentThreadCpuTimeSupported()) {
+                if (!THREADS.isThreadCpuTimeEnabled()) {
+                    THREADS.setThreadCpuTimeEnabled(true);
+                }
+                return true;
+            }
+        } catch (UnsupportedOperationException | SecurityException e) {
+            logger.debug("Thread CPU time cannot be enabled", e);
+        }
+        logger.info("Thread CPU time is not supported; stage CPU time will not be measured");
+        return false;
+    }
+
+    private static com.sun.management.ThreadMXBean enableAllocations() {
+        try {
+            if (THREADS instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+                if (threads.isThreadAllocatedMemorySupported()) {
+                    if (!threads.isThreadAllocatedMemoryEnabled()) {
+                        threads.setThreadAllocatedMemoryEnabled(true);
+                    }
+                    return threads;
+                }
+            }
+        } catch (UnsupportedOperationException | SecurityException | NoClassDefFoundError e) {
+            logger.debug("Thread allocation accounting cannot be enabled", e);
+        }
+        logger.info("Thread allocation accounting is not supported; stage allocations will not be measured");
+        return null;
+    }
+}
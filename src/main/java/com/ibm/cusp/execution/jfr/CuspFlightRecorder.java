@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.execution.jfr;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * Emits CUSP's JDK Flight Recorder events: stage executions, queue waits, recoveries and pipeline executions, all
+ * carrying the stage or pipeline name and the execution id, so that stages appear on the same timeline as GC, lock
+ * and I/O events.
+ *
+ * On JVMs without Flight Recorder this does nothing. When no recording has the events enabled, each call only checks
+ * the event type's enabled flag and allocates nothing.
+ */
+public abstract class CuspFlightRecorder {
+    private static final CuspFlightRecorder NO_OP = new CuspFlightRecorder() { };
+
+    private static final CuspFlightRecorder INSTANCE = create();
+
+    public static CuspFlightRecorder get() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return a token for {@link #endStage}, or {@code null} when the event is not recorded
+     */
+    public Object beginStage() {
+        return null;
+    }
+
+    public void endStage(Object token, String stageName, long executionId, int stageIndex, int attempt, boolean failed) { }
+
+    public void queueWait(String stageName, long executionId, long queueWaitNanos) { }
+
+    public void recovery(String stageName, String recoveryStageName, long executionId, Throwable cause) { }
+
+    /**
+     * @return a token for {@link #endPipeline}, or {@code null} when the event is not recorded
+     */
+    public Object beginPipeline() {
+        return null;
+    }
+
+    public void endPipeline(Object token, String pipelineName, long executionId, boolean failed) { }
+
+    private static CuspFlightRecorder create() {
+        try {
+            Class.forName("jdk.jfr.FlightRecorder");
+            return new JfrFlightRecorder();
+        } catch (ClassNotFoundException | LinkageError e) {
+            LoggerFactory.getLogger(CuspFlightRecorder.class).debug("Flight Recorder is not available; CUSP will not emit JFR events");
+            return NO_OP;
+        }
+    }
+}
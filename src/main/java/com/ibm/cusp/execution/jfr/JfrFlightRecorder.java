@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.execution.jfr;
+
+import jdk.jfr.EventType;
+
+class JfrFlightRecorder extends CuspFlightRecorder {
+    private final EventType stageExecution = EventType.getEventType(StageExecutionEvent.class);
+    private final EventType stageQueueWait = EventType.getEventType(StageQueueWaitEvent.class);
+    private final EventType stageRecovery = EventType.getEventType(StageRecoveryEvent.class);
+    private final EventType pipelineExecution = EventType.getEventType(PipelineExecutionEvent.class);
+
+    @Override
+    public Object beginStage() {
+        if (!stageExecution.isEnabled()) {
+            return null;
+        }
+
+        StageExecutionEvent event = new StageExecutionEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endStage(Object token, String stageName, long executionId, int stageIndex, int attempt, boolean failed) {
+        if (token == null) {
+            return;
+        }
+
+        StageExecutionEvent event = (StageExecutionEvent) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.stageName = stageName;
+            event.executionId = executionId;
+            event.stageIndex = stageIndex;
+            event.attempt = attempt;
+            event.outcome = failed ? "FAILURE" : "SUCCESS";
+            event.commit();
+        }
+    }
+
+    @Override
+    public void queueWait(String stageName, long executionId, long queueWaitNanos) {
+        if (!stageQueueWait.isEnabled()) {
+            return;
+        }
+
+        StageQueueWaitEvent event = new StageQueueWaitEvent();
+        if (event.shouldCommit()) {
+            event.stageName = stageName;
+            event.executionId = executionId;
+            event.queueWait = queueWaitNanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void recovery(String stageName, String recoveryStageName, long executionId, Throwable cause) {
+        if (!stageRecovery.isEnabled()) {
+            return;
+        }
+
+        StageRecoveryEvent event = new StageRecoveryEvent();
+        if (event.shouldCommit()) {
+            event.stageName = stageName;
+            event.recoveryStageName = recoveryStageName;
+            event.executionId = executionId;
+            event.cause = cause == null ? null : cause.getClass().getName();
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object beginPipeline() {
+        if (!pipelineExecution.isEnabled()) {
+            return null;
+        }
+
+        PipelineExecutionEvent event = new PipelineExecutionEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endPipeline(Object token, String pipelineName, long executionId, boolean failed) {
+        if (token == null) {
+            return;
+        }
+
+        PipelineExecutionEvent event = (PipelineExecutionEvent) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.pipelineName = pipelineName;
+            event.executionId = executionId;
+            event.outcome = failed ? "FAILURE" : "SUCCESS";
+            event.commit();
+        }
+    }
+}
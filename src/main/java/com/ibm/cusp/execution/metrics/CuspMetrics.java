@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.execution.metrics;
+
+import com.ibm.cusp.graph.stages.CustomOutcome;
+import com.ibm.cusp.graph.stages.StageOutcomes;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of per-stage and end-to-end metrics, recorded by a {@link com.ibm.cusp.execution.CuspExecutor} given this
+ * registry through {@link com.ibm.cusp.execution.CuspExecutor#useMetrics(CuspMetrics)}. One registry may be shared by
+ * any number of executors. End-to-end metrics are kept per pipeline, identified by its initial stage.
+ */
+public class CuspMetrics {
+    private final Map<String, StageMetrics> stages = new ConcurrentHashMap<>();
+    private final Map<String, StageMetrics> pipelines = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> routes = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> inFlight = new ConcurrentHashMap<>();
+
+    public StageMetrics stage(String stageName) {
+        return stages.computeIfAbsent(stageName, StageMetrics::new);
+    }
+
+    public StageMetrics pipeline(String initialStageName) {
+        return pipelines.computeIfAbsent(initialStageName, StageMetrics::new);
+    }
+
+    /**
+     * @return the counter of how many times the route was taken; resolve it once and increment it while executing
+     */
+    public LongAdder route(String fromStageName, StageOutcomes outcome, String toStageName) {
+        return routes.computeIfAbsent(routeName(fromStageName, outcome, toStageName), name -> new LongAdder());
+    }
+
+    /**
+     * @return the counter of how many times a custom outcome was routed
+     */
+    public LongAdder route(String fromStageName, CustomOutcome<?> outcome, String toStageName) {
+        return routes.computeIfAbsent(routeName(fromStageName, outcome, toStageName), name -> new LongAdder());
+    }
+
+    /**
+     * @return the number of executions of the pipeline currently running; incremented when an execution starts and
+     * decremented when it completes
+     */
+    public LongAdder inFlight(String initialStageName) {
+        return inFlight.computeIfAbsent(initialStageName, name -> new LongAdder());
+    }
+
+    public MetricsSnapshot snapshot() {
+        return new MetricsSnapshot(snapshot(stages), snapshot(pipelines), routes, inFlight);
+    }
+
+    static String routeName(String fromStageName, Object outcome, String toStageName) {
+        return fromStageName + " -[" + outcome + "]-> " + toStageName;
+    }
+
+    private static Map<String, StageMetricsSnapshot> snapshot(Map<String, StageMetrics> metrics) {
+        Map<String, StageMetricsSnapshot> snapshots = new TreeMap<>();
+        metrics.forEach((name, stageMetrics) -> snapshots.put(name, stageMetrics.snapshot()));
+        return snapshots;
+    }
+}
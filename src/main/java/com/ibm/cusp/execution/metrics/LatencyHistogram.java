@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.execution.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with microsecond resolution and bounded relative error, in the style of HdrHistogram:
+ * values below {@value #SUB_BUCKET_COUNT}us are counted exactly, and each power of two above that is split into
+ * {@value #SUB_BUCKET_HALF_COUNT} linear sub-buckets, so any recorded value is reported within 1/64 (about 1.6%) of
+ * its true value. Values beyond about 19 hours are counted as the largest trackable value.
+ *
+ * Recording is a few arithmetic operations and an atomic increment, with no allocation or locking.
+ */
+public class LatencyHistogram {
+    static final int SUB_BUCKET_BITS = 7;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT >> 1;
+    static final int MAX_VALUE_BITS = 36;
+    static final long MAX_VALUE_MICROS = (1L << MAX_VALUE_BITS) - 1;
+    static final int BUCKET_COUNT = (MAX_VALUE_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+    public void recordNanos(long elapsedNanos) {
+        recordMicros(TimeUnit.NANOSECONDS.toMicros(elapsedNanos));
+    }
+
+    public void recordMicros(long elapsedMicros) {
+        long value = Math.min(Math.max(elapsedMicros, 0), MAX_VALUE_MICROS);
+        counts.incrementAndGet(indexOf(value));
+        totalMicros.add(value);
+        maxMicros.accumulate(value);
+    }
+
+    public LatencySnapshot snapshot() {
+        long[] snapshotCounts = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshotCounts[i] = counts.get(i);
+            count += snapshotCounts[i];
+        }
+        return new LatencySnapshot(snapshotCounts, count, totalMicros.sum(), maxMicros.get());
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalMicros.reset();
+        maxMicros.reset();
+    }
+
+    static int indexOf(long valueMicros) {
+        int bucket = 64 - Long.numberOfLeadingZeros(valueMicros | (SUB_BUCKET_COUNT - 1)) - SUB_BUCKET_BITS;
+        int subBucket = (int) (valueMicros >>> bucket);
+        return bucket * SUB_BUCKET_HALF_COUNT + subBucket;
+    }
+
+    /**
+     * @return the largest value counted in the bucket at {@code index}
+     */
+    static long highestValueAt(int index) {
+        int bucket = index < SUB_BUCKET_COUNT ? 0 : (index >> (SUB_BUCKET_BITS - 1)) - 1;
+        long subBucket = index - bucket * SUB_BUCKET_HALF_COUNT;
+        return (subBucket << bucket) + (1L << bucket) - 1;
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.execution.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * An embedded HTTP endpoint, built on the JDK's {@code com.sun.net.httpserver}, serving a {@link CuspMetrics} registry
+ * in the Prometheus text format at {@code /metrics} and the state of registered health checks at {@code /health}.
+ *
+ * Besides the registry, {@code /metrics} reports the utilization and queue depth of monitored thread pools and any
+ * registered gauges, e.g. the state of a circuit breaker or rate limiter guarding a stage. {@code /health} answers
+ * 200 when every health check passes and 503 otherwise, listing each check.
+ *
+ * Requests are handled on a single daemon thread, so a running server does not keep the JVM alive.
+ */
+public class MetricsHttpServer implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsHttpServer.class);
+    private static final Pattern METRIC_NAME = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+
+    private final CuspMetrics metrics;
+    private final Map<String, ThreadPoolExecutor> executors = new ConcurrentHashMap<>();
+    private final Map<String, PrometheusFormat.Gauge> gauges = new ConcurrentHashMap<>();
+    private final Map<String, BooleanSupplier> healthChecks = new ConcurrentHashMap<>();
+    private HttpServer server;
+    private ExecutorService handler;
+
+    public MetricsHttpServer(CuspMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Report the pool's active threads, size, utilization, queue depth and completed tasks, labelled with {@code name}.
+     * @param name
+     * @param executor
+     */
+    public MetricsHttpServer monitorExecutor(String name, ThreadPoolExecutor executor) {
+        executors.put(name, executor);
+        return this;
+    }
+
+    /**
+     * Report the value of {@code value} whenever metrics are scraped.
+     * @param name a Prometheus metric name
+     * @param help
+     * @param value
+     */
+    public MetricsHttpServer gauge(String name, String help, DoubleSupplier value) {
+        if (!METRIC_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Not a valid metric name: " + name);
+        }
+        gauges.put(name, new PrometheusFormat.Gauge(help, value));
+        return this;
+    }
+
+    public MetricsHttpServer healthCheck(String name, BooleanSupplier healthy) {
+        healthChecks.put(name, healthy);
+        return this;
+    }
+
+    public synchronized MetricsHttpServer start(int port) throws IOException {
+        return start(new InetSocketAddress(port));
+    }
+
+    public synchronized MetricsHttpServer start(InetSocketAddress address) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Already serving on port " + getPort());
+        }
+
+        HttpServer server = HttpServer.create(address, 0);
+        server.createContext("/metrics", exchange -> respond(exchange, 200, PrometheusFormat.CONTENT_TYPE, scrape()));
+        server.createContext("/health", this::health);
+        handler = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cusp-metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(handler);
+        server.start();
+        this.server = server;
+        logger.info("Serving metrics on {}", server.getAddress());
+        return this;
+    }
+
+    /**
+     * @return the port being served, which is the one chosen by the system when started on port 0
+     */
+    public synchronized int getPort() {
+        if (server == null) {
+            throw new IllegalStateException("Not started");
+        }
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return the metrics as they would be served at {@code /metrics}
+     */
+    public String scrape() {
+        return PrometheusFormat.toText(metrics.snapshot(), new TreeMap<>(executors), new TreeMap<>(gauges));
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(0);
+            handler.shutdown();
+            server = null;
+        }
+    }
+
+    private void health(HttpExchange exchange) throws IOException {
+        StringBuilder body = new StringBuilder();
+        boolean healthy = true;
+        for (Map.Entry<String, BooleanSupplier> check : new TreeMap<>(healthChecks).entrySet()) {
+            boolean passed;
+            try {
+                passed = check.getValue().getAsBoolean();
+            } catch (RuntimeException e) {
+                logger.warn("Health check {} failed", check.getKey(), e);
+                passed = false;
+            }
+            healthy &= passed;
+            body.append(check.getKey()).append(": ").append(passed ? "UP" : "DOWN").append('\n');
+        }
+        respond(exchange, healthy ? 200 : 503, "text/plain; charset=utf-8", (healthy ? "UP" : "DOWN") + "\n" + body);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        try {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(status, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.execution.metrics;
+
+import com.ibm.cusp.graph.stages.CustomOutcome;
+import com.ibm.cusp.graph.stages.StageOutcomes;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class MetricsSnapshot {
+    private final Map<String, StageMetricsSnapshot> stages;
+    private final Map<String, StageMetricsSnapshot> pipelines;
+    private final Map<String, Long> routes = new TreeMap<>();
+    private final Map<String, Long> inFlight = new TreeMap<>();
+
+    MetricsSnapshot(Map<String, StageMetricsSnapshot> stages, Map<String, StageMetricsSnapshot> pipelines,
+                    Map<String, LongAdder> routes, Map<String, LongAdder> inFlight) {
+        this.stages = Collections.unmodifiableMap(stages);
+        this.pipelines = Collections.unmodifiableMap(pipelines);
+        routes.forEach((name, count) -> this.routes.put(name, count.sum()));
+        inFlight.forEach((name, count) -> this.inFlight.put(name, count.sum()));
+    }
+
+    /**
+     * @return snapshots by stage name
+     */
+    public Map<String, StageMetricsSnapshot> getStages() {
+        return stages;
+    }
+
+    public StageMetricsSnapshot getStage(String stageName) {
+        return stages.get(stageName);
+    }
+
+    /**
+     * @return end-to-end snapshots by the initial stage of the pipeline
+     */
+    public Map<String, StageMetricsSnapshot> getPipelines() {
+        return pipelines;
+    }
+
+    public StageMetricsSnapshot getPipeline(String initialStageName) {
+        return pipelines.get(initialStageName);
+    }
+
+    /**
+     * @return how many times each route was taken, by a description of the route
+     */
+    public Map<String, Long> getRoutes() {
+        return Collections.unmodifiableMap(routes);
+    }
+
+    public long getRouteCount(String fromStageName, StageOutcomes outcome, String toStageName) {
+        return routes.getOrDefault(CuspMetrics.routeName(fromStageName, outcome, toStageName), 0L);
+    }
+
+    public long getRouteCount(String fromStageName, CustomOutcome<?> outcome, String toStageName) {
+        return routes.getOrDefault(CuspMetrics.routeName(fromStageName, outcome, toStageName), 0L);
+    }
+
+    /**
+     * @return how many executions were running, by the initial stage of the pipeline
+     */
+    public Map<String, Long> getInFlight() {
+        return Collections.unmodifiableMap(inFlight);
+    }
+
+    public long getInFlight(String initialStageName) {
+        return inFlight.getOrDefault(initialStageName, 0L);
+    }
+
+    public String describe() {
+        StringBuilder description = new StringBuilder();
+        pipelines.values().forEach(pipeline -> description.append("pipeline ").append(pipeline)
+                .append(" in flight=").append(getInFlight(pipeline.getName())).append('\n'));
+        stages.values().forEach(stage -> description.append("stage ").append(stage).append('\n'));
+        routes.forEach((route, count) -> description.append("route ").append(route).append(": ").append(count).append('\n'));
+        return description.toString();
+    }
+}
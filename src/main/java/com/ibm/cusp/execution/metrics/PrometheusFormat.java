@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.execution.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Writes a {@link MetricsSnapshot} in the Prometheus text exposition format.
+ *
+ * Stage, queue wait, CPU and pipeline latencies are summaries in seconds with quantile, count and sum samples; outcome
+ * and route counts are counters; executor pools, in-flight executions and registered gauges are gauges.
+ *
+ * @see <a href="https://prometheus.io/docs/instrumenting/exposition_formats/">Exposition formats</a>
+ */
+final class PrometheusFormat {
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private PrometheusFormat() { }
+
+    static String toText(MetricsSnapshot snapshot, Map<String, ThreadPoolExecutor> executors, Map<String, Gauge> gauges) {
+        StringBuilder text = new StringBuilder();
+
+        header(text, "cusp_stage_run_seconds", "summary", "Time stages spent executing");
+        snapshot.getStages().forEach((name, stage) -> summary(text, "cusp_stage_run_seconds", "stage", name, stage.getLatency()));
+        header(text, "cusp_stage_queue_wait_seconds", "summary", "Time stages waited between becoming ready and starting");
+        snapshot.getStages().forEach((name, stage) -> summary(text, "cusp_stage_queue_wait_seconds", "stage", name, stage.getQueueWait()));
+        header(text, "cusp_stage_cpu_seconds", "summary", "Thread CPU time stages used, when resource accounting is enabled");
+        snapshot.getStages().forEach((name, stage) -> summary(text, "cusp_stage_cpu_seconds", "stage", name, stage.getCpuTime()));
+        header(text, "cusp_stage_allocated_bytes_total", "counter", "Bytes stages allocated, when resource accounting is enabled");
+        snapshot.getStages().forEach((name, stage) -> sample(text, "cusp_stage_allocated_bytes_total", "stage", name, stage.getAllocatedBytes()));
+        header(text, "cusp_stage_outcomes_total", "counter", "Stage executions by outcome");
+        snapshot.getStages().forEach((name, stage) -> outcomes(text, "cusp_stage_outcomes_total", "stage", name, stage));
+
+        header(text, "cusp_pipeline_seconds", "summary", "End-to-end execution time of pipelines, by initial stage");
+        snapshot.getPipelines().forEach((name, pipeline) -> summary(text, "cusp_pipeline_seconds", "pipeline", name, pipeline.getLatency()));
+        header(text, "cusp_pipeline_outcomes_total", "counter", "Pipeline executions by outcome");
+        snapshot.getPipelines().forEach((name, pipeline) -> outcomes(text, "cusp_pipeline_outcomes_total", "pipeline", name, pipeline));
+        header(text, "cusp_pipeline_in_flight", "gauge", "Pipeline executions currently running");
+        snapshot.getInFlight().forEach((name, count) -> sample(text, "cusp_pipeline_in_flight", "pipeline", name, count));
+
+        header(text, "cusp_route_taken_total", "counter", "Times each route between stages was taken");
+        snapshot.getRoutes().forEach((route, count) -> sample(text, "cusp_route_taken_total", "route", route, count));
+
+        if (!executors.isEmpty()) {
+            header(text, "cusp_executor_active_threads", "gauge", "Threads executing tasks");
+            executors.forEach((name, pool) -> sample(text, "cusp_executor_active_threads", "executor", name, pool.getActiveCount()));
+            header(text, "cusp_executor_pool_size", "gauge", "Threads in the pool");
+            executors.forEach((name, pool) -> sample(text, "cusp_executor_pool_size", "executor", name, pool.getPoolSize()));
+            header(text, "cusp_executor_max_pool_size", "gauge", "Maximum threads in the pool");
+            executors.forEach((name, pool) -> sample(text, "cusp_executor_max_pool_size", "executor", name, pool.getMaximumPoolSize()));
+            header(text, "cusp_executor_utilization", "gauge", "Active threads as a fraction of the maximum pool size");
+            executors.forEach((name, pool) -> sample(text, "cusp_executor_utilization", "executor", name,
+                    (double) pool.getActiveCount() / Math.max(1, pool.getMaximumPoolSize())));
+            header(text, "cusp_executor_queue_depth", "gauge", "Tasks waiting in the pool's queue");
+            executors.forEach((name, pool) -> sample(text, "cusp_executor_queue_depth", "executor", name, pool.getQueue().size()));
+            header(text, "cusp_executor_completed_tasks_total", "counter", "Tasks the pool completed");
+            executors.forEach((name, pool) -> sample(text, "cusp_executor_completed_tasks_total", "executor", name, pool.getCompletedTaskCount()));
+        }
+
+        gauges.forEach((name, gauge) -> {
+            header(text, name, "gauge", gauge.help);
+            sample(text, name, null, null, gauge.value.getAsDouble());
+        });
+
+        return text.toString();
+    }
+
+    static final class Gauge {
+        final String help;
+        final DoubleSupplier value;
+
+        Gauge(String help, DoubleSupplier value) {
+            this.help = help;
+            this.value = value;
+        }
+    }
+
+    private static void header(StringBuilder text, String metric, String type, String help) {
+        text.append("# HELP ").append(metric).append(' ').append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+        text.append("# TYPE ").append(metric).append(' ').append(type).append('\n');
+    }
+
+    private static void summary(StringBuilder text, String metric, String labelName, String labelValue, LatencySnapshot latency) {
+        if (latency.getCount() == 0) {
+            return;
+        }
+
+        for (double quantile : QUANTILES) {
+            text.append(metric).append('{').append(labelName).append("=\"").append(escape(labelValue))
+                    .append("\",quantile=\"").append(quantile).append("\"} ")
+                    .append(latency.getPercentileNanos(quantile * 100) / NANOS_PER_SECOND).append('\n');
+        }
+        sample(text, metric + "_sum", labelName, labelValue, latency.getTotalNanos() / NANOS_PER_SECOND);
+        sample(text, metric + "_count", labelName, labelValue, latency.getCount());
+    }
+
+    private static void outcomes(StringBuilder text, String metric, String labelName, String labelValue, StageMetricsSnapshot metrics) {
+        String labels = labelName + "=\"" + escape(labelValue) + "\",outcome=";
+        text.append(metric).append('{').append(labels).append("\"success\"} ").append(metrics.getSuccesses()).append('\n');
+        text.append(metric).append('{').append(labels).append("\"failure\"} ").append(metrics.getFailures()).append('\n');
+        text.append(metric).append('{').append(labels).append("\"recovery\"} ").append(metrics.getRecoveries()).append('\n');
+    }
+
+    private static void sample(StringBuilder text, String metric, String labelName, String labelValue, long value) {
+        labels(text.append(metric), labelName, labelValue).append(' ').append(value).append('\n');
+    }
+
+    private static void sample(StringBuilder text, String metric, String labelName, String labelValue, double value) {
+        labels(text.append(metric), labelName, labelValue).append(' ');
+        if (Double.isNaN(value)) {
+            text.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            text.append(value > 0 ? "+Inf" : "-Inf");
+        } else {
+            text.append(value);
+        }
+        text.append('\n');
+    }
+
+    private static StringBuilder labels(StringBuilder text, String labelName, String labelValue) {
+        if (labelName == null) {
+            return text;
+        }
+        return text.append('{').append(labelName).append("=\"").append(escape(labelValue)).append("\"}");
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
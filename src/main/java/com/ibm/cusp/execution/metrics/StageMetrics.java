@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.execution.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcome counts and latencies of one stage, or of whole executions of a pipeline.
+ *
+ * A stage's latency is the time it spent executing. Stage executions also record how long the stage waited between
+ * becoming ready and starting, i.e. in the task executor's queue and in ParSeq's plan, and the sum of the two; when
+ * latency tails grow, these separate a slower stage from a saturated pool.
+ *
+ * With resource accounting enabled, stage executions also record the thread CPU time and the bytes they allocated.
+ */
+public class StageMetrics {
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder recoveries = new LongAdder();
+    private final LatencyHistogram cpuTime = new LatencyHistogram();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder allocationCount = new LongAdder();
+
+    StageMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void recordSuccess(long elapsedNanos) {
+        successes.increment();
+        latency.recordNanos(elapsedNanos);
+    }
+
+    public void recordSuccess(long queueWaitNanos, long runNanos) {
+        recordSuccess(runNanos);
+        recordQueueWait(queueWaitNanos, runNanos);
+    }
+
+    public void recordFailure(long elapsedNanos) {
+        failures.increment();
+        latency.recordNanos(elapsedNanos);
+    }
+
+    public void recordFailure(long queueWaitNanos, long runNanos) {
+        recordFailure(runNanos);
+        recordQueueWait(queueWaitNanos, runNanos);
+    }
+
+    /**
+     * Record a failure that was handled by a recovery stage.
+     * @param elapsedNanos
+     */
+    public void recordRecovery(long elapsedNanos) {
+        recoveries.increment();
+        latency.recordNanos(elapsedNanos);
+    }
+
+    public void recordRecovery(long queueWaitNanos, long runNanos) {
+        recordRecovery(runNanos);
+        recordQueueWait(queueWaitNanos, runNanos);
+    }
+
+    /**
+     * Record the thread CPU time and bytes allocated by one execution of the stage; negative values were not measured
+     * and are ignored.
+     * @param cpuNanos
+     * @param allocatedBytes
+     */
+    public void recordResources(long cpuNanos, long allocatedBytes) {
+        if (cpuNanos >= 0) {
+            cpuTime.recordNanos(cpuNanos);
+        }
+        if (allocatedBytes >= 0) {
+            this.allocatedBytes.add(allocatedBytes);
+            allocationCount.increment();
+        }
+    }
+
+    public StageMetricsSnapshot snapshot() {
+        return new StageMetricsSnapshot(name, successes.sum(), failures.sum(), recoveries.sum(), latency.snapshot(),
+                queueWait.snapshot(), total.snapshot(), cpuTime.snapshot(), allocatedBytes.sum(), allocationCount.sum());
+    }
+
+    private void recordQueueWait(long queueWaitNanos, long runNanos) {
+        queueWait.recordNanos(queueWaitNanos);
+        total.recordNanos(queueWaitNanos + runNanos);
+    }
+}
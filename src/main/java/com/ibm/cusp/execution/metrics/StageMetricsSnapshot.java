@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.execution.metrics;
+
+public class StageMetricsSnapshot {
+    private final String name;
+    private final long successes;
+    private final long failures;
+    private final long recoveries;
+    private final LatencySnapshot latency;
+    private final LatencySnapshot queueWait;
+    private final LatencySnapshot total;
+    private final LatencySnapshot cpuTime;
+    private final long allocatedBytes;
+    private final long allocationCount;
+
+    StageMetricsSnapshot(String name, long successes, long failures, long recoveries, LatencySnapshot latency,
+                         LatencySnapshot queueWait, LatencySnapshot total, LatencySnapshot cpuTime, long allocatedBytes,
+                         long allocationCount) {
+        this.name = name;
+        this.successes = successes;
+        this.failures = failures;
+        this.recoveries = recoveries;
+        this.latency = latency;
+        this.queueWait = queueWait;
+        this.total = total;
+        this.cpuTime = cpuTime;
+        this.allocatedBytes = allocatedBytes;
+        this.allocationCount = allocationCount;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getSuccesses() {
+        return successes;
+    }
+
+    /**
+     * @return failures that were not recovered from
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return failures that were handled by a recovery stage
+     */
+    public long getRecoveries() {
+        return recoveries;
+    }
+
+    /**
+     * @return time spent executing
+     */
+    public LatencySnapshot getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return time between becoming ready and starting to execute; empty for pipelines
+     */
+    public LatencySnapshot getQueueWait() {
+        return queueWait;
+    }
+
+    /**
+     * @return time between becoming ready and finishing executing; empty for pipelines
+     */
+    public LatencySnapshot getTotal() {
+        return total;
+    }
+
+    /**
+     * @return thread CPU time spent executing; empty unless resource accounting is enabled
+     */
+    public LatencySnapshot getCpuTime() {
+        return cpuTime;
+    }
+
+    /**
+     * @return bytes allocated by all measured executions
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * @return executions whose allocations were measured
+     */
+    public long getAllocationCount() {
+        return allocationCount;
+    }
+
+    public double getMeanAllocatedBytes() {
+        return allocationCount == 0 ? 0 : (double) allocatedBytes / allocationCount;
+    }
+
+    @Override
+    public String toString() {
+        String description = name + ": successes=" + successes + " failures=" + failures + " recoveries=" + recoveries + " run " + latency;
+        if (queueWait.getCount() != 0) {
+            description += " queue wait " + queueWait + " total " + total;
+        }
+        if (cpuTime.getCount() != 0) {
+            description += " cpu " + cpuTime;
+        }
+        if (allocationCount != 0) {
+            description += String.format(" allocated mean=%.0fB", getMeanAllocatedBytes());
+        }
+        return description;
+    }
+}
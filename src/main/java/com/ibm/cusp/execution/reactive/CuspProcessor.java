@@ -0,0 +1,288 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.execution.reactive;
+
+import com.ibm.cusp.execution.Cancellation;
+import com.ibm.cusp.execution.CuspExecutor;
+import org.reactivestreams.Processor;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * A Reactive Streams {@link Processor} that runs a pipeline for every item it receives and publishes the pipeline's
+ * output, so that a CUSP pipeline can be a stage in a reactive chain. On Java 9 and later,
+ * {@code org.reactivestreams.FlowAdapters} turns it into a {@code java.util.concurrent.Flow.Processor}.
+ *
+ * Items are only requested from upstream when the subscriber has demand for their outputs and fewer than
+ * {@code maxInFlight} executions are running or requested, so backpressure reaches the source. Outputs are published
+ * as executions finish, which is not necessarily the order the items arrived in.
+ *
+ * Every execution runs on an executor of its own, taken from a pool filled from {@code executors} as needed; the
+ * supplier configures them, e.g. with shared {@link com.ibm.cusp.execution.metrics.CuspMetrics}. A failed execution,
+ * or one with a {@code null} output, which Reactive Streams does not allow, fails the stream and cancels the running
+ * executions; recover within the pipeline to keep the stream going. Cancelling the subscription cancels them too.
+ *
+ * @param <I> input of the pipeline's initial stage
+ * @param <O> output of the pipeline
+ */
+public class CuspProcessor<I, O> implements Processor<I, O> {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Supplier<CuspExecutor> executors;
+    private final String initialStageName;
+    private final int maxInFlight;
+
+    private final Queue<CuspExecutor> idleExecutors = new ConcurrentLinkedQueue<>();
+    private final Set<Cancellation> running = ConcurrentHashMap.newKeySet();
+    private final Queue<O> outputs = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger drains = new AtomicInteger();
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicLong requestedInputs = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger bufferedOutputs = new AtomicInteger();
+    private final AtomicReference<Subscriber<? super O>> subscriber = new AtomicReference<>();
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+    private volatile Subscription upstream;
+    private volatile boolean upstreamDone;
+    private volatile boolean cancelled;
+    private boolean terminated;
+
+    /**
+     * @param executors creates an executor for the pipeline each time all of those created are busy
+     * @param initialStageName stage that each item is given to
+     * @param maxInFlight most executions to run at once
+     */
+    public CuspProcessor(Supplier<CuspExecutor> executors, String initialStageName, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+        }
+        this.executors = executors;
+        this.initialStageName = initialStageName;
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super O> downstream) {
+        if (downstream == null) {
+            throw new NullPointerException("subscriber");
+        }
+        if (!subscriber.compareAndSet(null, downstream)) {
+            downstream.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) { }
+
+                @Override
+                public void cancel() { }
+            });
+            downstream.onError(new IllegalStateException(getClass().getSimpleName() + " supports a single subscriber"));
+            return;
+        }
+
+        downstream.onSubscribe(new Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    fail(new IllegalArgumentException("Rule 3.9: request must be positive: " + n));
+                    return;
+                }
+                demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+                cancelUpstream();
+                cancelRunning("subscription cancelled");
+            }
+        });
+        drain();
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        if (subscription == null) {
+            throw new NullPointerException("subscription");
+        }
+        if (upstream != null || cancelled) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        drain();
+    }
+
+    @Override
+    public void onNext(I item) {
+        if (item == null) {
+            throw new NullPointerException("item");
+        }
+        if (cancelled || error.get() != null) {
+            return;
+        }
+
+        inFlight.incrementAndGet();
+        requestedInputs.decrementAndGet();
+
+        CuspExecutor executor = idleExecutors.poll();
+        if (executor == null) {
+            executor = executors.get();
+        }
+        CuspExecutor executing = executor;
+        executing.constructPipeline(initialStageName, item);
+        Cancellation cancellation = executing.getCancellation();
+        running.add(cancellation);
+
+        executing.<O>executeAsync().whenComplete((output, thrown) -> {
+            running.remove(cancellation);
+            idleExecutors.offer(executing);
+            if (thrown != null) {
+                fail(thrown instanceof CompletionException && thrown.getCause() != null ? thrown.getCause() : thrown);
+            } else if (output == null) {
+                fail(new NullPointerException("Pipeline " + initialStageName + " produced no output for " + item));
+            } else {
+                outputs.offer(output);
+                bufferedOutputs.incrementAndGet();
+            }
+            inFlight.decrementAndGet();
+            drain();
+        });
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        if (throwable == null) {
+            throw new NullPointerException("throwable");
+        }
+        upstreamDone = true;
+        fail(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        upstreamDone = true;
+        drain();
+    }
+
+    /**
+     * @return executions currently running
+     */
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    private void fail(Throwable throwable) {
+        if (error.compareAndSet(null, throwable)) {
+            logger.debug("Failing stream of pipeline {}", initialStageName, throwable);
+            cancelUpstream();
+            cancelRunning(throwable.toString());
+        }
+        drain();
+    }
+
+    private void cancelUpstream() {
+        upstreamDone = true;
+        Subscription subscription = upstream;
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    private void cancelRunning(String reason) {
+        for (Cancellation cancellation : running) {
+            cancellation.cancel(reason);
+        }
+    }
+
+    /**
+     * Deliver buffered outputs within the subscriber's demand, terminate the stream when it is done, and request as
+     * many items from upstream as both the demand and the in-flight limit allow. Only one thread drains at a time;
+     * calls made meanwhile make it go around again.
+     */
+    private void drain() {
+        if (drains.getAndIncrement() != 0) {
+            return;
+        }
+
+        int missed = 1;
+        do {
+            Subscriber<? super O> downstream = subscriber.get();
+            if (downstream != null && !terminated && !cancelled) {
+                deliver(downstream);
+            }
+            missed = drains.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void deliver(Subscriber<? super O> downstream) {
+        Throwable failure = error.get();
+        if (failure != null) {
+            terminated = true;
+            outputs.clear();
+            downstream.onError(failure);
+            return;
+        }
+
+        long delivered = 0;
+        long wanted = demand.get();
+        while (delivered < wanted && !cancelled) {
+            O output = outputs.poll();
+            if (output == null) {
+                break;
+            }
+            bufferedOutputs.decrementAndGet();
+            downstream.onNext(output);
+            delivered++;
+        }
+        if (delivered > 0 && wanted != Long.MAX_VALUE) {
+            demand.addAndGet(-delivered);
+        }
+
+        if (upstreamDone && inFlight.get() == 0 && bufferedOutputs.get() == 0) {
+            terminated = true;
+            downstream.onComplete();
+            return;
+        }
+
+        Subscription subscription = upstream;
+        if (subscription != null && !upstreamDone) {
+            long pending = requestedInputs.get() + inFlight.get();
+            long wantedInputs = Math.min(maxInFlight - pending, demand.get() - bufferedOutputs.get() - pending);
+            if (wantedInputs > 0) {
+                requestedInputs.addAndGet(wantedInputs);
+                subscription.request(wantedInputs);
+            }
+        }
+    }
+}
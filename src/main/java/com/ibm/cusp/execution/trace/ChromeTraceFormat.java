@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.execution.trace;
+
+import java.util.*;
+
+/**
+ * Writes {@link ExecutionTrace}s as Chrome trace events, which the Chrome tracing UI and Perfetto load.
+ *
+ * Each stage is a complete event on the thread it ran on, with its queue wait, outcome and execution id as arguments.
+ * Each execution is an async track with the whole execution and, nested in it, the time each stage waited before
+ * starting. Recoveries are flow arrows from the failed stage to the stage recovering from it.
+ *
+ * @see <a href="https://docs.google.com/document/d/1CvAClvFfyA5R-PhYUmn5OOQtYMH4h6I0nSsKchNAySU">Trace Event Format</a>
+ */
+final class ChromeTraceFormat {
+    static final int PID = 1;
+
+    private ChromeTraceFormat() { }
+
+    static String toJson(Collection<ExecutionTrace> traces) {
+        List<String> events = new ArrayList<>();
+        Set<Long> namedThreads = new HashSet<>();
+        for (ExecutionTrace trace : traces) {
+            appendEvents(trace, namedThreads, events);
+        }
+        return "{\"traceEvents\":[\n" + String.join(",\n", events) + "\n],\"displayTimeUnit\":\"ms\"}\n";
+    }
+
+    /**
+     * @param namedThreads threads whose names were already written; updated with the threads named here
+     */
+    static void appendEvents(ExecutionTrace trace, Set<Long> namedThreads, List<String> events) {
+        Map<String, StageSpan> spansByStage = new HashMap<>();
+        for (StageSpan span : trace.getSpans()) {
+            spansByStage.put(span.getStageName(), span);
+        }
+
+        events.add(asyncEvent("b", "pipeline " + trace.getPipelineName(), trace.getExecutionId(), trace.getStartNanos(),
+                "\"executionId\":" + trace.getExecutionId() + ",\"failed\":" + trace.isFailed()));
+
+        for (StageSpan span : trace.getSpans()) {
+            if (namedThreads.add(span.getThreadId())) {
+                events.add("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":" + PID + ",\"tid\":" + span.getThreadId()
+                        + ",\"args\":{\"name\":" + string(span.getThreadName()) + "}}");
+            }
+
+            if (span.getQueueWaitNanos() > 0) {
+                events.add(asyncEvent("b", "queue wait " + span.getStageName(), trace.getExecutionId(), span.getReadyNanos(), null));
+                events.add(asyncEvent("e", "queue wait " + span.getStageName(), trace.getExecutionId(), span.getStartNanos(), null));
+            }
+
+            StringBuilder stage = new StringBuilder("{\"name\":").append(string(span.getStageName()))
+                    .append(",\"cat\":\"stage\",\"ph\":\"X\",\"pid\":").append(PID)
+                    .append(",\"tid\":").append(span.getThreadId())
+                    .append(",\"ts\":");
+            micros(stage, span.getStartNanos()).append(",\"dur\":");
+            micros(stage, Math.max(0, span.getRunNanos())).append(",\"args\":{\"executionId\":").append(trace.getExecutionId())
+                    .append(",\"stageIndex\":").append(span.getStageIndex())
+                    .append(",\"attempt\":").append(span.getAttempt())
+                    .append(",\"outcome\":").append(string(String.valueOf(span.getOutcome())))
+                    .append(",\"queueWaitUs\":");
+            micros(stage, span.getQueueWaitNanos());
+            if (span.getCpuNanos() >= 0) {
+                micros(stage.append(",\"cpuUs\":"), span.getCpuNanos());
+            }
+            if (span.getAllocatedBytes() >= 0) {
+                stage.append(",\"allocatedBytes\":").append(span.getAllocatedBytes());
+            }
+            stage.append("}}");
+            events.add(stage.toString());
+
+            StageSpan recovery = span.getRecoveryStageName() == null ? null : spansByStage.get(span.getRecoveryStageName());
+            if (recovery != null) {
+                long flowId = (trace.getExecutionId() << 16) | span.getStageIndex();
+                events.add(flowEvent("s", flowId, span.getThreadId(), span.getEndNanos() - Math.min(1000, span.getRunNanos() / 2), false));
+                events.add(flowEvent("f", flowId, recovery.getThreadId(), recovery.getStartNanos(), true));
+            }
+        }
+
+        events.add(asyncEvent("e", "pipeline " + trace.getPipelineName(), trace.getExecutionId(), trace.getEndNanos(), null));
+    }
+
+    private static String asyncEvent(String phase, String name, long executionId, long nanos, String args) {
+        StringBuilder event = new StringBuilder("{\"name\":").append(string(name))
+                .append(",\"cat\":\"execution\",\"ph\":\"").append(phase)
+                .append("\",\"id\":").append(executionId)
+                .append(",\"pid\":").append(PID)
+                .append(",\"ts\":");
+        micros(event, nanos);
+        if (args != null) {
+            event.append(",\"args\":{").append(args).append('}');
+        }
+        return event.append('}').toString();
+    }
+
+    private static String flowEvent(String phase, long flowId, long threadId, long nanos, boolean bindToEnclosingSlice) {
+        StringBuilder event = new StringBuilder("{\"name\":\"recovery\",\"cat\":\"recovery\",\"ph\":\"").append(phase)
+                .append("\",\"id\":").append(flowId)
+                .append(",\"pid\":").append(PID)
+                .append(",\"tid\":").append(threadId)
+                .append(",\"ts\":");
+        micros(event, nanos);
+        if (bindToEnclosingSlice) {
+            event.append(",\"bp\":\"e\"");
+        }
+        return event.append('}').toString();
+    }
+
+    private static StringBuilder micros(StringBuilder builder, long nanos) {
+        if (nanos < 0) {
+            builder.append('-');
+            nanos = -nanos;
+        }
+        long fraction = nanos % 1000;
+        builder.append(nanos / 1000).append('.');
+        if (fraction < 100) {
+            builder.append('0');
+        }
+        if (fraction < 10) {
+            builder.append('0');
+        }
+        return builder.append(fraction);
+    }
+
+    private static String string(String value) {
+        if (value == null) {
+            return "null";
+        }
+
+        StringBuilder escaped = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    escaped.append("\\\"");
+                    break;
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                case '\r':
+                    escaped.append("\\r");
+                    break;
+                case '\t':
+                    escaped.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        escaped.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        escaped.append(c);
+                    }
+            }
+        }
+        return escaped.append('"').toString();
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.execution.trace;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The stages of one pipeline execution, in the order they started.
+ */
+public class ExecutionTrace {
+    private final long executionId;
+    private final String pipelineName;
+    private final long startNanos;
+    private final long endNanos;
+    private final boolean failed;
+    private final List<StageSpan> spans;
+
+    public ExecutionTrace(long executionId, String pipelineName, long startNanos, long endNanos, boolean failed, List<StageSpan> spans) {
+        this.executionId = executionId;
+        this.pipelineName = pipelineName;
+        this.startNanos = startNanos;
+        this.endNanos = endNanos;
+        this.failed = failed;
+        this.spans = Collections.unmodifiableList(spans);
+    }
+
+    public long getExecutionId() {
+        return executionId;
+    }
+
+    /**
+     * @return the initial stage of the executed pipeline
+     */
+    public String getPipelineName() {
+        return pipelineName;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public long getEndNanos() {
+        return endNanos;
+    }
+
+    public long getDurationNanos() {
+        return endNanos - startNanos;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public List<StageSpan> getSpans() {
+        return spans;
+    }
+
+    /**
+     * @return this trace as a Chrome trace-event JSON document
+     */
+    public String toChromeTraceJson() {
+        return ChromeTraceFormat.toJson(Collections.singletonList(this));
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutionTrace{execution=" + executionId + ", pipeline=" + pipelineName + ", durationNanos=" + getDurationNanos()
+                + ", failed=" + failed + ", spans=" + spans + "}";
+    }
+}
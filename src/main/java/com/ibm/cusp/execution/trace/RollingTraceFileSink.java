@@ -0,0 +1,196 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.execution.trace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes traces as Chrome trace events to a rolling set of files, e.g. {@code cusp-trace-20200101-120000-1.json}, each
+ * of which opens in Perfetto (ui.perfetto.dev) or {@code chrome://tracing}.
+ *
+ * Traces are queued and written on a dedicated daemon thread; when the queue is full, traces are dropped and counted
+ * rather than slowing down executions. A file is rolled once it exceeds the configured size, and only the newest files
+ * are kept. Files use the JSON array form of the trace-event format, so a file that was not closed can still be loaded.
+ */
+public class RollingTraceFileSink implements TraceSink, Closeable {
+    public static final long DEFAULT_MAX_FILE_BYTES = 64L * 1024 * 1024;
+    public static final int DEFAULT_MAX_FILES = 5;
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Path directory;
+    private final String prefix;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final BlockingQueue<ExecutionTrace> queue;
+    private final LongAdder dropped = new LongAdder();
+    private final Deque<Path> files = new ArrayDeque<>();
+    private final Thread writerThread;
+    private volatile boolean closed;
+
+    private Writer writer;
+    private long fileBytes;
+    private int fileSequence;
+    private Set<Long> namedThreads = new HashSet<>();
+
+    public RollingTraceFileSink(Path directory) throws IOException {
+        this(directory, "cusp-trace", DEFAULT_MAX_FILE_BYTES, DEFAULT_MAX_FILES, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param directory created if it does not exist
+     * @param prefix start of every file name
+     * @param maxFileBytes size after which a new file is started
+     * @param maxFiles number of files to keep, oldest deleted first
+     * @param queueCapacity number of traces that can wait to be written
+     * @throws IOException if the directory cannot be created
+     */
+    public RollingTraceFileSink(Path directory, String prefix, long maxFileBytes, int maxFiles, int queueCapacity) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.prefix = prefix;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = Math.max(1, maxFiles);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        this.writerThread = new Thread(this::write, "cusp-trace-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    @Override
+    public void accept(ExecutionTrace trace) {
+        if (closed || !queue.offer(trace)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * @return traces discarded because the queue was full or the sink was closed
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return files currently kept, oldest first
+     */
+    public synchronized List<Path> getFiles() {
+        return new ArrayList<>(files);
+    }
+
+    /**
+     * Write the queued traces and close the current file.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write() {
+        List<String> events = new ArrayList<>();
+        while (!closed || !queue.isEmpty()) {
+            try {
+                ExecutionTrace trace = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (trace != null) {
+                    write(trace, events);
+                }
+                if (queue.isEmpty() && writer != null) {
+                    writer.flush();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                closed = true;
+            } catch (IOException e) {
+                logger.warn("Failed to write trace to {}", directory, e);
+                closeFile();
+            }
+        }
+        closeFile();
+    }
+
+    private void write(ExecutionTrace trace, List<String> events) throws IOException {
+        if (writer == null || fileBytes >= maxFileBytes) {
+            roll();
+        }
+
+        events.clear();
+        ChromeTraceFormat.appendEvents(trace, namedThreads, events);
+        for (String event : events) {
+            String line = (fileBytes == 0 ? "[\n" : ",\n") + event;
+            writer.write(line);
+            fileBytes += line.length();
+        }
+    }
+
+    private synchronized void roll() throws IOException {
+        closeFile();
+
+        Path file = directory.resolve(prefix + "-" + LocalDateTime.now().format(FILE_TIMESTAMP) + "-" + (++fileSequence) + ".json");
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        fileBytes = 0;
+        namedThreads = new HashSet<>();
+        files.addLast(file);
+
+        while (files.size() > maxFiles) {
+            Path oldest = files.removeFirst();
+            Files.deleteIfExists(oldest);
+        }
+        logger.debug("Writing traces to {}", file);
+    }
+
+    private void closeFile() {
+        if (writer == null) {
+            return;
+        }
+
+        try {
+            writer.write(fileBytes == 0 ? "[]\n" : "\n]\n");
+            writer.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close trace file in {}", directory, e);
+        }
+        writer = null;
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.execution.trace;
+
+import com.ibm.cusp.execution.StageEvent;
+
+/**
+ * One stage's execution within an {@link ExecutionTrace}. Timestamps are {@link System#nanoTime()} values.
+ */
+public class StageSpan {
+    private final String stageName;
+    private final int stageIndex;
+    private final StageEvent.Outcome outcome;
+    private final int attempt;
+    private final long threadId;
+    private final String threadName;
+    private final long readyNanos;
+    private final long startNanos;
+    private final long endNanos;
+    private final String recoveryStageName;
+    private final long cpuNanos;
+    private final long allocatedBytes;
+
+    public StageSpan(String stageName, int stageIndex, StageEvent.Outcome outcome, int attempt, long threadId, String threadName,
+                     long readyNanos, long startNanos, long endNanos, String recoveryStageName) {
+        this(stageName, stageIndex, outcome, attempt, threadId, threadName, readyNanos, startNanos, endNanos,
+                recoveryStageName, -1, -1);
+    }
+
+    public StageSpan(String stageName, int stageIndex, StageEvent.Outcome outcome, int attempt, long threadId, String threadName,
+                     long readyNanos, long startNanos, long endNanos, String recoveryStageName, long cpuNanos, long allocatedBytes) {
+        this.stageName = stageName;
+        this.stageIndex = stageIndex;
+        this.outcome = outcome;
+        this.attempt = attempt;
+        this.threadId = threadId;
+        this.threadName = threadName;
+        this.readyNanos = readyNanos;
+        this.startNanos = startNanos;
+        this.endNanos = endNanos;
+        this.recoveryStageName = recoveryStageName;
+        this.cpuNanos = cpuNanos;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public String getStageName() {
+        return stageName;
+    }
+
+    public int getStageIndex() {
+        return stageIndex;
+    }
+
+    /**
+     * @return how the stage ended, or {@code null} if the execution ended before its outcome was handled
+     */
+    public StageEvent.Outcome getOutcome() {
+        return outcome;
+    }
+
+    public int getAttempt() {
+        return attempt;
+    }
+
+    public long getThreadId() {
+        return threadId;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    public long getReadyNanos() {
+        return readyNanos;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public long getEndNanos() {
+        return endNanos;
+    }
+
+    public long getQueueWaitNanos() {
+        return startNanos - readyNanos;
+    }
+
+    public long getRunNanos() {
+        return endNanos - startNanos;
+    }
+
+    /**
+     * @return name of the stage that recovered from this one's failure, if any
+     */
+    public String getRecoveryStageName() {
+        return recoveryStageName;
+    }
+
+    /**
+     * @return thread CPU time the stage used, or -1 if it was not measured
+     */
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    /**
+     * @return bytes the stage allocated, or -1 if they were not measured
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return stageName + " " + outcome + " queueWait=" + getQueueWaitNanos() + "ns run=" + getRunNanos() + "ns on " + threadName;
+    }
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.execution.trace;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the traces worth debugging: per pipeline and per time window, the slowest executions and every failed one.
+ *
+ * A {@link com.ibm.cusp.execution.CuspExecutor} given a reservoir through
+ * {@link com.ibm.cusp.execution.CuspExecutor#useTailRetention(TailTraceReservoir)} keeps each execution's stage timings
+ * in the arrays it already records them in, and only builds a trace when {@link #qualifies} says the finished
+ * execution would be retained, so executions that are neither slow nor failed cost nothing extra. The current window
+ * and a bounded number of past windows are kept in memory and can be queried at any time.
+ */
+public class TailTraceReservoir {
+    public static final int DEFAULT_SLOWEST = 10;
+    public static final int DEFAULT_MAX_FAILED = 100;
+    public static final Duration DEFAULT_WINDOW = Duration.ofMinutes(1);
+    public static final int DEFAULT_RETAINED_WINDOWS = 5;
+
+    private static final Comparator<ExecutionTrace> BY_DURATION = Comparator.comparingLong(ExecutionTrace::getDurationNanos);
+
+    private final int slowest;
+    private final int maxFailed;
+    private final long windowMillis;
+    private final int retainedWindows;
+    private final Map<String, PipelineReservoir> pipelines = new ConcurrentHashMap<>();
+
+    public TailTraceReservoir() {
+        this(DEFAULT_SLOWEST, DEFAULT_MAX_FAILED, DEFAULT_WINDOW, DEFAULT_RETAINED_WINDOWS);
+    }
+
+    /**
+     * @param slowest number of slowest traces kept per pipeline and window
+     * @param maxFailed number of failed traces kept per pipeline and window, the earliest first
+     * @param window length of a window
+     * @param retainedWindows number of past windows kept besides the current one
+     */
+    public TailTraceReservoir(int slowest, int maxFailed, Duration window, int retainedWindows) {
+        this.slowest = slowest;
+        this.maxFailed = maxFailed;
+        this.windowMillis = window.toMillis();
+        this.retainedWindows = retainedWindows;
+    }
+
+    /**
+     * @return whether an execution of {@code pipelineName} with this duration and outcome would be retained
+     */
+    public boolean qualifies(String pipelineName, long durationNanos, boolean failed) {
+        return reservoir(pipelineName).qualifies(durationNanos, failed);
+    }
+
+    public void retain(ExecutionTrace trace) {
+        reservoir(trace.getPipelineName()).retain(trace);
+    }
+
+    public Set<String> getPipelineNames() {
+        return new TreeSet<>(pipelines.keySet());
+    }
+
+    /**
+     * @return the retained traces of executions that succeeded, slowest first
+     */
+    public List<ExecutionTrace> getSlowest(String pipelineName) {
+        return traces(pipelineName, false);
+    }
+
+    /**
+     * @return the retained traces of executions that failed, slowest first
+     */
+    public List<ExecutionTrace> getFailed(String pipelineName) {
+        return traces(pipelineName, true);
+    }
+
+    public Optional<ExecutionTrace> getTrace(long executionId) {
+        return pipelines.keySet().stream()
+                .flatMap(pipelineName -> Stream.concat(getSlowest(pipelineName).stream(), getFailed(pipelineName).stream()))
+                .filter(trace -> trace.getExecutionId() == executionId)
+                .findFirst();
+    }
+
+    /**
+     * @return every retained trace of the pipeline as a Chrome trace-event JSON document
+     */
+    public String toChromeTraceJson(String pipelineName) {
+        List<ExecutionTrace> traces = new ArrayList<>(getFailed(pipelineName));
+        traces.addAll(getSlowest(pipelineName));
+        return ChromeTraceFormat.toJson(traces);
+    }
+
+    private List<ExecutionTrace> traces(String pipelineName, boolean failed) {
+        PipelineReservoir reservoir = pipelines.get(pipelineName);
+        if (reservoir == null) {
+            return Collections.emptyList();
+        }
+
+        return reservoir.windows().stream()
+                .flatMap(window -> (failed ? window.failed : window.slowest).stream())
+                .sorted(BY_DURATION.reversed())
+                .collect(Collectors.toList());
+    }
+
+    private PipelineReservoir reservoir(String pipelineName) {
+        return pipelines.computeIfAbsent(pipelineName, name -> new PipelineReservoir());
+    }
+
+    private static final class Window {
+        final long start;
+        final PriorityQueue<ExecutionTrace> slowest = new PriorityQueue<>(BY_DURATION);
+        final List<ExecutionTrace> failed = new ArrayList<>();
+
+        Window(long start) {
+            this.start = start;
+        }
+    }
+
+    private final class PipelineReservoir {
+        private final Deque<Window> past = new ArrayDeque<>();
+        private Window current = new Window(windowStart());
+
+        synchronized boolean qualifies(long durationNanos, boolean failed) {
+            roll();
+            if (failed) {
+                return current.failed.size() < maxFailed;
+            }
+            return current.slowest.size() < slowest
+                    || (slowest > 0 && durationNanos > current.slowest.peek().getDurationNanos());
+        }
+
+        synchronized void retain(ExecutionTrace trace) {
+            roll();
+            if (trace.isFailed()) {
+                if (current.failed.size() < maxFailed) {
+                    current.failed.add(trace);
+                }
+            } else if (slowest > 0) {
+                current.slowest.add(trace);
+                if (current.slowest.size() > slowest) {
+                    current.slowest.poll();
+                }
+            }
+        }
+
+        synchronized List<Window> windows() {
+            roll();
+            List<Window> windows = new ArrayList<>(past);
+            windows.add(current);
+            return windows.stream().map(this::copy).collect(Collectors.toList());
+        }
+
+        private Window copy(Window window) {
+            Window copy = new Window(window.start);
+            copy.slowest.addAll(window.slowest);
+            copy.failed.addAll(window.failed);
+            return copy;
+        }
+
+        private void roll() {
+            long start = windowStart();
+            if (start == current.start) {
+                return;
+            }
+
+            past.addLast(current);
+            while (!past.isEmpty() && (past.size() > retainedWindows || past.peekFirst().start < start - retainedWindows * windowMillis)) {
+                past.removeFirst();
+            }
+            current = new Window(start);
+        }
+    }
+
+    private long windowStart() {
+        long now = System.currentTimeMillis();
+        return now - Math.floorMod(now, windowMillis);
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.execution.trace;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides, when a pipeline is constructed, whether its execution is traced. Executions that are not sampled record no
+ * trace at all.
+ */
+@FunctionalInterface
+public interface TraceSampler {
+    /**
+     * @param initialStageName identifies the pipeline about to be executed
+     * @return whether to trace the execution
+     */
+    boolean sample(String initialStageName);
+
+    static TraceSampler always() {
+        return initialStageName -> true;
+    }
+
+    static TraceSampler never() {
+        return initialStageName -> false;
+    }
+
+    /**
+     * @param probability fraction of executions to trace, between 0 and 1
+     */
+    static TraceSampler probability(double probability) {
+        if (probability < 0 || probability > 1) {
+            throw new IllegalArgumentException("sampling probability must be between 0 and 1: " + probability);
+        }
+        return initialStageName -> ThreadLocalRandom.current().nextDouble() < probability;
+    }
+}
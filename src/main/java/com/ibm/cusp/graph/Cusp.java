@@ -21,12 +21,18 @@
  */
 package com.ibm.cusp.graph;
 
+import com.ibm.cusp.graph.analysis.CriticalPathAnalyzer;
+import com.ibm.cusp.graph.analysis.LatencyAnalysis;
+import com.ibm.cusp.graph.analysis.StageLatencies;
 import com.ibm.cusp.graph.conditions.Conditions;
 import com.ibm.cusp.graph.errors.*;
 import com.ibm.cusp.graph.observe.CuspObserver;
 import com.ibm.cusp.graph.routes.LabeledEdge;
+import com.ibm.cusp.graph.stages.CustomOutcome;
+import com.ibm.cusp.graph.stages.NamespacedStage;
 import com.ibm.cusp.graph.stages.Stage;
 import com.ibm.cusp.graph.stages.StageOutcomes;
+import com.ibm.cusp.graph.stages.SubPipeline;
 import org.jgrapht.Graph;
 import org.jgrapht.GraphTests;
 import org.jgrapht.alg.cycle.CycleDetector;
@@ -41,17 +47,30 @@ public class Cusp {
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     private final Map<String, Stage> stages;
+    private final Map<String, SubPipeline> subPipelines;
+    private final Map<String, Integer> stageIndices;
+    private final Set<String> earlyExits;
     private final Graph<Stage, LabeledEdge> stageGraph;
     private CycleDetector cycleDetector;
     private CuspObserver observer;
+    private volatile boolean validated;
+    private volatile Stage[][] customRoutes;
+    private volatile Class<?>[] earlyExitTypes;
 
     public Cusp() {
         stages = new HashMap<>();
+        stageIndices = new HashMap<>();
+        subPipelines = new HashMap<>();
+        earlyExits = new HashSet<>();
         stageGraph = new DefaultDirectedGraph<>(LabeledEdge.class);
     }
 
     /**
      * Add a new stage, identified uniquely by the stage's declared name.
+     *
+     * A {@link SubPipeline} is inlined: its stages and routes are copied into this graph under names prefixed with the
+     * sub-pipeline's name, and the sub-pipeline's name can then be used in routes like any other stage.
+     *
      * @param stage
      * @return
      * @throws StageAlreadyExistsException
@@ -59,12 +78,21 @@ public class Cusp {
     public Stage addStage(Stage stage) throws StageAlreadyExistsException {
         logger.debug("Creating stage: {}", stage.name());
 
-        if (stages.containsKey(stage.name())) {
+        if (stages.containsKey(stage.name()) || subPipelines.containsKey(stage.name())) {
             throw new StageAlreadyExistsException(stage.name());
         }
 
+        if (stage instanceof SubPipeline) {
+            inline((SubPipeline) stage);
+            return stage;
+        }
+
         stages.put(stage.name(), stage);
+        stageIndices.put(stage.name(), stageIndices.size());
         stageGraph.addVertex(stage);
+        validated = false;
+        customRoutes = null;
+        earlyExitTypes = null;
 
         if(observer != null) {
             stage.registerObserver(observer);
@@ -74,8 +102,56 @@ public class Cusp {
         return stage;
     }
 
+    @SuppressWarnings("unchecked")
+    private void inline(SubPipeline subPipeline) {
+        Graph<Stage, LabeledEdge> subGraph = subPipeline.getCusp().getStageGraph();
+        Map<Stage, Stage> inlinedStages = new HashMap<>();
+
+        for (Stage stage : subGraph.vertexSet()) {
+            inlinedStages.put(stage, addStage(new NamespacedStage<>(subPipeline.name(), stage)));
+        }
+
+        for (LabeledEdge edge : subGraph.edgeSet()) {
+            Stage source = inlinedStages.get(subGraph.getEdgeSource(edge));
+            Stage target = inlinedStages.get(subGraph.getEdgeTarget(edge));
+            if (edge.getCustomOutcome() != null) {
+                addRoute(source, edge.getCustomOutcome(), target);
+            } else {
+                addRoute(source, edge.getOutcome(), target);
+            }
+        }
+
+        for (String exitingStageName : subPipeline.getCusp().earlyExits) {
+            earlyExits.add(subPipeline.name() + NamespacedStage.SEPARATOR + exitingStageName);
+        }
+        earlyExitTypes = null;
+
+        subPipelines.put(subPipeline.name(), subPipeline);
+        logger.debug("Inlined sub-pipeline {} with {} stages", subPipeline.name(), inlinedStages.size());
+    }
+
+    /**
+     * Stages are numbered from 0 in the order they were added, so that per-stage state can be kept in arrays.
+     * @param stage
+     * @return index of the stage
+     */
+    public int getStageIndex(Stage stage) {
+        Integer index = stageIndices.get(stage.name());
+        if (index == null) {
+            throw constructInvalidStateInputException(stage.name());
+        }
+        return index;
+    }
+
+    /**
+     * @return number of stages, one more than the largest {@link #getStageIndex(Stage) stage index}
+     */
+    public int getStageCount() {
+        return stageIndices.size();
+    }
+
     public boolean isTerminal(String stageName) {
-        Stage stage = getValidatedStage(stageName);
+        Stage stage = getValidatedSourceStage(stageName);
         return isTerminal(stage);
     }
 
@@ -84,7 +160,7 @@ public class Cusp {
     }
 
     /**
-     * Get stage represented by identifier {@code stageName}.
+     * Get stage represented by identifier {@code stageName}. For a sub-pipeline, this is its inlined initial stage.
      *
      * @param stageName stage identifier
      * @return
@@ -101,7 +177,7 @@ public class Cusp {
      * @return
      */
     public Optional<Stage> getNextStage(String stageName, StageOutcomes outcome) {
-        Stage stage = getValidatedStage(stageName);
+        Stage stage = getValidatedSourceStage(stageName);
         return getNextStage(stage, outcome);
     }
 
@@ -113,6 +189,48 @@ public class Cusp {
                 .findFirst();
     }
 
+    /**
+     * Get stage that follows when the stage with index {@code stageIndex} emits {@code outcome}. Routes for custom
+     * outcomes are kept in a table indexed by stage and outcome, so this is an array lookup.
+     *
+     * @param stageIndex {@link #getStageIndex(Stage) stage index}
+     * @param outcome
+     * @return the stage routed to, or {@code null} if there is no route for {@code outcome}
+     */
+    public Stage getNextStage(int stageIndex, CustomOutcome<?> outcome) {
+        Stage[] routes = getCustomRoutes()[stageIndex];
+        return routes == null || outcome.getIndex() >= routes.length ? null : routes[outcome.getIndex()];
+    }
+
+    /**
+     * @param stageIndex {@link #getStageIndex(Stage) stage index}
+     * @return whether the stage has a route for any {@link CustomOutcome}
+     */
+    public boolean hasCustomRoutes(int stageIndex) {
+        return getCustomRoutes()[stageIndex] != null;
+    }
+
+    private Stage[][] getCustomRoutes() {
+        Stage[][] routes = customRoutes;
+        if (routes == null) {
+            routes = new Stage[getStageCount()][];
+            for (LabeledEdge edge : stageGraph.edgeSet()) {
+                CustomOutcome<?> outcome = edge.getCustomOutcome();
+                if (outcome == null) {
+                    continue;
+                }
+
+                int sourceIndex = getStageIndex(stageGraph.getEdgeSource(edge));
+                if (routes[sourceIndex] == null) {
+                    routes[sourceIndex] = new Stage[CustomOutcome.count()];
+                }
+                routes[sourceIndex][outcome.getIndex()] = stageGraph.getEdgeTarget(edge);
+            }
+            customRoutes = routes;
+        }
+        return routes;
+    }
+
     /**
      * Get all stages that follow when stage identified by {@code stage} exits with outcome {@code outcome}.
      *
@@ -121,7 +239,7 @@ public class Cusp {
      * @return
      */
     public Set<Stage> getNextStages(String stageName, StageOutcomes outcome) {
-        Stage stage = getValidatedStage(stageName);
+        Stage stage = getValidatedSourceStage(stageName);
         return getNextStages(stage, outcome);
     }
 
@@ -144,7 +262,12 @@ public class Cusp {
      * @throws CuspConstructionError
      */
     public void addRoute(String sourceName, StageOutcomes outcome, String targetName, Conditions... conditions) throws CuspConstructionError {
-        Stage source = getValidatedStage(sourceName);
+        if (outcome == StageOutcomes.RECOVERABLE_FAILURE && subPipelines.containsKey(sourceName)) {
+            throw new InvalidSubPipelineException(sourceName,
+                    "recovering from a whole sub-pipeline is not supported; add recovery routes to its stages instead");
+        }
+
+        Stage source = getValidatedSourceStage(sourceName);
         Stage target = getValidatedStage(targetName);
 
         validateDesiredRoute(source, outcome, target);
@@ -155,15 +278,139 @@ public class Cusp {
     private void addRoute(Stage source, StageOutcomes outcome, Stage target, Conditions... conditions) throws CuspConstructionError {
         logger.debug("Stage {} with outcome {} maps to {}", source.name(), outcome, target.name());
         stageGraph.addEdge(source, target, new LabeledEdge(source.name(), target.name(), outcome)); // TODO: support conditions
+        validated = false;
+        earlyExitTypes = null;
+    }
+
+    /**
+     * Indicate that when the stage identified by name {@code sourceName} emits the custom outcome {@code outcome}, the
+     * emitted value should be passed to the stage identified by name {@code targetName} in place of the source stage's
+     * success routes. The target stage must accept the outcome's value type.
+     *
+     * @param sourceName
+     * @param outcome
+     * @param targetName
+     * @throws CuspConstructionError
+     */
+    public void addRoute(String sourceName, CustomOutcome<?> outcome, String targetName) throws CuspConstructionError {
+        Stage source = getValidatedSourceStage(sourceName);
+        Stage target = getValidatedStage(targetName);
+
+        assertOrThrow(outcome.getValueType().equals(target.getInputType()),
+                new InvalidStageInputException(source.name(), target.name(), target.getInputType(), outcome.getValueType()));
+
+        addRoute(source, outcome, target);
+    }
+
+    private void addRoute(Stage source, CustomOutcome<?> outcome, Stage target) throws CuspConstructionError {
+        boolean alreadyRouted = stageGraph.outgoingEdgesOf(source)
+                .stream()
+                .anyMatch(edge -> edge.getCustomOutcome() == outcome);
+        if (alreadyRouted) {
+            throw new NondeterministicExecutionException(
+                    CuspErrorCode.NONDETERMINISTIC_PIPELINE,
+                    "Stage {0} already routes outcome {1}",
+                    source.name(),
+                    outcome);
+        }
+
+        logger.debug("Stage {} with outcome {} maps to {}", source.name(), outcome, target.name());
+        stageGraph.addEdge(source, target, new LabeledEdge(source.name(), target.name(), outcome));
+        validated = false;
+        customRoutes = null;
+    }
+
+    /**
+     * Allow the stage identified by name {@code stageName} to complete the pipeline with its own result, skipping the
+     * stages downstream of it. See {@link com.ibm.cusp.graph.stages.EarlyExit}. An early exit from a stage of a
+     * {@link SubPipeline} completes the pipeline it is inlined into.
+     *
+     * @param stageName
+     * @throws StageNotFoundException
+     */
+    public void allowEarlyExit(String stageName) throws StageNotFoundException {
+        Stage stage = getValidatedSourceStage(stageName);
+        logger.debug("Stage {} may exit early", stage.name());
+        earlyExits.add(stage.name());
+        earlyExitTypes = null;
+    }
+
+    public boolean canExitEarly(Stage stage) {
+        return earlyExits.contains(stage.name());
+    }
+
+    /**
+     * The type of the result a stage may complete the pipeline early with: the output type of the stage the pipeline
+     * ends with when it continues from {@code stage} along its success routes.
+     *
+     * @param stage a stage that {@link #canExitEarly(Stage) may exit early}
+     * @return the type, or {@code null} if the pipeline may end with any of several stages
+     */
+    public Class<?> getEarlyExitType(Stage stage) {
+        Class<?>[] types = earlyExitTypes;
+        if (types == null) {
+            types = new Class<?>[getStageCount()];
+            for (String exitingStageName : earlyExits) {
+                Stage exitingStage = stages.get(exitingStageName);
+                types[getStageIndex(exitingStage)] = getFinalOutputType(exitingStage);
+            }
+            earlyExitTypes = types;
+        }
+        return types[getStageIndex(stage)];
+    }
+
+    private Class<?> getFinalOutputType(Stage stage) {
+        Stage finalStage = stage;
+        Set<Stage> successStages;
+        while (!(successStages = getNextStages(finalStage, StageOutcomes.SUCCESS)).isEmpty()) {
+            List<Stage> internalStages = successStages.stream()
+                    .filter(successStage -> !isTerminal(successStage))
+                    .collect(Collectors.toList());
+            if (internalStages.size() == 1) {
+                finalStage = internalStages.get(0);
+            } else if (internalStages.isEmpty() && successStages.size() == 1) {
+                finalStage = successStages.iterator().next();
+            } else {
+                return null;
+            }
+        }
+        return finalStage.getOutputType();
     }
 
+    /**
+     * @return whether any stage may complete the pipeline early
+     */
+    public boolean hasEarlyExits() {
+        return !earlyExits.isEmpty();
+    }
+
+    /**
+     * Resolve a stage that is being routed to; a sub-pipeline is entered through its initial stage.
+     */
     private Stage getValidatedStage(String stageName) {
+        SubPipeline subPipeline = subPipelines.get(stageName);
+        if (subPipeline != null) {
+            return stages.get(subPipeline.name() + NamespacedStage.SEPARATOR + subPipeline.getInitialStage().name());
+        }
+
         Stage stage = stages.get(stageName);
         validateStage(stageName, stage);
 
         return stage;
     }
 
+    /**
+     * Resolve a stage that is being routed from; a sub-pipeline is left from its result stage.
+     */
+    private Stage getValidatedSourceStage(String stageName) {
+        SubPipeline subPipeline = subPipelines.get(stageName);
+        if (subPipeline != null) {
+            return stages.get(subPipeline.name() + NamespacedStage.SEPARATOR + subPipeline.getResultStage().name());
+        }
+
+        return getValidatedStage(stageName);
+    }
+
     private void validateStage(String stageName, Stage stage) {
         assertOrThrow(stage != null, constructInvalidStateInputException(stageName));
     }
@@ -187,11 +434,56 @@ public class Cusp {
         assertOrThrow(source.getOutputType().equals(target.getInputType()), constructInvalidStateInputException(source, target));
     }
 
+    /**
+     * Run graph tests against the stage graph, and check that no stage's output is used by more than one non-terminal
+     * stage, which no executor can run. The result is remembered until a stage or route is added, so calling this once
+     * per pipeline construction only pays for the graph tests the first time.
+     *
+     * @throws CuspConstructionError
+     */
     public void validateGraph() {
+        if (validated) {
+            return;
+        }
+
         assertOrThrow(!GraphTests.isEmpty(stageGraph), new EmptyPipelineException());
         assertOrThrow(GraphTests.isConnected(stageGraph), new UnreachableStageException());
         assertOrThrow(!GraphTests.hasSelfLoops(stageGraph), new InfiniteLoopException());
         assertOrThrow(!this.getCycleDetector().detectCycles(), new InfiniteLoopException(this.getCycleDetector().findCycles()));
+        validateSuccessStages();
+
+        validated = true;
+    }
+
+    private void validateSuccessStages() throws NondeterministicExecutionException {
+        for (Stage stage : stageGraph.vertexSet()) {
+            Set<String> internalStages = getNextStages(stage.name(), StageOutcomes.SUCCESS)
+                    .stream()
+                    .filter(successStage -> !isTerminal(successStage))
+                    .map(Stage::name)
+                    .collect(Collectors.toCollection(TreeSet::new));
+
+            if (internalStages.size() > 1) {
+                throw new NondeterministicExecutionException(
+                        CuspErrorCode.NONDETERMINISTIC_PIPELINE,
+                        "Stage {0}''s output was defined as being used by multiple downstream stages, which is not supported; those downstream stages were: {1}",
+                        stage.name(),
+                        internalStages.toString());
+            }
+        }
+    }
+
+    /**
+     * Mark the stage graph as already validated, so that {@link #validateGraph()} skips its graph tests until a stage
+     * or route is added. Meant for graphs rebuilt from a {@link com.ibm.cusp.graph.definition.PipelinePlan}, which was
+     * validated when it was compiled.
+     */
+    public void assumeValidated() {
+        validated = true;
+    }
+
+    public boolean isValidated() {
+        return validated;
     }
 
     private CycleDetector getCycleDetector() {
@@ -206,6 +498,19 @@ public class Cusp {
         return this.cycleDetector;
     }
 
+    /**
+     * Find the critical path of the pipeline starting at stage {@code initialStageName}, given the latencies of its
+     * stages, along with each stage's slack, the expected end-to-end latency distribution, and the stages most worth
+     * optimizing. See {@link CriticalPathAnalyzer}.
+     *
+     * @param initialStageName
+     * @param latencies recorded with a {@link com.ibm.cusp.graph.analysis.LatencyRecorder} or declared
+     * @return
+     */
+    public LatencyAnalysis analyzeLatency(String initialStageName, StageLatencies latencies) {
+        return new CriticalPathAnalyzer(this).analyze(initialStageName, latencies);
+    }
+
     public Graph<Stage, LabeledEdge> getStageGraph() {
         return stageGraph;
     }
@@ -0,0 +1,276 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.graph.analysis;
+
+import com.ibm.cusp.graph.Cusp;
+import com.ibm.cusp.graph.stages.Stage;
+import com.ibm.cusp.graph.stages.StageOutcomes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Combines the topology of a {@link Cusp} with per-stage latencies to find which stages set the end-to-end latency.
+ *
+ * The pipeline is modelled the way {@link com.ibm.cusp.execution.CuspExecutor} runs it: each stage starts together with
+ * the terminal stages that consume the same output, the pipeline waits for all of them, then runs the failed stage's
+ * recovery chain (weighted by the stage's failure rate) and moves on to the stages that consume its output. Expected
+ * figures use sample means; the latency distribution is simulated by drawing every stage's latency from its samples.
+ */
+public class CriticalPathAnalyzer {
+    public static final int DEFAULT_SIMULATIONS = 10_000;
+
+    private static final double LONG_TAIL_RATIO = 2.0;
+    private static final double MINIMUM_SHARE = 0.01;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Cusp cusp;
+    private final int simulations;
+
+    public CriticalPathAnalyzer(Cusp cusp) {
+        this(cusp, DEFAULT_SIMULATIONS);
+    }
+
+    public CriticalPathAnalyzer(Cusp cusp, int simulations) {
+        this.cusp = cusp;
+        this.simulations = simulations;
+    }
+
+    public LatencyAnalysis analyze(String initialStageName, StageLatencies latencies) {
+        cusp.validateGraph();
+        ExecutionGroup root = group(cusp.getStage(initialStageName), Collections.emptyList());
+
+        ToDoubleFunction<Stage> means = stage -> latencies.getMeanNanos(stage.name());
+        double expected = expected(root, means, latencies);
+
+        Map<String, StageAnalysis> stages = new LinkedHashMap<>();
+        analyzeStages(root, root, 0, 1, means, latencies, expected, stages);
+
+        List<String> criticalPath = new ArrayList<>();
+        criticalPath(root, means, latencies, criticalPath);
+
+        LatencyAnalysis analysis = new LatencyAnalysis(criticalPath, Math.round(expected), simulate(root, latencies),
+                stages, recommend(root, latencies, stages, expected));
+        logger.debug("Latency analysis from {}: {}", initialStageName, analysis);
+        return analysis;
+    }
+
+    /**
+     * Only compute, for every stage, the expected time from its start until the pipeline completes along the longest
+     * path through it. This is the cheap part of {@link #analyze(String, StageLatencies)}, suitable for recomputing
+     * while pipelines run.
+     *
+     * @param initialStageName
+     * @param latencies
+     * @return remaining critical-path length in nanoseconds by stage name
+     */
+    public Map<String, Long> remainingCriticalPaths(String initialStageName, StageLatencies latencies) {
+        cusp.validateGraph();
+        ExecutionGroup root = group(cusp.getStage(initialStageName), Collections.emptyList());
+
+        Map<String, Long> remaining = new HashMap<>();
+        remainingCriticalPaths(root, 0, stage -> latencies.getMeanNanos(stage.name()), latencies, remaining);
+        return remaining;
+    }
+
+    private void remainingCriticalPaths(ExecutionGroup group, double after, ToDoubleFunction<Stage> means,
+                                        StageLatencies latencies, Map<String, Long> remaining) {
+        if (group == null) {
+            return;
+        }
+
+        double afterNext = expected(group.next, means, latencies) + after;
+        double afterGroup = latencies.getFailureRate(group.main.name()) * expected(group.recovery, means, latencies) + afterNext;
+        remaining.merge(group.main.name(), Math.round(means.applyAsDouble(group.main) + afterGroup), Math::max);
+        for (Stage leaf : group.leaves) {
+            remaining.merge(leaf.name(), Math.round(means.applyAsDouble(leaf) + afterGroup), Math::max);
+        }
+
+        remainingCriticalPaths(group.recovery, afterNext, means, latencies, remaining);
+        remainingCriticalPaths(group.next, after, means, latencies, remaining);
+    }
+
+    private ExecutionGroup group(Stage main, List<Stage> leaves) {
+        ExecutionGroup recovery = cusp.getNextStage(main.name(), StageOutcomes.RECOVERABLE_FAILURE)
+                .map(recoveryStage -> group(recoveryStage, Collections.emptyList()))
+                .orElse(null);
+
+        Set<Stage> successStages = cusp.getNextStages(main.name(), StageOutcomes.SUCCESS);
+        if (successStages.isEmpty()) {
+            return new ExecutionGroup(main, leaves, recovery, null);
+        }
+
+        List<Stage> internalStages = new ArrayList<>();
+        List<Stage> leafStages = new ArrayList<>();
+        for (Stage stage : successStages) {
+            (cusp.isTerminal(stage.name()) ? leafStages : internalStages).add(stage);
+        }
+        leafStages.sort(Comparator.comparing(Stage::name));
+
+        Stage nextMain = internalStages.isEmpty() ? leafStages.remove(0) : internalStages.get(0);
+        return new ExecutionGroup(main, leaves, recovery, group(nextMain, leafStages));
+    }
+
+    private double groupDuration(ExecutionGroup group, ToDoubleFunction<Stage> means) {
+        double duration = means.applyAsDouble(group.main);
+        for (Stage leaf : group.leaves) {
+            duration = Math.max(duration, means.applyAsDouble(leaf));
+        }
+        return duration;
+    }
+
+    private double expected(ExecutionGroup group, ToDoubleFunction<Stage> means, StageLatencies latencies) {
+        if (group == null) {
+            return 0;
+        }
+
+        return groupDuration(group, means)
+                + latencies.getFailureRate(group.main.name()) * expected(group.recovery, means, latencies)
+                + expected(group.next, means, latencies);
+    }
+
+    private void analyzeStages(ExecutionGroup root, ExecutionGroup group, double after, double weight, ToDoubleFunction<Stage> means,
+                               StageLatencies latencies, double expected, Map<String, StageAnalysis> stages) {
+        if (group == null) {
+            return;
+        }
+
+        double failureRate = latencies.getFailureRate(group.main.name());
+        double afterGroup = failureRate * expected(group.recovery, means, latencies) + expected(group.next, means, latencies) + after;
+        double duration = groupDuration(group, means);
+
+        List<Stage> members = new ArrayList<>();
+        members.add(group.main);
+        members.addAll(group.leaves);
+        for (Stage stage : members) {
+            double mean = means.applyAsDouble(stage);
+            double slack = duration - mean;
+            long savings = Math.round(expected - expected(root, withoutStage(means, stage), latencies));
+            StageAnalysis analysis = new StageAnalysis(stage.name(), latencies.hasSamples(stage.name()), Math.round(mean),
+                    latencies.getFailureRate(stage.name()), Math.round(slack), Math.round(mean + afterGroup), savings,
+                    slack == 0 && weight > 0);
+            stages.merge(stage.name(), analysis, (existing, added) -> existing.getSlackNanos() <= added.getSlackNanos() ? existing : added);
+        }
+
+        analyzeStages(root, group.recovery, expected(group.next, means, latencies) + after, weight * failureRate, means, latencies, expected, stages);
+        analyzeStages(root, group.next, after, weight, means, latencies, expected, stages);
+    }
+
+    private ToDoubleFunction<Stage> withoutStage(ToDoubleFunction<Stage> means, Stage removed) {
+        return stage -> stage.equals(removed) ? 0 : means.applyAsDouble(stage);
+    }
+
+    private void criticalPath(ExecutionGroup group, ToDoubleFunction<Stage> means, StageLatencies latencies, List<String> path) {
+        if (group == null) {
+            return;
+        }
+
+        Stage critical = group.main;
+        for (Stage leaf : group.leaves) {
+            if (means.applyAsDouble(leaf) > means.applyAsDouble(critical)) {
+                critical = leaf;
+            }
+        }
+        path.add(critical.name());
+
+        if (latencies.getFailureRate(group.main.name()) > 0) {
+            criticalPath(group.recovery, means, latencies, path);
+        }
+        criticalPath(group.next, means, latencies, path);
+    }
+
+    private long[] simulate(ExecutionGroup root, StageLatencies latencies) {
+        Map<String, long[]> samples = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(simulations);
+        long[] simulated = new long[simulations];
+        for (int i = 0; i < simulations; i++) {
+            simulated[i] = simulate(root, latencies, samples, random);
+        }
+        Arrays.sort(simulated);
+        return simulated;
+    }
+
+    private long simulate(ExecutionGroup group, StageLatencies latencies, Map<String, long[]> samples, SplittableRandom random) {
+        if (group == null) {
+            return 0;
+        }
+
+        long duration = draw(group.main, latencies, samples, random);
+        for (Stage leaf : group.leaves) {
+            duration = Math.max(duration, draw(leaf, latencies, samples, random));
+        }
+        if (random.nextDouble() < latencies.getFailureRate(group.main.name())) {
+            duration += simulate(group.recovery, latencies, samples, random);
+        }
+        return duration + simulate(group.next, latencies, samples, random);
+    }
+
+    private long draw(Stage stage, StageLatencies latencies, Map<String, long[]> samples, SplittableRandom random) {
+        long[] stageSamples = samples.computeIfAbsent(stage.name(), latencies::getSamples);
+        return stageSamples.length == 0 ? 0 : stageSamples[random.nextInt(stageSamples.length)];
+    }
+
+    private List<LatencyRecommendation> recommend(ExecutionGroup root, StageLatencies latencies, Map<String, StageAnalysis> stages, double expected) {
+        Set<String> leaves = new HashSet<>();
+        collectLeaves(root, leaves);
+
+        List<LatencyRecommendation> recommendations = new ArrayList<>();
+        for (StageAnalysis stage : stages.values()) {
+            if (stage.getPotentialSavingsNanos() <= 0 || stage.getPotentialSavingsNanos() < expected * MINIMUM_SHARE) {
+                continue;
+            }
+
+            String name = stage.getStageName();
+            String savings = "saves up to " + LatencyAnalysis.millis(stage.getPotentialSavingsNanos())
+                    + String.format(" (%.0f%% of expected latency)", 100 * stage.getPotentialSavingsNanos() / expected);
+            long median = latencies.getPercentileNanos(name, 50);
+            long tail = latencies.getPercentileNanos(name, 99);
+
+            if (leaves.contains(name)) {
+                recommendations.add(new LatencyRecommendation(name, LatencyRecommendation.Kind.PARALLELIZE, stage.getPotentialSavingsNanos(),
+                        "terminal stage that the pipeline waits for; running it off the critical path " + savings));
+            } else if (median > 0 && tail >= LONG_TAIL_RATIO * median) {
+                recommendations.add(new LatencyRecommendation(name, LatencyRecommendation.Kind.CACHE, stage.getPotentialSavingsNanos(),
+                        "p99 " + LatencyAnalysis.millis(tail) + " vs p50 " + LatencyAnalysis.millis(median) + "; caching or hedging " + savings));
+            } else {
+                recommendations.add(new LatencyRecommendation(name, LatencyRecommendation.Kind.SPEED_UP, stage.getPotentialSavingsNanos(),
+                        "on the critical path; speeding it up " + savings));
+            }
+        }
+
+        recommendations.sort(Comparator.comparingLong(LatencyRecommendation::getPotentialSavingsNanos).reversed());
+        return recommendations;
+    }
+
+    private void collectLeaves(ExecutionGroup group, Set<String> leaves) {
+        if (group == null) {
+            return;
+        }
+        leaves.addAll(group.leaves.stream().map(Stage::name).collect(Collectors.toList()));
+        collectLeaves(group.recovery, leaves);
+        collectLeaves(group.next, leaves);
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.graph.analysis;
+
+import com.ibm.cusp.graph.stages.Stage;
+
+import java.util.List;
+
+/**
+ * A group of stages that a {@link com.ibm.cusp.execution.CuspExecutor} runs together: a main stage, whose output is
+ * passed on, and the terminal stages started beside it. The pipeline moves on to the next group once all of them
+ * finish and, if the main stage failed, once its recovery chain finishes.
+ */
+final class ExecutionGroup {
+    final Stage main;
+    final List<Stage> leaves;
+    final ExecutionGroup recovery;
+    final ExecutionGroup next;
+
+    ExecutionGroup(Stage main, List<Stage> leaves, ExecutionGroup recovery, ExecutionGroup next) {
+        this.main = main;
+        this.leaves = leaves;
+        this.recovery = recovery;
+        this.next = next;
+    }
+}
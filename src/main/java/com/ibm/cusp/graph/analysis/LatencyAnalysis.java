@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.graph.analysis;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The result of {@link CriticalPathAnalyzer#analyze(String, StageLatencies)}: the critical path, per-stage slack, the
+ * simulated end-to-end latency distribution, and recommendations ordered by how much they could save.
+ */
+public class LatencyAnalysis {
+    private final List<String> criticalPath;
+    private final long expectedLatencyNanos;
+    private final long[] simulatedLatencies;
+    private final Map<String, StageAnalysis> stages;
+    private final List<LatencyRecommendation> recommendations;
+
+    LatencyAnalysis(List<String> criticalPath, long expectedLatencyNanos, long[] simulatedLatencies,
+                    Map<String, StageAnalysis> stages, List<LatencyRecommendation> recommendations) {
+        this.criticalPath = Collections.unmodifiableList(criticalPath);
+        this.expectedLatencyNanos = expectedLatencyNanos;
+        this.simulatedLatencies = simulatedLatencies;
+        this.stages = Collections.unmodifiableMap(stages);
+        this.recommendations = Collections.unmodifiableList(recommendations);
+    }
+
+    /**
+     * Names of the stages that determine the expected end-to-end latency, in execution order. Recovery stages appear
+     * when the stage they recover fails often enough to add to the expected latency.
+     * @return
+     */
+    public List<String> getCriticalPath() {
+        return criticalPath;
+    }
+
+    /**
+     * Expected end-to-end latency computed from stage means and failure rates.
+     * @return
+     */
+    public long getExpectedLatencyNanos() {
+        return expectedLatencyNanos;
+    }
+
+    /**
+     * End-to-end latency at {@code percentile}, from a simulation that draws every stage's latency from its samples.
+     * @param percentile between 0 and 100
+     * @return
+     */
+    public long getLatencyPercentileNanos(double percentile) {
+        return StageLatencies.percentile(simulatedLatencies, percentile);
+    }
+
+    public StageAnalysis getStage(String stageName) {
+        return stages.get(stageName);
+    }
+
+    public Collection<StageAnalysis> getStages() {
+        return stages.values();
+    }
+
+    public List<LatencyRecommendation> getRecommendations() {
+        return recommendations;
+    }
+
+    /**
+     * A human readable summary, e.g. for logging.
+     * @return
+     */
+    public String describe() {
+        StringBuilder description = new StringBuilder()
+                .append("expected ").append(millis(expectedLatencyNanos))
+                .append(", p50 ").append(millis(getLatencyPercentileNanos(50)))
+                .append(", p99 ").append(millis(getLatencyPercentileNanos(99)))
+                .append("; critical path ").append(String.join(" -> ", criticalPath));
+        for (LatencyRecommendation recommendation : recommendations) {
+            description.append(System.lineSeparator()).append("  ").append(recommendation);
+        }
+        return description.toString();
+    }
+
+    static String millis(long nanos) {
+        return String.format("%.3fms", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    @Override
+    public String toString() {
+        return describe();
+    }
+}
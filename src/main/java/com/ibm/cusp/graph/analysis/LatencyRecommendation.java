@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.graph.analysis;
+
+/**
+ * A suggestion from {@link CriticalPathAnalyzer} about a stage worth optimizing, with an estimate of how much the
+ * expected end-to-end latency would drop if the stage took no time at all.
+ */
+public class LatencyRecommendation {
+    public enum Kind {
+        /** The stage is on the critical path; making it faster shortens the pipeline. */
+        SPEED_UP,
+        /** The stage is on the critical path and has a long tail; caching or hedging its result pays off most. */
+        CACHE,
+        /** The stage runs beside the critical path but the pipeline waits for it; take it off the join or speed it up. */
+        PARALLELIZE
+    }
+
+    private final String stageName;
+    private final Kind kind;
+    private final long potentialSavingsNanos;
+    private final String reason;
+
+    LatencyRecommendation(String stageName, Kind kind, long potentialSavingsNanos, String reason) {
+        this.stageName = stageName;
+        this.kind = kind;
+        this.potentialSavingsNanos = potentialSavingsNanos;
+        this.reason = reason;
+    }
+
+    public String getStageName() {
+        return stageName;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public long getPotentialSavingsNanos() {
+        return potentialSavingsNanos;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + stageName + ": " + reason;
+    }
+}
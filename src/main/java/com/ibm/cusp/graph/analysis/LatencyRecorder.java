@@ -0,0 +1,62 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.graph.analysis;
+
+import com.ibm.cusp.execution.StageOutcomeListener;
+import com.ibm.cusp.graph.stages.Stage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link StageOutcomeListener} that records the elapsed time of every stage outcome into {@link StageLatencies}, for
+ * use with {@link CriticalPathAnalyzer}.
+ */
+public class LatencyRecorder implements StageOutcomeListener {
+    private final StageLatencies latencies;
+
+    public LatencyRecorder() {
+        this(new StageLatencies());
+    }
+
+    public LatencyRecorder(StageLatencies latencies) {
+        this.latencies = latencies;
+    }
+
+    public StageLatencies getLatencies() {
+        return latencies;
+    }
+
+    @Override
+    public void success(Stage currentStage, Object currentStageOutput, long elapsedMs) {
+        latencies.record(currentStage.name(), TimeUnit.MILLISECONDS.toNanos(elapsedMs), false);
+    }
+
+    @Override
+    public void failure(Stage failureStage, Throwable throwable, long elapsedMs) {
+        latencies.record(failureStage.name(), TimeUnit.MILLISECONDS.toNanos(elapsedMs), true);
+    }
+
+    @Override
+    public void recover(Stage currentStage, Stage recoverStage, Throwable throwable, long elapsedMs) {
+        latencies.record(currentStage.name(), TimeUnit.MILLISECONDS.toNanos(elapsedMs), true);
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.graph.analysis;
+
+/**
+ * Latency figures for one stage, as computed by {@link CriticalPathAnalyzer}. All durations are expected values in
+ * nanoseconds.
+ */
+public class StageAnalysis {
+    private final String stageName;
+    private final boolean sampled;
+    private final long meanNanos;
+    private final double failureRate;
+    private final long slackNanos;
+    private final long remainingCriticalPathNanos;
+    private final long potentialSavingsNanos;
+    private final boolean onCriticalPath;
+
+    StageAnalysis(String stageName, boolean sampled, long meanNanos, double failureRate, long slackNanos,
+                  long remainingCriticalPathNanos, long potentialSavingsNanos, boolean onCriticalPath) {
+        this.stageName = stageName;
+        this.sampled = sampled;
+        this.meanNanos = meanNanos;
+        this.failureRate = failureRate;
+        this.slackNanos = slackNanos;
+        this.remainingCriticalPathNanos = remainingCriticalPathNanos;
+        this.potentialSavingsNanos = potentialSavingsNanos;
+        this.onCriticalPath = onCriticalPath;
+    }
+
+    public String getStageName() {
+        return stageName;
+    }
+
+    /**
+     * Whether any latency samples were available for this stage; stages without samples are assumed to take no time.
+     * @return
+     */
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    public long getMeanNanos() {
+        return meanNanos;
+    }
+
+    public double getFailureRate() {
+        return failureRate;
+    }
+
+    /**
+     * How much longer this stage could take before it delays the pipeline.
+     * @return
+     */
+    public long getSlackNanos() {
+        return slackNanos;
+    }
+
+    /**
+     * Expected time from the moment this stage starts until the pipeline completes, along the longest path through it.
+     * @return
+     */
+    public long getRemainingCriticalPathNanos() {
+        return remainingCriticalPathNanos;
+    }
+
+    /**
+     * How much the expected end-to-end latency would drop if this stage took no time.
+     * @return
+     */
+    public long getPotentialSavingsNanos() {
+        return potentialSavingsNanos;
+    }
+
+    public boolean isOnCriticalPath() {
+        return onCriticalPath;
+    }
+
+    @Override
+    public String toString() {
+        return stageName + "{mean=" + meanNanos + "ns, slack=" + slackNanos + "ns, critical=" + onCriticalPath + "}";
+    }
+}
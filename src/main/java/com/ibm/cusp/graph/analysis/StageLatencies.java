@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.graph.analysis;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency samples and failure rates per stage, used by {@link CriticalPathAnalyzer}. Samples can be declared up front
+ * (for example from load test results) or recorded while pipelines run using {@link LatencyRecorder}.
+ *
+ * Each stage keeps its most recent {@value #DEFAULT_CAPACITY} samples by default. Recording is lock-free.
+ */
+public class StageLatencies {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final Map<String, StageSamples> samples = new ConcurrentHashMap<>();
+    private final int capacity;
+
+    public StageLatencies() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public StageLatencies(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Declare latency samples for stage {@code stageName}.
+     * @param stageName
+     * @param latencies
+     * @return this
+     */
+    public StageLatencies declare(String stageName, Duration... latencies) {
+        StageSamples stageSamples = samplesOf(stageName);
+        for (Duration latency : latencies) {
+            stageSamples.record(latency.toNanos(), false);
+        }
+        return this;
+    }
+
+    /**
+     * Declare the fraction of executions of stage {@code stageName} that fail, overriding the recorded failure rate.
+     * @param stageName
+     * @param failureRate between 0 and 1
+     * @return this
+     */
+    public StageLatencies declareFailureRate(String stageName, double failureRate) {
+        samplesOf(stageName).declaredFailureRate = failureRate;
+        return this;
+    }
+
+    /**
+     * Record one execution of stage {@code stageName}.
+     * @param stageName
+     * @param elapsedNanos
+     * @param failed whether the execution failed
+     */
+    public void record(String stageName, long elapsedNanos, boolean failed) {
+        samplesOf(stageName).record(elapsedNanos, failed);
+    }
+
+    public boolean hasSamples(String stageName) {
+        StageSamples stageSamples = samples.get(stageName);
+        return stageSamples != null && stageSamples.count.get() > 0;
+    }
+
+    public Set<String> getStageNames() {
+        return samples.keySet();
+    }
+
+    /**
+     * The retained samples of stage {@code stageName} in nanoseconds, sorted ascending; empty if none were recorded.
+     * @param stageName
+     * @return
+     */
+    public long[] getSamples(String stageName) {
+        StageSamples stageSamples = samples.get(stageName);
+        return stageSamples == null ? new long[0] : stageSamples.sorted();
+    }
+
+    public double getMeanNanos(String stageName) {
+        long[] sorted = getSamples(stageName);
+        return sorted.length == 0 ? 0 : Arrays.stream(sorted).average().orElse(0);
+    }
+
+    /**
+     * @param stageName
+     * @param percentile between 0 and 100
+     * @return the sample at {@code percentile}, or 0 if there are no samples
+     */
+    public long getPercentileNanos(String stageName, double percentile) {
+        return percentile(getSamples(stageName), percentile);
+    }
+
+    public double getFailureRate(String stageName) {
+        StageSamples stageSamples = samples.get(stageName);
+        if (stageSamples == null) {
+            return 0;
+        }
+        if (stageSamples.declaredFailureRate >= 0) {
+            return stageSamples.declaredFailureRate;
+        }
+
+        long count = stageSamples.count.get();
+        return count == 0 ? 0 : (double) stageSamples.failures.sum() / count;
+    }
+
+    static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private StageSamples samplesOf(String stageName) {
+        return samples.computeIfAbsent(stageName, name -> new StageSamples(capacity));
+    }
+
+    private static class StageSamples {
+        private final AtomicLongArray ring;
+        private final AtomicLong count = new AtomicLong();
+        private final LongAdder failures = new LongAdder();
+        private volatile double declaredFailureRate = -1;
+
+        StageSamples(int capacity) {
+            this.ring = new AtomicLongArray(capacity);
+        }
+
+        void record(long elapsedNanos, boolean failed) {
+            long index = count.getAndIncrement();
+            ring.set((int) (index % ring.length()), elapsedNanos);
+            if (failed) {
+                failures.increment();
+            }
+        }
+
+        long[] sorted() {
+            int size = (int) Math.min(count.get(), ring.length());
+            long[] values = new long[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = ring.get(i);
+            }
+            Arrays.sort(values);
+            return values;
+        }
+    }
+}
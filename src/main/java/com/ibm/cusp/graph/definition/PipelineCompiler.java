@@ -0,0 +1,299 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.graph.definition;
+
+import com.ibm.cusp.graph.Cusp;
+import com.ibm.cusp.graph.conditions.Conditions;
+import com.ibm.cusp.graph.errors.CuspConstructionError;
+import com.ibm.cusp.graph.errors.InvalidPipelineDefinitionException;
+import com.ibm.cusp.graph.stages.CustomOutcome;
+import com.ibm.cusp.graph.stages.Stage;
+import com.ibm.cusp.graph.stages.StageOutcomes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Turns {@link PipelineDefinition}s into validated {@link PipelinePlan}s, and plans into {@link Cusp} graphs ready for
+ * execution.
+ *
+ * Compiling instantiates every stage, type checks every route, runs the graph tests of {@link Cusp#validateGraph()},
+ * and checks that no stage feeds more than one nonterminal stage. Loading a plan only instantiates the stages and
+ * checks that their types have not changed since the plan was compiled.
+ *
+ * The {@link #main(String...)} method compiles definition files ahead of time, so that a build can reject invalid
+ * definitions and ship precompiled plans.
+ */
+public class PipelineCompiler {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Map<String, StageFactory> factories = new ConcurrentHashMap<>();
+    private final ClassLoader classLoader;
+
+    public PipelineCompiler() {
+        this(Optional.ofNullable(Thread.currentThread().getContextClassLoader())
+                .orElse(PipelineCompiler.class.getClassLoader()));
+    }
+
+    public PipelineCompiler(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Make {@code factory} available to stage definitions that reference {@code name} as their factory. A registered
+     * factory takes precedence over a factory class of the same name.
+     *
+     * @param name
+     * @param factory
+     */
+    public void registerFactory(String name, StageFactory factory) {
+        factories.put(name, factory);
+    }
+
+    /**
+     * Compile and validate {@code definition}.
+     *
+     * @param definition
+     * @return a plan that can be serialized and later loaded without validating again
+     * @throws CuspConstructionError if the definition does not describe a valid pipeline
+     */
+    public PipelinePlan compile(PipelineDefinition definition) throws CuspConstructionError {
+        Cusp cusp = build(definition);
+
+        Map<String, String> inputTypes = new LinkedHashMap<>();
+        Map<String, String> outputTypes = new LinkedHashMap<>();
+        for (StageDefinition stageDefinition : definition.getStages()) {
+            Stage stage = cusp.getStage(stageDefinition.getName());
+            inputTypes.put(stage.name(), stage.getInputType().getName());
+            outputTypes.put(stage.name(), stage.getOutputType().getName());
+        }
+
+        logger.debug("Compiled pipeline {} with {} stages and {} routes", definition.getName(), definition.getStages().size(), definition.getRoutes().size());
+        return new PipelinePlan(definition, inputTypes, outputTypes);
+    }
+
+    /**
+     * Compile and validate {@code definition}, returning the resulting graph directly.
+     *
+     * @param definition
+     * @return
+     * @throws CuspConstructionError if the definition does not describe a valid pipeline
+     */
+    public Cusp build(PipelineDefinition definition) throws CuspConstructionError {
+        Cusp cusp = assemble(definition);
+        cusp.validateGraph();
+        return cusp;
+    }
+
+    /**
+     * Create the graph described by a previously compiled {@code plan} without repeating graph validation.
+     *
+     * @param plan
+     * @return
+     * @throws CuspConstructionError if a stage no longer has the types it was compiled with
+     */
+    public Cusp load(PipelinePlan plan) throws CuspConstructionError {
+        PipelineDefinition definition = plan.definition();
+        Cusp cusp = assemble(definition);
+
+        for (StageDefinition stageDefinition : definition.getStages()) {
+            Stage stage = cusp.getStage(stageDefinition.getName());
+            if (!stage.getInputType().getName().equals(plan.getInputType(stage.name()))
+                    || !stage.getOutputType().getName().equals(plan.getOutputType(stage.name()))) {
+                throw new InvalidPipelineDefinitionException(definition.getName(),
+                        "stage {0} maps {1} to {2} but the plan was compiled for {3} to {4}; recompile the plan",
+                        stage.name(),
+                        stage.getInputType().getName(),
+                        stage.getOutputType().getName(),
+                        plan.getInputType(stage.name()),
+                        plan.getOutputType(stage.name()));
+            }
+        }
+
+        cusp.assumeValidated();
+        logger.debug("Loaded precompiled pipeline {}", definition.getName());
+        return cusp;
+    }
+
+    private Cusp assemble(PipelineDefinition definition) {
+        String pipelineName = definition.getName();
+        if (definition.getInitialStage() == null) {
+            throw new InvalidPipelineDefinitionException(pipelineName, "no initial stage declared");
+        }
+
+        Cusp cusp = new Cusp();
+        for (StageDefinition stageDefinition : definition.getStages()) {
+            cusp.addStage(instantiate(pipelineName, stageDefinition));
+        }
+
+        for (RouteDefinition route : definition.getRoutes()) {
+            CustomOutcome<?> customOutcome = route.getOutcome() == null ? null : CustomOutcome.forName(route.getOutcome());
+            if (customOutcome != null) {
+                cusp.addRoute(route.getFrom(), customOutcome, route.getTo());
+            } else {
+                cusp.addRoute(route.getFrom(), resolveOutcome(pipelineName, route), route.getTo(), resolveConditions(pipelineName, route));
+            }
+        }
+
+        cusp.getStage(definition.getInitialStage());
+        return cusp;
+    }
+
+    private Stage<?, ?> instantiate(String pipelineName, StageDefinition definition) {
+        if (definition.getName() == null) {
+            throw new InvalidPipelineDefinitionException(pipelineName, "stage declared without a name");
+        }
+        if ((definition.getClassName() == null) == (definition.getFactory() == null)) {
+            throw new InvalidPipelineDefinitionException(pipelineName, "stage {0} must declare exactly one of class or factory", definition.getName());
+        }
+
+        Stage<?, ?> stage;
+        try {
+            if (definition.getFactory() != null) {
+                stage = resolveFactory(definition.getFactory()).create(definition);
+            } else {
+                stage = newInstance(definition.getClassName(), Stage.class);
+            }
+        } catch (CuspConstructionError e) {
+            throw e;
+        } catch (Exception e) {
+            throw new InvalidPipelineDefinitionException(pipelineName, e);
+        }
+
+        if (stage == null || !definition.getName().equals(stage.name())) {
+            throw new InvalidPipelineDefinitionException(pipelineName, "stage {0} was created with name {1}",
+                    definition.getName(), stage == null ? null : stage.name());
+        }
+
+        return stage;
+    }
+
+    private StageFactory resolveFactory(String name) throws ReflectiveOperationException {
+        StageFactory factory = factories.get(name);
+        if (factory == null) {
+            factory = newInstance(name, StageFactory.class);
+            factories.putIfAbsent(name, factory);
+        }
+        return factory;
+    }
+
+    private <T> T newInstance(String className, Class<T> expectedType) throws ReflectiveOperationException {
+        Class<?> type = Class.forName(className, true, classLoader);
+        if (!expectedType.isAssignableFrom(type)) {
+            throw new ClassCastException(className + " is not a " + expectedType.getSimpleName());
+        }
+
+        Constructor<?> constructor = type.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        return expectedType.cast(constructor.newInstance());
+    }
+
+    /**
+     * Outcomes other than {@link StageOutcomes} name a {@link CustomOutcome}, which must be declared by the time the
+     * definition is compiled, typically in a static field of the stage emitting it.
+     */
+    private StageOutcomes resolveOutcome(String pipelineName, RouteDefinition route) {
+        try {
+            return StageOutcomes.valueOf(route.getOutcome());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new InvalidPipelineDefinitionException(pipelineName, "route {0} has unknown outcome {1}", route, route.getOutcome());
+        }
+    }
+
+    private Conditions[] resolveConditions(String pipelineName, RouteDefinition route) {
+        Conditions[] conditions = new Conditions[route.getConditions().size()];
+        for (int i = 0; i < conditions.length; i++) {
+            try {
+                conditions[i] = Conditions.valueOf(route.getConditions().get(i));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidPipelineDefinitionException(pipelineName, "route {0} has unknown condition {1}", route, route.getConditions().get(i));
+            }
+        }
+        return conditions;
+    }
+
+    /**
+     * Compile pipeline definition files ahead of time. Arguments are JSON definition files or directories containing
+     * them; with {@code --output <directory>}, a {@code <name>.plan} file is written for each compiled definition.
+     * Exits with a nonzero status if any definition is invalid.
+     *
+     * @param args
+     */
+    public static void main(String... args) {
+        Path outputDirectory = null;
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--output".equals(args[i]) && i + 1 < args.length) {
+                outputDirectory = Paths.get(args[++i]);
+            } else {
+                inputs.add(Paths.get(args[i]));
+            }
+        }
+
+        PipelineCompiler compiler = new PipelineCompiler();
+        int failures = 0;
+        for (Path definitionFile : definitionFiles(inputs)) {
+            try {
+                PipelinePlan plan = compiler.compile(PipelineDefinition.read(definitionFile));
+                if (outputDirectory != null) {
+                    Files.createDirectories(outputDirectory);
+                    try (OutputStream out = Files.newOutputStream(outputDirectory.resolve(plan.getName() + ".plan"))) {
+                        plan.writeTo(out);
+                    }
+                }
+                System.out.println("Compiled pipeline definition " + definitionFile);
+            } catch (IOException | RuntimeException | AssertionError e) {
+                failures++;
+                System.err.println("Invalid pipeline definition " + definitionFile + ": " + e.getMessage());
+            }
+        }
+
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static List<Path> definitionFiles(List<Path> inputs) {
+        List<Path> files = new ArrayList<>();
+        for (Path input : inputs) {
+            if (Files.isDirectory(input)) {
+                try (Stream<Path> walk = Files.walk(input)) {
+                    walk.filter(path -> path.toString().endsWith(".json")).sorted().forEach(files::add);
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("Unable to list pipeline definitions in " + input, e);
+                }
+            } else {
+                files.add(input);
+            }
+        }
+        return files;
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.graph.definition;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A declarative description of a pipeline: its stages, the routes between them, and the stage it starts from. A
+ * definition is usually read from JSON, e.g.:
+ * <pre>
+ * {
+ *   "name": "widgets",
+ *   "initialStage": "receiveRequest",
+ *   "stages": [
+ *     { "name": "receiveRequest", "class": "com.example.WidgetPurchaseRequestStage" },
+ *     { "name": "sendEmail", "factory": "emailStages", "parameters": { "server": "smtp.example.com" } }
+ *   ],
+ *   "routes": [
+ *     { "from": "receiveRequest", "outcome": "SUCCESS", "to": "sendEmail" }
+ *   ]
+ * }
+ * </pre>
+ * and then compiled into a {@link PipelinePlan} with a {@link PipelineCompiler}.
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class PipelineDefinition implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .enable(SerializationFeature.INDENT_OUTPUT);
+
+    private String name;
+    private String initialStage;
+    private List<StageDefinition> stages = new ArrayList<>();
+    private List<RouteDefinition> routes = new ArrayList<>();
+
+    public static PipelineDefinition read(InputStream in) throws IOException {
+        return MAPPER.readValue(in, PipelineDefinition.class);
+    }
+
+    public static PipelineDefinition read(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return read(in);
+        }
+    }
+
+    public void write(OutputStream out) throws IOException {
+        MAPPER.writeValue(out, this);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Identifier of the stage that receives the pipeline input.
+     * @return
+     */
+    public String getInitialStage() {
+        return initialStage;
+    }
+
+    public void setInitialStage(String initialStage) {
+        this.initialStage = initialStage;
+    }
+
+    public List<StageDefinition> getStages() {
+        return stages;
+    }
+
+    public void setStages(List<StageDefinition> stages) {
+        this.stages = stages == null ? new ArrayList<>() : stages;
+    }
+
+    public List<RouteDefinition> getRoutes() {
+        return routes;
+    }
+
+    public void setRoutes(List<RouteDefinition> routes) {
+        this.routes = routes == null ? new ArrayList<>() : routes;
+    }
+
+    public PipelineDefinition addStage(StageDefinition stage) {
+        stages.add(stage);
+        return this;
+    }
+
+    public PipelineDefinition addRoute(RouteDefinition route) {
+        routes.add(route);
+        return this;
+    }
+
+    /**
+     * @return a deep copy of this definition, made only of the collection types a {@link PipelinePlan} is read with
+     */
+    PipelineDefinition copy() {
+        PipelineDefinition copy = new PipelineDefinition();
+        copy.name = name;
+        copy.initialStage = initialStage;
+        for (StageDefinition stage : stages) {
+            copy.stages.add(stage.copy());
+        }
+        for (RouteDefinition route : routes) {
+            copy.routes.add(route.copy());
+        }
+        return copy;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PipelineDefinition that = (PipelineDefinition) o;
+        return Objects.equals(name, that.name) &&
+                Objects.equals(initialStage, that.initialStage) &&
+                Objects.equals(stages, that.stages) &&
+                Objects.equals(routes, that.routes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, initialStage, stages, routes);
+    }
+}
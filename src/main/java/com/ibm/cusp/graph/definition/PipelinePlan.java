@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.graph.definition;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link PipelineDefinition} that has been compiled and validated by a {@link PipelineCompiler}, together with the
+ * input and output types each stage had at compile time.
+ *
+ * Plans are serializable so that they can be produced ahead of time (for example by the build) and cached; loading a
+ * plan with {@link PipelineCompiler#load(PipelinePlan)} skips parsing and graph validation, and only checks that the
+ * stage classes still have the types they were compiled with.
+ */
+public final class PipelinePlan implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final Set<String> SERIALIZED_CLASSES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            PipelinePlan.class.getName(),
+            PipelineDefinition.class.getName(),
+            StageDefinition.class.getName(),
+            RouteDefinition.class.getName(),
+            "java.util.ArrayList",
+            "java.util.LinkedHashMap",
+            "java.util.HashMap",
+            "java.lang.String"
+    )));
+
+    private final PipelineDefinition definition;
+    private final LinkedHashMap<String, String> inputTypes;
+    private final LinkedHashMap<String, String> outputTypes;
+
+    /**
+     * The plan keeps a copy of {@code definition}, so that editing the definition after it was compiled cannot change
+     * what a plan that is loaded without validation contains.
+     */
+    PipelinePlan(PipelineDefinition definition, Map<String, String> inputTypes, Map<String, String> outputTypes) {
+        this.definition = definition.copy();
+        this.inputTypes = new LinkedHashMap<>(inputTypes);
+        this.outputTypes = new LinkedHashMap<>(outputTypes);
+    }
+
+    /**
+     * Read a plan written by {@link #writeTo(OutputStream)}. Only the classes that make up a plan are accepted from
+     * the stream.
+     *
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    public static PipelinePlan readFrom(InputStream in) throws IOException {
+        try (ObjectInputStream objects = new PlanInputStream(in)) {
+            return (PipelinePlan) objects.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unable to read pipeline plan", e);
+        }
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        ObjectOutputStream objects = new ObjectOutputStream(out);
+        objects.writeObject(this);
+        objects.flush();
+    }
+
+    public String getName() {
+        return definition.getName();
+    }
+
+    public String getInitialStageName() {
+        return definition.getInitialStage();
+    }
+
+    /**
+     * @return a copy of the compiled definition
+     */
+    public PipelineDefinition getDefinition() {
+        return definition.copy();
+    }
+
+    PipelineDefinition definition() {
+        return definition;
+    }
+
+    /**
+     * Input type of stage {@code stageName} when this plan was compiled.
+     * @param stageName
+     * @return
+     */
+    public String getInputType(String stageName) {
+        return inputTypes.get(stageName);
+    }
+
+    /**
+     * Output type of stage {@code stageName} when this plan was compiled.
+     * @param stageName
+     * @return
+     */
+    public String getOutputType(String stageName) {
+        return outputTypes.get(stageName);
+    }
+
+    private static class PlanInputStream extends ObjectInputStream {
+        PlanInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if (!SERIALIZED_CLASSES.contains(desc.getName())) {
+                throw new InvalidClassException(desc.getName(), "not part of a pipeline plan");
+            }
+            return super.resolveClass(desc);
+        }
+    }
+}
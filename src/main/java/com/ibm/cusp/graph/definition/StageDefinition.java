@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.graph.definition;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Declares one stage of a {@link PipelineDefinition}, either by the name of a {@link com.ibm.cusp.graph.stages.Stage}
+ * class with a no-argument constructor or by the name of a {@link StageFactory} that creates it.
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class StageDefinition implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String name;
+    private String className;
+    private String factory;
+    private Map<String, String> parameters = new LinkedHashMap<>();
+
+    public StageDefinition() {
+    }
+
+    public StageDefinition(String name, String className, String factory) {
+        this.name = name;
+        this.className = className;
+        this.factory = factory;
+    }
+
+    /**
+     * The stage identifier; must match the {@code name()} of the stage that is created.
+     * @return
+     */
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Fully qualified name of the stage class to instantiate, or null if a factory is used.
+     * @return
+     */
+    @JsonProperty("class")
+    public String getClassName() {
+        return className;
+    }
+
+    @JsonProperty("class")
+    public void setClassName(String className) {
+        this.className = className;
+    }
+
+    /**
+     * Name of a factory registered with {@link PipelineCompiler#registerFactory(String, StageFactory)}, or the fully
+     * qualified name of a {@link StageFactory} class with a no-argument constructor.
+     * @return
+     */
+    public String getFactory() {
+        return factory;
+    }
+
+    public void setFactory(String factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Free-form parameters handed to the stage factory.
+     * @return
+     */
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+
+    public void setParameters(Map<String, String> parameters) {
+        this.parameters = parameters == null ? new LinkedHashMap<>() : parameters;
+    }
+
+    StageDefinition copy() {
+        StageDefinition copy = new StageDefinition(name, className, factory);
+        copy.parameters.putAll(parameters);
+        return copy;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StageDefinition that = (StageDefinition) o;
+        return Objects.equals(name, that.name) &&
+                Objects.equals(className, that.className) &&
+                Objects.equals(factory, that.factory) &&
+                Objects.equals(parameters, that.parameters);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, className, factory, parameters);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -31,5 +31,8 @@ public enum CuspErrorCode {
     INFINITE_LOOP,
     EMPTY_PIPELINE,
     UNREACHABLE_STAGE,
+    INVALID_PIPELINE_DEFINITION,
+    INVALID_SUB_PIPELINE,
+    CANCELLED,
     UNKNOWN
 }
@@ -26,12 +26,15 @@ import java.text.MessageFormat;
 public class CuspExecutionError extends Exception implements CuspError<CuspErrorCode> {
     private final String description;
     private final CuspErrorCode code;
+    private final Object[] args;
+    private String formattedDescription;
 
     public CuspExecutionError(Throwable t, CuspErrorCode code, String description) {
         super(code + ": " + description, t);
 
         this.code = code;
         this.description = description;
+        this.args = null;
     }
 
     public CuspExecutionError(CuspErrorCode code, String description) {
@@ -39,6 +42,7 @@ public class CuspExecutionError extends Exception implements CuspError<CuspError
 
         this.code = code;
         this.description = description;
+        this.args = null;
     }
 
     public CuspExecutionError(CuspErrorCode code, String description, Object... args) {
@@ -46,6 +50,7 @@ public class CuspExecutionError extends Exception implements CuspError<CuspError
 
         this.code = code;
         this.description = description;
+        this.args = null;
     }
 
     public CuspExecutionError(Throwable t, CuspErrorCode code, String description, Object... args) {
@@ -53,6 +58,19 @@ public class CuspExecutionError extends Exception implements CuspError<CuspError
 
         this.code = code;
         this.description = MessageFormat.format(description, args);
+        this.args = null;
+    }
+
+    /**
+     * For errors raised routinely while executing: the description is formatted from {@code args} only when it is
+     * first asked for, and the stack trace is captured only if {@code writableStackTrace}.
+     */
+    protected CuspExecutionError(Throwable t, CuspErrorCode code, boolean writableStackTrace, String description, Object... args) {
+        super(null, t, false, writableStackTrace);
+
+        this.code = code;
+        this.description = description;
+        this.args = args;
     }
 
     @Override
@@ -62,11 +80,22 @@ public class CuspExecutionError extends Exception implements CuspError<CuspError
 
     @Override
     public String getDescription() {
-        return description;
+        if (args == null) {
+            return description;
+        }
+        if (formattedDescription == null) {
+            formattedDescription = MessageFormat.format(description, args);
+        }
+        return formattedDescription;
+    }
+
+    @Override
+    public String getMessage() {
+        return args == null ? super.getMessage() : code + ": " + getDescription();
     }
 
     @Override
     public String toString() {
-        return MessageFormat.format("Error {0}: {1}", code.name(), description);
+        return MessageFormat.format("Error {0}: {1}", code.name(), getDescription());
     }
 }
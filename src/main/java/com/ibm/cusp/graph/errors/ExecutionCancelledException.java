@@ -0,0 +1,46 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.graph.errors;
+
+import static com.ibm.cusp.graph.errors.CuspErrorCode.CANCELLED;
+
+/**
+ * Thrown for a stage that was skipped or stopped, or a whole execution that failed, because the execution was
+ * cancelled with a {@link com.ibm.cusp.execution.Cancellation}. Like other stage failures it is stackless.
+ */
+public class ExecutionCancelledException extends StageFailedException {
+    public ExecutionCancelledException(String name, String reason) {
+        this(name, reason, null);
+    }
+
+    /**
+     * @param name stage or pipeline cancelled
+     * @param reason given when cancelling
+     * @param t what a running stage failed with once cancelled, e.g. an {@link InterruptedException}
+     */
+    public ExecutionCancelledException(String name, String reason, Throwable t) {
+        super(t, CANCELLED,
+                "{0} was cancelled: {1}",
+                name,
+                reason);
+    }
+}
@@ -30,4 +30,26 @@ public class StageFailedException extends CuspExecutionError {
                 stage,
                 t.getMessage());
     }
+
+    private StageFailedException(String stage, Throwable t, boolean writableStackTrace) {
+        super(t, STAGE_FAILED, writableStackTrace,
+                "Stage {0} failed: {1}",
+                stage,
+                t.getMessage());
+    }
+
+    /**
+     * For stage failures with their own code and description, e.g. cancellation; stackless like {@link #stackless}.
+     */
+    protected StageFailedException(Throwable t, CuspErrorCode code, String description, Object... args) {
+        super(t, code, false, description, args);
+    }
+
+    /**
+     * Wrap a stage's failure without capturing a stack trace, which would only show the executor's frames; the
+     * failure itself keeps its own.
+     */
+    public static StageFailedException stackless(String stage, Throwable t) {
+        return new StageFailedException(stage, t, false);
+    }
 }
@@ -29,17 +29,30 @@ import java.util.Observable;
 import java.util.Observer;
 
 /**
- * {@code CuspObserver} extends {@link java.util.Observer} for use with {@link com.ibm.cusp.graph.observe.CuspStopwatch}.
- * This is an abstract base class so that the consumer can define what action to take with the reported measurement.
+ * {@code CuspObserver} receives measurements from {@link com.ibm.cusp.graph.observe.CuspTimer} and, through
+ * {@link java.util.Observer}, from {@link com.ibm.cusp.graph.observe.CuspStopwatch}.
+ * This is an abstract base class so that the consumer can define what action to take with the reported measurements;
+ * override the {@code receiveDuration} variant for the timing API in use.
  */
 public abstract class CuspObserver implements Observer {
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     /**
-     * Implement this function to handle the measurement reported by {@link com.ibm.cusp.graph.observe.CuspStopwatch}.
+     * Override this function to handle the measurement reported by {@link com.ibm.cusp.graph.observe.CuspStopwatch}.
      * @param stopwatch
+     * @deprecated as {@link com.ibm.cusp.graph.observe.CuspStopwatch} is; override
+     * {@link #receiveDuration(String, long)} for {@link com.ibm.cusp.graph.observe.CuspTimer} instead.
      */
-    public abstract void receiveDuration(CuspStopwatch stopwatch);
+    @Deprecated
+    public void receiveDuration(CuspStopwatch stopwatch) { }
+
+    /**
+     * Override this function to handle the measurement reported by {@link com.ibm.cusp.graph.observe.CuspTimer}. It is
+     * called on the measuring thread, so it should not block.
+     * @param identifier what was measured
+     * @param elapsedNanos
+     */
+    public void receiveDuration(String identifier, long elapsedNanos) { }
 
     /**
      * Attempts to resolve the observable that was notified.
@@ -47,6 +60,7 @@ public abstract class CuspObserver implements Observer {
      * @param arg Currently unused.
      */
     @Override
+    @SuppressWarnings("deprecation") // dispatches to the stopwatch variant for compatibility
     public final void update(Observable observable, Object arg) {
         logger.trace("Observable {} signalled", observable.getClass());
 
@@ -27,10 +27,15 @@ import org.slf4j.LoggerFactory;
 import java.time.Duration;
 import java.util.Observable;
 
+/**
+ * @deprecated notifies through synchronized {@link Observable} code and allocates per measurement; use
+ * {@link CuspTimer}, which reports nanosecond durations without either.
+ */
+@Deprecated
 public class CuspStopwatch extends Observable implements AutoCloseable {
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
-    private final long startTimeMillis;
+    private final long startTimeNanos;
     private final String identifier;
     private Duration duration;
 
@@ -44,13 +49,13 @@ public class CuspStopwatch extends Observable implements AutoCloseable {
      */
     public CuspStopwatch(CuspObserver observer, String stopwatchIdentifier) {
         identifier = stopwatchIdentifier;
-        startTimeMillis = System.currentTimeMillis();
+        startTimeNanos = System.nanoTime();
 
         if(observer != null) {
             addObserver(observer);
         }
 
-        logger.trace("Started stopwatch {} at {}ms", stopwatchIdentifier, startTimeMillis);
+        logger.trace("Started stopwatch {}", stopwatchIdentifier);
     }
 
     /**
@@ -74,11 +79,10 @@ public class CuspStopwatch extends Observable implements AutoCloseable {
      */
     @Override
     public void close() {
-        long endTimeMillis = System.currentTimeMillis();
-        duration = Duration.ofMillis(endTimeMillis - startTimeMillis);
+        duration = Duration.ofNanos(System.nanoTime() - startTimeNanos);
 
         if(countObservers() > 0) {
-            logger.trace("Stopped stopwatch {} at {}ms after {}ms", identifier, endTimeMillis, duration.toMillis());
+            logger.trace("Stopped stopwatch {} after {}ms", identifier, duration.toMillis());
 
             setChanged();
 
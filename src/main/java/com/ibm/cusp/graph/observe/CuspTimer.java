@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.graph.observe;
+
+import java.util.function.Supplier;
+
+/**
+ * {@code CuspTimer} reports execution times (in ns) of arbitrary code blocks to a {@link CuspObserver}. Unlike
+ * {@link CuspStopwatch}, a timer is created once and reused: it measures with {@link System#nanoTime()}, holds no
+ * per-measurement state, and neither allocates nor locks when timing, so it can be shared between threads and used
+ * around small blocks on hot paths.
+ *
+ * <pre>
+ * private final CuspTimer lookupTimer = timer("lookup");
+ * ...
+ * long start = lookupTimer.start();
+ * lookup(input);
+ * lookupTimer.stop(start);
+ * </pre>
+ *
+ * @see com.ibm.cusp.graph.stages.AbstractStage#timer(String)
+ */
+public final class CuspTimer {
+    private final String identifier;
+    private final Supplier<CuspObserver> observer;
+
+    /**
+     * @param identifier user-defined string indicating what is measured
+     * @param observer resolves the {@code CuspObserver} to report to when a measurement completes, so that observers
+     *                 registered after the timer was created are used
+     */
+    public CuspTimer(String identifier, Supplier<CuspObserver> observer) {
+        this.identifier = identifier;
+        this.observer = observer;
+    }
+
+    public CuspTimer(String identifier, CuspObserver observer) {
+        this(identifier, () -> observer);
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    /**
+     * @return the start of a measurement, to be passed to {@link #stop(long)}
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Completes a measurement and reports it.
+     * @param start value returned by {@link #start()}
+     * @return elapsed nanoseconds
+     */
+    public long stop(long start) {
+        long elapsedNanos = System.nanoTime() - start;
+        record(elapsedNanos);
+        return elapsedNanos;
+    }
+
+    /**
+     * Reports a duration measured elsewhere.
+     * @param elapsedNanos
+     */
+    public void record(long elapsedNanos) {
+        CuspObserver currentObserver = observer.get();
+        if (currentObserver != null) {
+            currentObserver.receiveDuration(identifier, elapsedNanos);
+        }
+    }
+}
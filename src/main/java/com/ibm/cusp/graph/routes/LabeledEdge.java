@@ -21,6 +21,7 @@
  */
 package com.ibm.cusp.graph.routes;
 
+import com.ibm.cusp.graph.stages.CustomOutcome;
 import com.ibm.cusp.graph.stages.StageOutcomes;
 import org.jgrapht.graph.DefaultEdge;
 
@@ -28,6 +29,7 @@ import java.util.Objects;
 
 public class LabeledEdge extends DefaultEdge {
     private final StageOutcomes outcome;
+    private final CustomOutcome<?> customOutcome;
     private final String source;
     private final String target;
 
@@ -41,24 +43,46 @@ public class LabeledEdge extends DefaultEdge {
         this.source = source;
         this.target = target;
         this.outcome = outcome;
+        this.customOutcome = null;
     }
 
+    /**
+     * An edge followed when its source stage emits {@code customOutcome}.
+     * @param source name of stage whose emitted value to route
+     * @param target name of stage to which to route the value
+     * @param customOutcome the outcome to require in order to follow this route
+     */
+    public LabeledEdge(String source, String target, CustomOutcome<?> customOutcome) {
+        this.source = source;
+        this.target = target;
+        this.outcome = null;
+        this.customOutcome = customOutcome;
+    }
+
+    /**
+     * @return the outcome to follow this route on, or {@code null} if it is a {@link #getCustomOutcome() custom outcome}
+     */
     public StageOutcomes getOutcome() {
         return outcome;
     }
 
+    public CustomOutcome<?> getCustomOutcome() {
+        return customOutcome;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         LabeledEdge that = (LabeledEdge) o;
         return outcome == that.outcome &&
+                customOutcome == that.customOutcome &&
                 source.equals(that.source) &&
                 target.equals(that.target);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(outcome, source, target);
+        return Objects.hash(outcome, customOutcome, source, target);
     }
 }
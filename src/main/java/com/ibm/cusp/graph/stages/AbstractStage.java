@@ -22,6 +22,7 @@
 package com.ibm.cusp.graph.stages;
 
 import com.ibm.cusp.graph.observe.CuspObserver;
+import com.ibm.cusp.graph.observe.CuspTimer;
 import net.jodah.typetools.TypeResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -55,6 +56,61 @@ public abstract class AbstractStage<S,T> implements Stage<S,T> {
         this.observer = observer;
     }
 
+    /**
+     * Create a timer that reports to whichever observer is registered with this stage when a measurement completes.
+     * Create timers once, e.g. as fields, and reuse them.
+     * @param identifier
+     * @return timer
+     */
+    protected CuspTimer timer(String identifier) {
+        return new CuspTimer(identifier, () -> observer);
+    }
+
+    /**
+     * Fail without throwing, e.g. {@code return fail("inventory unavailable");}. See {@link StageFailure}.
+     * @param message
+     * @return {@code null}, to be returned from {@link #execute}
+     */
+    protected T fail(String message) {
+        return StageFailure.signal(message);
+    }
+
+    /**
+     * Fail without throwing with a failure that may be reused across executions. See {@link StageFailure}.
+     * @param failure
+     * @return {@code null}, to be returned from {@link #execute}
+     */
+    protected T fail(StageFailure failure) {
+        return StageFailure.signal(failure);
+    }
+
+    /**
+     * End with a custom outcome instead of an output, e.g. {@code return emit(CACHE_HIT, cached);}. See {@link CustomOutcome}.
+     * @param outcome
+     * @param value input to the stage routed to for {@code outcome}
+     * @return {@code null}, to be returned from {@link #execute}
+     */
+    protected <V> T emit(CustomOutcome<V> outcome, V value) {
+        return outcome.emit(value);
+    }
+
+    /**
+     * Complete the whole pipeline with {@code result} as its output, skipping every stage downstream of this one. The
+     * stage must be declared with {@link com.ibm.cusp.graph.Cusp#allowEarlyExit(String)}. See {@link EarlyExit}.
+     * @param result output of the pipeline
+     * @return {@code null}, to be returned from {@link #execute}
+     */
+    protected T complete(Object result) {
+        return EarlyExit.complete(result);
+    }
+
+    /**
+     * @return the token telling whether this stage's execution was cancelled; see {@link CancellationToken}
+     */
+    protected CancellationToken cancellation() {
+        return CancellationToken.current();
+    }
+
     /**
      * Accomplished using typetools package.
      * @return
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.graph.stages;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Tells a running stage whether the execution it belongs to was cancelled, so that a long stage can stop early, e.g.
+ * between batches or before calling a downstream service. A stage gets the token of its execution with
+ * {@link #current()}, or {@link AbstractStage#cancellation()}; outside of a stage it is {@link #NONE}.
+ *
+ * Stages that are not running yet when their execution is cancelled are never started, so a stage only needs to check
+ * the token if it runs long enough for that to matter.
+ */
+public class CancellationToken {
+    /** The token of no execution, which is never cancelled. */
+    public static final CancellationToken NONE = new CancellationToken();
+
+    private static final ThreadLocal<CancellationToken> CURRENT = new ThreadLocal<>();
+
+    private volatile boolean cancelled;
+    private volatile String reason;
+
+    protected CancellationToken() {
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return why the execution was cancelled, or {@code null} if it was not
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * @throws CancellationException if the execution was cancelled
+     */
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException(reason);
+        }
+    }
+
+    /**
+     * Mark the token cancelled.
+     * @return whether this call cancelled it, rather than an earlier one
+     */
+    protected boolean markCancelled(String reason) {
+        if (cancelled) {
+            return false;
+        }
+        this.reason = reason;
+        this.cancelled = true;
+        return true;
+    }
+
+    /**
+     * @return the token of the execution of the stage running on this thread
+     */
+    public static CancellationToken current() {
+        CancellationToken token = CURRENT.get();
+        return token == null ? NONE : token;
+    }
+
+    /**
+     * Called by the executor around each stage, to make {@code token} {@link #current()} while the stage runs; a
+     * {@code null} token clears it.
+     */
+    public static void bind(CancellationToken token) {
+        CURRENT.set(token);
+    }
+}
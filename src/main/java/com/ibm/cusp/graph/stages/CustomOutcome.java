@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.graph.stages;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A user-defined stage outcome, such as a cache hit, that a stage emits with a value of type {@code V} in place of its
+ * output. The value is routed to the stage added with {@link com.ibm.cusp.graph.Cusp#addRoute(String, CustomOutcome, String)},
+ * which must accept a {@code V}, and the stage's success routes are skipped.
+ *
+ * Outcomes are identified by name and numbered in the order they are first declared, so that a pipeline finds the
+ * successor for an outcome by array index. A stage emits one with {@code return OUTCOME.emit(value)}, or
+ * {@link AbstractStage#emit(CustomOutcome, Object)}.
+ */
+public final class CustomOutcome<V> {
+    private static final Map<String, CustomOutcome<?>> OUTCOMES = new ConcurrentHashMap<>();
+    private static final AtomicInteger INDICES = new AtomicInteger();
+    private static final ThreadLocal<Emission> EMITTED = new ThreadLocal<>();
+
+    private final String name;
+    private final Class<V> valueType;
+    private final int index;
+
+    private CustomOutcome(String name, Class<V> valueType) {
+        this.name = name;
+        this.valueType = valueType;
+        this.index = INDICES.getAndIncrement();
+    }
+
+    /**
+     * @return the outcome named {@code name}, declaring it on first use
+     * @throws IllegalArgumentException if the outcome was already declared with another value type, or is named like
+     * one of {@link StageOutcomes}
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> CustomOutcome<V> of(String name, Class<V> valueType) {
+        for (StageOutcomes outcome : StageOutcomes.values()) {
+            if (outcome.name().equals(name)) {
+                throw new IllegalArgumentException(name + " is a built-in stage outcome");
+            }
+        }
+
+        CustomOutcome<?> outcome = OUTCOMES.computeIfAbsent(name, ignored -> new CustomOutcome<>(name, valueType));
+        if (!outcome.valueType.equals(valueType)) {
+            throw new IllegalArgumentException("Outcome " + name + " carries " + outcome.valueType.getName() + ", not " + valueType.getName());
+        }
+        return (CustomOutcome<V>) outcome;
+    }
+
+    /**
+     * @return the outcome named {@code name} if one was declared, else {@code null}
+     */
+    public static CustomOutcome<?> forName(String name) {
+        return OUTCOMES.get(name);
+    }
+
+    /**
+     * @return number of outcomes declared, one more than the largest {@link #getIndex() index}
+     */
+    public static int count() {
+        return INDICES.get();
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public Class<V> getValueType() {
+        return valueType;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * End the stage executing on this thread with this outcome; the stage must return the result, which is always
+     * {@code null}.
+     * @param value input to the stage routed to for this outcome
+     */
+    public <T> T emit(V value) {
+        EMITTED.set(new Emission(this, value));
+        return null;
+    }
+
+    /**
+     * Called by {@link StageSignals} after every stage execution.
+     * @return the outcome emitted on this thread since the last call, if any, clearing it
+     */
+    public static Emission take() {
+        Emission emission = EMITTED.get();
+        if (emission != null) {
+            EMITTED.set(null);
+        }
+        return emission;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * An outcome emitted by a stage, with its value. This is what {@link com.ibm.cusp.execution.StageOutcomeListener}s
+     * receive as the output of a stage that emitted an outcome.
+     */
+    public static final class Emission {
+        private final CustomOutcome<?> outcome;
+        private final Object value;
+
+        private Emission(CustomOutcome<?> outcome, Object value) {
+            this.outcome = outcome;
+            this.value = value;
+        }
+
+        public CustomOutcome<?> getOutcome() {
+            return outcome;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return outcome.name + "(" + value + ")";
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.graph.stages;
+
+/**
+ * A stage that is optional under a deadline, such as reranking or enrichment, declares the output to use in its
+ * place when it cannot finish in time, e.g. its input unranked. When the executor has a deadline
+ * ({@link com.ibm.cusp.execution.CuspExecutor#useDeadline}), a degradable stage still running when the deadline passes
+ * is abandoned for {@link #degrade}, and one that becomes ready after it is not run at all. Stages that are not
+ * degradable always run to completion.
+ *
+ * @param <S> input type of the stage
+ * @param <T> output type of the stage
+ */
+public interface Degradable<S, T> {
+    /**
+     * Called on the executor's timer or planning thread, so it should be cheap, e.g. return the input unchanged.
+     * @param input the input the stage was given
+     * @return output to continue the pipeline with in place of the stage's own
+     */
+    T degrade(S input) throws Exception;
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.graph.stages;
+
+/**
+ * The result of a pipeline, returned early by one of its stages. A stage that may already have the final answer, e.g.
+ * from a cache, completes the pipeline with {@code return EarlyExit.complete(result)}, or
+ * {@link AbstractStage#complete(Object)}, and none of the stages downstream of it are run; the executor returns
+ * {@code result} as the pipeline's output. Only stages declared with
+ * {@link com.ibm.cusp.graph.Cusp#allowEarlyExit(String)} may do so, and a stage whose result is not of the type the
+ * pipeline outputs ({@link com.ibm.cusp.graph.Cusp#getEarlyExitType}) fails instead.
+ */
+public final class EarlyExit {
+    private static final ThreadLocal<EarlyExit> COMPLETED = new ThreadLocal<>();
+
+    private final Object result;
+
+    private EarlyExit(Object result) {
+        this.result = result;
+    }
+
+    /**
+     * Complete the pipeline of the stage executing on this thread; the stage must return the result, which is always
+     * {@code null}.
+     * @param result output of the pipeline
+     */
+    public static <T> T complete(Object result) {
+        COMPLETED.set(new EarlyExit(result));
+        return null;
+    }
+
+    /**
+     * Called by {@link StageSignals} after every stage execution.
+     * @return the early exit requested on this thread since the last call, if any, clearing it
+     */
+    public static EarlyExit take() {
+        EarlyExit exit = COMPLETED.get();
+        if (exit != null) {
+            COMPLETED.set(null);
+        }
+        return exit;
+    }
+
+    public Object getResult() {
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "exit(" + result + ")";
+    }
+}
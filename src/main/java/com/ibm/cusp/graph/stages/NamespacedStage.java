@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.graph.stages;
+
+import com.ibm.cusp.graph.observe.CuspObserver;
+
+import java.util.Objects;
+
+/**
+ * A stage of a {@link SubPipeline} after it has been inlined into a parent pipeline. Its name is the stage's own name
+ * prefixed with the name of the sub-pipeline, so that the same stages can be inlined more than once. Executors look
+ * through it at its {@link #getDelegate() delegate}, so an inlined {@link Degradable} stage is still degraded.
+ *
+ * @param <S> input type
+ * @param <T> output type
+ */
+public final class NamespacedStage<S, T> implements Stage<S, T> {
+    public static final String SEPARATOR = "/";
+
+    private final String namespace;
+    private final Stage<S, T> delegate;
+    private final String name;
+
+    public NamespacedStage(String namespace, Stage<S, T> delegate) {
+        this.namespace = namespace;
+        this.delegate = delegate;
+        this.name = namespace + SEPARATOR + delegate.name();
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * The stage as it was declared in its sub-pipeline.
+     * @return
+     */
+    public Stage<S, T> getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public Class<S> getInputType() {
+        return delegate.getInputType();
+    }
+
+    @Override
+    public Class<T> getOutputType() {
+        return delegate.getOutputType();
+    }
+
+    @Override
+    public T execute(S input) throws Exception {
+        return delegate.execute(input);
+    }
+
+    @Override
+    public void registerObserver(CuspObserver observer) {
+        delegate.registerObserver(observer);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        NamespacedStage<?, ?> that = (NamespacedStage<?, ?>) o;
+        return namespace.equals(that.namespace) &&
+                delegate.equals(that.delegate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(namespace, delegate);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.graph.stages;
+
+/**
+ * A stage failure that is returned rather than thrown. A stage signals it with {@code return StageFailure.signal(...)},
+ * or {@link AbstractStage#fail(String)}, and CUSP handles it as if the stage had thrown it: the stage's recovery stage
+ * runs, or the pipeline fails with a {@link com.ibm.cusp.graph.errors.StageFailedException} caused by it.
+ *
+ * Failures are stackless, and a stage may signal the same instance every time, so a routine failure such as an
+ * inventory miss that falls back to a backup system costs about as much as a success.
+ */
+public class StageFailure extends Exception {
+    private static final ThreadLocal<StageFailure> SIGNALLED = new ThreadLocal<>();
+
+    public StageFailure(String message) {
+        this(message, null);
+    }
+
+    public StageFailure(String message, Throwable cause) {
+        super(message, cause, false, false);
+    }
+
+    /**
+     * Fail the stage executing on this thread; the stage must return the result, which is always {@code null}.
+     * @param failure
+     */
+    public static <T> T signal(StageFailure failure) {
+        SIGNALLED.set(failure);
+        return null;
+    }
+
+    public static <T> T signal(String message) {
+        return signal(new StageFailure(message));
+    }
+
+    /**
+     * Called by {@link StageSignals} after every stage execution.
+     * @return the failure signalled on this thread since the last call, if any, clearing it
+     */
+    public static StageFailure take() {
+        StageFailure failure = SIGNALLED.get();
+        if (failure != null) {
+            SIGNALLED.set(null);
+        }
+        return failure;
+    }
+}
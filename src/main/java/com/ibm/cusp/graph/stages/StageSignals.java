@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.graph.stages;
+
+/**
+ * Executes a stage and takes what it signalled on the executing thread with {@link StageFailure#signal},
+ * {@link CustomOutcome#emit} or {@link EarlyExit#complete}. All three are cleared after every execution, whatever the
+ * stage returned or threw, so that none is left behind for the next stage run on the same thread; a signal only takes
+ * effect when the stage returns {@code null}, as a signalling stage must.
+ */
+public final class StageSignals {
+    private StageSignals() {
+    }
+
+    /**
+     * @param stage
+     * @param input
+     * @return the stage's output or, when it returned {@code null}, the {@link CustomOutcome.Emission} or
+     * {@link EarlyExit} it signalled, if any
+     * @throws StageFailure the failure the stage signalled before returning {@code null}
+     * @throws Exception whatever the stage threw
+     */
+    public static <S> Object execute(Stage<S, ?> stage, S input) throws Exception {
+        Object output;
+        try {
+            output = stage.execute(input);
+        } catch (Throwable t) {
+            clear();
+            throw t;
+        }
+
+        StageFailure failure = StageFailure.take();
+        CustomOutcome.Emission emission = CustomOutcome.take();
+        EarlyExit exit = EarlyExit.take();
+        if (output != null) {
+            return output;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return emission != null ? emission : exit;
+    }
+
+    /**
+     * Discard anything signalled on this thread.
+     */
+    public static void clear() {
+        StageFailure.take();
+        CustomOutcome.take();
+        EarlyExit.take();
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.graph.stages;
+
+import com.ibm.cusp.graph.Cusp;
+import com.ibm.cusp.graph.errors.InvalidSubPipelineException;
+import com.ibm.cusp.graph.observe.CuspObserver;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Wraps a {@link Cusp} pipeline so that it can be added to another pipeline as a single stage.
+ *
+ * A sub-pipeline is never executed on its own: when it is added to a parent with {@link Cusp#addStage(Stage)}, its
+ * stages and routes are copied into the parent graph as {@link NamespacedStage}s named
+ * {@code <sub-pipeline name>/<stage name>}. Routes into the sub-pipeline lead to its initial stage, and routes out of it
+ * leave from its result stage, so the parent executes the inlined stages with its own engine.
+ *
+ * The result stage is the stage whose output is the sub-pipeline's output. By default it is found by following
+ * {@link StageOutcomes#SUCCESS} routes from the initial stage, preferring the nonterminal stage at each step; name it
+ * explicitly when the last step fans out to several terminal stages.
+ *
+ * @param <S> input type of the initial stage
+ * @param <T> output type of the result stage
+ */
+public class SubPipeline<S, T> implements Stage<S, T> {
+    private final String name;
+    private final Cusp cusp;
+    private final Stage<S, ?> initialStage;
+    private final Stage<?, T> resultStage;
+
+    public SubPipeline(String name, Cusp cusp, String initialStageName) {
+        this(name, cusp, initialStageName, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public SubPipeline(String name, Cusp cusp, String initialStageName, String resultStageName) {
+        this.name = name;
+        this.cusp = cusp;
+
+        cusp.validateGraph();
+        this.initialStage = cusp.getStage(initialStageName);
+        this.resultStage = resultStageName != null ? cusp.getStage(resultStageName) : findResultStage(initialStage);
+    }
+
+    private Stage findResultStage(Stage stage) {
+        Set<Stage> successStages = cusp.getNextStages(stage.name(), StageOutcomes.SUCCESS);
+        if (successStages.isEmpty()) {
+            return stage;
+        }
+
+        Set<Stage> internalStages = successStages.stream()
+                .filter(successStage -> !cusp.isTerminal(successStage.name()))
+                .collect(Collectors.toSet());
+        if (internalStages.size() == 1) {
+            return findResultStage(internalStages.iterator().next());
+        }
+        if (internalStages.isEmpty() && successStages.size() == 1) {
+            return successStages.iterator().next();
+        }
+
+        throw new InvalidSubPipelineException(name,
+                "cannot tell which of the stages following {0} produces its result; name the result stage explicitly",
+                stage.name());
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    public Cusp getCusp() {
+        return cusp;
+    }
+
+    public Stage<S, ?> getInitialStage() {
+        return initialStage;
+    }
+
+    public Stage<?, T> getResultStage() {
+        return resultStage;
+    }
+
+    @Override
+    public Class<S> getInputType() {
+        return initialStage.getInputType();
+    }
+
+    @Override
+    public Class<T> getOutputType() {
+        return resultStage.getOutputType();
+    }
+
+    /**
+     * Sub-pipelines are inlined into their parent pipeline and are not executed as a stage.
+     */
+    @Override
+    public T execute(S input) {
+        throw new UnsupportedOperationException("Sub-pipeline " + name + " must be added to a parent pipeline, which executes its stages");
+    }
+
+    @Override
+    public void registerObserver(CuspObserver observer) {
+        cusp.registerObserver(observer);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
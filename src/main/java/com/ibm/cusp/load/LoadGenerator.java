@@ -0,0 +1,221 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.load;
+
+import com.ibm.cusp.execution.CuspExecutor;
+import com.ibm.cusp.execution.metrics.CuspMetrics;
+import com.ibm.cusp.execution.metrics.LatencyHistogram;
+import com.ibm.cusp.graph.Cusp;
+import com.ibm.cusp.graph.errors.CuspExecutionError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Drives a pipeline at a fixed arrival rate in an open loop: executions start on schedule whether or not earlier ones
+ * have finished, as requests from independent clients would. A closed loop, where each client waits for its previous
+ * request, slows down with the system under test and hides queueing collapse.
+ *
+ * Latency is measured from each execution's intended start time, so time spent waiting for a worker or behind a
+ * stalled dispatcher counts against the pipeline instead of being omitted (coordinated omission). The time from the
+ * actual start is reported alongside as service time. Stage latencies are recorded through {@link CuspMetrics}.
+ * Executors are pooled across executions, one per execution in flight, so that creating them is not measured.
+ *
+ * A pipeline compiled from a definition is driven by passing the {@link Cusp} loaded from its
+ * {@link com.ibm.cusp.graph.definition.PipelinePlan} and the plan's initial stage.
+ */
+public class LoadGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+
+    private final Cusp cusp;
+    private final String initialStageName;
+    private final Supplier<?> inputs;
+    private Executor taskExecutor;
+    private ScheduledExecutorService timerScheduler;
+    private int workers = 256;
+    private Duration warmup = Duration.ZERO;
+    private Duration drainTimeout = Duration.ofSeconds(30);
+
+    /**
+     * @param inputs supplies the input to the initial stage of each execution
+     */
+    public LoadGenerator(Cusp cusp, String initialStageName, Supplier<?> inputs) {
+        this.cusp = cusp;
+        this.initialStageName = initialStageName;
+        this.inputs = inputs;
+    }
+
+    /**
+     * Run the stages on these executors; otherwise a pool with two threads per processor is created for each run.
+     */
+    public void useExecutors(Executor taskExecutor, ScheduledExecutorService timerScheduler) {
+        this.taskExecutor = taskExecutor;
+        this.timerScheduler = timerScheduler;
+    }
+
+    /**
+     * @param workers how many executions may be awaited at once; further arrivals queue for a worker, which counts
+     *                towards their latency
+     */
+    public void useWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    /**
+     * @param warmup how long to drive the pipeline before recording, e.g. for the JIT compiler to settle
+     */
+    public void useWarmup(Duration warmup) {
+        this.warmup = warmup;
+    }
+
+    /**
+     * @param drainTimeout how long to wait for executions still running when arrivals stop; those that have not
+     *                     finished by then are reported as incomplete
+     */
+    public void useDrainTimeout(Duration drainTimeout) {
+        this.drainTimeout = drainTimeout;
+    }
+
+    public LoadReport run(double arrivalsPerSecond, Duration duration) throws InterruptedException {
+        if (arrivalsPerSecond <= 0) {
+            throw new IllegalArgumentException("Arrival rate must be positive: " + arrivalsPerSecond);
+        }
+
+        cusp.validateGraph();
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / arrivalsPerSecond;
+        long warmupArrivals = (long) (warmup.toNanos() / intervalNanos);
+        long arrivals = warmupArrivals + (long) (duration.toNanos() / intervalNanos);
+
+        boolean ownsExecutors = taskExecutor == null;
+        Executor taskExecutor = ownsExecutors ? Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2) : this.taskExecutor;
+        ScheduledExecutorService timerScheduler = ownsExecutors ? Executors.newSingleThreadScheduledExecutor() : this.timerScheduler;
+        ExecutorService workerPool = Executors.newFixedThreadPool(workers, new WorkerThreadFactory());
+
+        Recording recording = new Recording(taskExecutor, timerScheduler);
+        long startNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(1);
+        recording.measuredFromNanos = startNanos + (long) (warmupArrivals * intervalNanos);
+        long lateDispatches = 0;
+        try {
+            for (long i = 0; i < arrivals; i++) {
+                long intendedStartNanos = startNanos + (long) (i * intervalNanos);
+                long wait = intendedStartNanos - System.nanoTime();
+                if (wait > 0) {
+                    do {
+                        LockSupport.parkNanos(wait);
+                        wait = intendedStartNanos - System.nanoTime();
+                    } while (wait > 0);
+                } else if (wait < -intervalNanos) {
+                    lateDispatches++;
+                }
+
+                boolean measured = i >= warmupArrivals;
+                workerPool.execute(() -> execute(intendedStartNanos, measured, recording));
+            }
+            recording.arrivalsEndNanos = System.nanoTime();
+        } finally {
+            workerPool.shutdown();
+            if (!workerPool.awaitTermination(drainTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                logger.warn("Executions still running {} after the last arrival; not waiting for them", drainTimeout);
+                workerPool.shutdownNow();
+            }
+            if (ownsExecutors) {
+                ((ExecutorService) taskExecutor).shutdownNow();
+                timerScheduler.shutdownNow();
+            }
+        }
+
+        if (lateDispatches > 0) {
+            logger.warn("{} arrivals were dispatched more than one interval late; their latency still counts from the intended start", lateDispatches);
+        }
+        return new LoadReport(initialStageName, arrivalsPerSecond, arrivals - warmupArrivals, recording.succeeded.sum(),
+                recording.failed.sum(), Math.max(recording.arrivalsEndNanos, recording.lastEndNanos.get()) - recording.measuredFromNanos,
+                recording.latency.snapshot(), recording.serviceTime.snapshot(), recording.metrics.snapshot());
+    }
+
+    private void execute(long intendedStartNanos, boolean measured, Recording recording) {
+        long actualStartNanos = System.nanoTime();
+        CuspExecutor executor = recording.idleExecutors.poll();
+        if (executor == null) {
+            executor = new CuspExecutor(cusp, recording.taskExecutor, recording.timerScheduler);
+        }
+        boolean succeeded;
+        try {
+            executor.useMetrics(measured ? recording.metrics : null);
+            executor.constructPipeline(initialStageName, inputs.get());
+            executor.execute();
+            succeeded = true;
+        } catch (CuspExecutionError e) {
+            succeeded = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } finally {
+            recording.idleExecutors.add(executor);
+        }
+
+        long endNanos = System.nanoTime();
+        if (measured) {
+            recording.latency.recordNanos(endNanos - intendedStartNanos);
+            recording.serviceTime.recordNanos(endNanos - actualStartNanos);
+            (succeeded ? recording.succeeded : recording.failed).increment();
+            recording.lastEndNanos.accumulateAndGet(endNanos, Math::max);
+        }
+    }
+
+    private static class Recording {
+        final Executor taskExecutor;
+        final ScheduledExecutorService timerScheduler;
+        final Queue<CuspExecutor> idleExecutors = new ConcurrentLinkedQueue<>();
+        final CuspMetrics metrics = new CuspMetrics();
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LatencyHistogram serviceTime = new LatencyHistogram();
+        final LongAdder succeeded = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final AtomicLong lastEndNanos = new AtomicLong();
+        long measuredFromNanos;
+        long arrivalsEndNanos;
+
+        Recording(Executor taskExecutor, ScheduledExecutorService timerScheduler) {
+            this.taskExecutor = taskExecutor;
+            this.timerScheduler = timerScheduler;
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "cusp-load-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.load;
+
+import com.ibm.cusp.execution.metrics.LatencySnapshot;
+import com.ibm.cusp.execution.metrics.MetricsSnapshot;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Results of one {@link LoadGenerator} run, excluding its warmup.
+ */
+public class LoadReport {
+    /**
+     * Percentiles reported in {@link #percentileCurve}.
+     */
+    public static final double[] PERCENTILES = {50, 75, 90, 95, 99, 99.9, 99.99, 100};
+
+    private final String pipelineName;
+    private final double targetRate;
+    private final long arrivals;
+    private final long succeeded;
+    private final long failed;
+    private final long elapsedNanos;
+    private final LatencySnapshot latency;
+    private final LatencySnapshot serviceTime;
+    private final MetricsSnapshot stages;
+
+    LoadReport(String pipelineName, double targetRate, long arrivals, long succeeded, long failed, long elapsedNanos,
+               LatencySnapshot latency, LatencySnapshot serviceTime, MetricsSnapshot stages) {
+        this.pipelineName = pipelineName;
+        this.targetRate = targetRate;
+        this.arrivals = arrivals;
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.elapsedNanos = elapsedNanos;
+        this.latency = latency;
+        this.serviceTime = serviceTime;
+        this.stages = stages;
+    }
+
+    /**
+     * @return the arrival rate the pipeline was driven at, per second
+     */
+    public double getTargetRate() {
+        return targetRate;
+    }
+
+    public long getArrivals() {
+        return arrivals;
+    }
+
+    public long getSucceeded() {
+        return succeeded;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return arrivals that had not finished executing when the run stopped waiting for them
+     */
+    public long getIncomplete() {
+        return arrivals - succeeded - failed;
+    }
+
+    /**
+     * @return completed executions per second; below {@link #getTargetRate()} when the pipeline cannot keep up
+     */
+    public double getThroughput() {
+        return elapsedNanos <= 0 ? 0 : (succeeded + failed) * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     * @return end-to-end latency from each execution's intended start, corrected for coordinated omission
+     */
+    public LatencySnapshot getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return end-to-end latency from each execution's actual start, which omits time spent waiting to start
+     */
+    public LatencySnapshot getServiceTime() {
+        return serviceTime;
+    }
+
+    /**
+     * @return per-stage latencies, queue waits and outcome counts
+     */
+    public MetricsSnapshot getStages() {
+        return stages;
+    }
+
+    public static String percentileCurve(LatencySnapshot latency) {
+        StringBuilder curve = new StringBuilder();
+        for (double percentile : PERCENTILES) {
+            curve.append(String.format("%8s%% %10.3fms%n", percentile, latency.getPercentileNanos(percentile) / 1e6));
+        }
+        return curve.toString();
+    }
+
+    public String describe() {
+        StringBuilder description = new StringBuilder(String.format(
+                "pipeline %s: target %.1f/s, throughput %.1f/s, arrivals=%d succeeded=%d failed=%d incomplete=%d%n",
+                pipelineName, targetRate, getThroughput(), arrivals, succeeded, failed, getIncomplete()));
+        description.append("latency from intended start:\n").append(percentileCurve(latency));
+        description.append("service time from actual start:\n").append(percentileCurve(serviceTime));
+        stages.getStages().values().forEach(stage -> description.append("stage ").append(stage).append('\n'));
+        return description.toString();
+    }
+
+    @Override
+    public String toString() {
+        return describe();
+    }
+}
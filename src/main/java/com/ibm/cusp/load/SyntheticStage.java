@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp.load;
+
+import com.ibm.cusp.graph.stages.AbstractStage;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A stage that passes its input through after waiting for a latency drawn from a {@link LatencyDistribution}, and
+ * fails with a given probability, to evaluate a topology before its real stages exist.
+ *
+ * {@link AbstractStage} considers stages of the same class equal, so synthetic stages are told apart by name instead.
+ */
+public class SyntheticStage extends AbstractStage<Object, Object> {
+    private static final Exception FAILURE = new SyntheticFailureException();
+
+    private final String name;
+    private final LatencyDistribution latency;
+    private final double failureProbability;
+
+    public SyntheticStage(String name, LatencyDistribution latency) {
+        this(name, latency, 0);
+    }
+
+    public SyntheticStage(String name, LatencyDistribution latency, double failureProbability) {
+        this.name = name;
+        this.latency = latency;
+        this.failureProbability = failureProbability;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public Object execute(Object input) throws Exception {
+        long nanos = latency.nextNanos();
+        long deadline = System.nanoTime() + nanos;
+        while (nanos > 0) {
+            LockSupport.parkNanos(nanos);
+            nanos = deadline - System.nanoTime();
+        }
+
+        if (failureProbability > 0 && ThreadLocalRandom.current().nextDouble() < failureProbability) {
+            throw FAILURE;
+        }
+        return input;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof SyntheticStage && name.equals(((SyntheticStage) o).name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    static class SyntheticFailureException extends Exception {
+        SyntheticFailureException() {
+            super("synthetic stage failure", null, false, false);
+        }
+    }
+}
@@ -21,29 +21,89 @@
  */
 package com.ibm.cusp;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibm.cusp.execution.AsyncStageOutcomeListener;
+import com.ibm.cusp.execution.Cancellation;
 import com.ibm.cusp.execution.CuspExecutor;
+import com.ibm.cusp.execution.PriorityTaskExecutor;
+import com.ibm.cusp.execution.StageEvent;
 import com.ibm.cusp.execution.StageOutcomeListener;
+import com.ibm.cusp.execution.StaticPipeline;
+import com.ibm.cusp.execution.metrics.CuspMetrics;
+import com.ibm.cusp.execution.metrics.LatencyHistogram;
+import com.ibm.cusp.execution.metrics.LatencySnapshot;
+import com.ibm.cusp.execution.metrics.MetricsHttpServer;
+import com.ibm.cusp.execution.metrics.MetricsSnapshot;
+import com.ibm.cusp.execution.metrics.StageMetricsSnapshot;
+import com.ibm.cusp.execution.reactive.CuspProcessor;
+import com.ibm.cusp.execution.trace.ExecutionTrace;
+import com.ibm.cusp.execution.trace.RollingTraceFileSink;
+import com.ibm.cusp.execution.trace.StageSpan;
+import com.ibm.cusp.execution.trace.TailTraceReservoir;
+import com.ibm.cusp.execution.trace.TraceSampler;
+import com.ibm.cusp.execution.trace.TraceSink;
 import com.ibm.cusp.graph.Cusp;
+import com.ibm.cusp.graph.analysis.LatencyAnalysis;
+import com.ibm.cusp.graph.analysis.LatencyRecommendation;
+import com.ibm.cusp.graph.analysis.LatencyRecorder;
+import com.ibm.cusp.graph.analysis.StageLatencies;
+import com.ibm.cusp.graph.definition.PipelineCompiler;
+import com.ibm.cusp.graph.definition.PipelineDefinition;
+import com.ibm.cusp.graph.definition.PipelinePlan;
+import com.ibm.cusp.graph.definition.RouteDefinition;
 import com.ibm.cusp.graph.errors.*;
 import com.ibm.cusp.graph.observe.CuspObserver;
 import com.ibm.cusp.graph.observe.CuspStopwatch;
+import com.ibm.cusp.graph.observe.CuspTimer;
 import com.ibm.cusp.graph.stages.Stage;
 import com.ibm.cusp.graph.stages.StageOutcomes;
+import com.ibm.cusp.graph.stages.SubPipeline;
 import com.ibm.cusp.graph.visualize.CuspVisualizer;
+import com.ibm.cusp.load.LatencyDistribution;
+import com.ibm.cusp.load.LoadGenerator;
+import com.ibm.cusp.load.LoadReport;
+import com.ibm.cusp.load.SyntheticStage;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.internal.matchers.GreaterOrEqual;
 import org.mockito.internal.matchers.LessOrEqual;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -201,6 +261,260 @@ public class CuspTest {
         assertEquals("serialized procured basicSearch parsed received WidgetRequest", result);
     }
 
+    @Test
+    public void it_clears_signals_that_a_stage_returned_an_output_after() throws Throwable {
+        ExecutorService singleThread = Executors.newSingleThreadExecutor();
+        Cusp cusp = createPipeline(new IndecisiveParseRequestStage(), new LogRequestStage(sink), new QueryInventoryStage(), new QueryBackupSystem(), new ManufactureWidgetsStage());
+        CuspExecutor executor = new CuspExecutor(cusp, singleThread, timerScheduler);
+        StageOutcomeListener listener = mock(StageOutcomeListener.class);
+        executor.useStageOutcomeListener(listener);
+        executor.constructPipeline(WidgetStages.RECEIVE_REQUEST, request);
+
+        try {
+            executor.execute();
+        } finally {
+            singleThread.shutdown();
+        }
+
+        // the log stage returns null on the thread the parse stage signalled on
+        assertEquals(EXPECTED_LOG_SINK_SIZE, sink.size());
+        verify(listener).success(eq(new LogRequestStage(sink)), any(), anyLong());
+        verify(listener, never()).failure(any(), any(), anyLong());
+    }
+
+    @Test
+    public void it_recovers_from_failures_signalled_without_throwing() throws Throwable {
+        Cusp cusp = createPipeline(new ParseRequestStage(), new LogRequestStage(sink), new SignallingQueryInventoryStage(), new FailingQueryBackupSystemStage(), new FailedManufactureWidgetsStage());
+        CuspExecutor executor = new CuspExecutor(cusp, taskExecutor, timerScheduler);
+        StageOutcomeListener listener = mock(StageOutcomeListener.class);
+        executor.useStageOutcomeListener(listener);
+        executor.constructPipeline(WidgetStages.RECEIVE_REQUEST, request);
+
+        try {
+            executor.execute();
+            fail();
+        } catch (StageFailedException e) {
+            assertEquals(0, e.getStackTrace().length);
+        }
+
+        verify(listener).recover(eq(new SignallingQueryInventoryStage()), eq(new FailingQueryBackupSystemStage()), eq(SignallingQueryInventoryStage.OUT_OF_STOCK), anyLong());
+    }
+
+    @Test
+    public void it_routes_custom_outcomes_to_their_own_successors() throws Throwable {
+        Cusp cusp = createPipeline(new ParseRequestStage(), new LogRequestStage(sink), new BackorderingQueryInventoryStage(), new QueryBackupSystem(), new ManufactureWidgetsStage());
+        cusp.addRoute(WidgetStages.QUERY_INVENTORY, BackorderingQueryInventoryStage.BACKORDERED, WidgetStages.MANUFACTURE_WIDGETS);
+        CuspExecutor executor = new CuspExecutor(cusp, taskExecutor, timerScheduler);
+        CuspMetrics metrics = new CuspMetrics();
+        executor.useMetrics(metrics);
+        StageOutcomeListener listener = mock(StageOutcomeListener.class);
+        executor.useStageOutcomeListener(listener);
+        executor.constructPipeline(WidgetStages.RECEIVE_REQUEST, request);
+
+        Widgets widgets = executor.execute();
+
+        assertEquals(new ManufactureWidgetsStage().execute("parsed received WidgetRequest").toString(), widgets.toString());
+        verify(listener, never()).success(eq(new PlaceOrderStage()), any(), anyLong());
+        verify(listener, never()).recover(any(), any(), any(), anyLong());
+        assertEquals(1, metrics.snapshot().getRouteCount(WidgetStages.QUERY_INVENTORY, BackorderingQueryInventoryStage.BACKORDERED, WidgetStages.MANUFACTURE_WIDGETS));
+    }
+
+    @Test
+    public void it_complains_when_you_route_a_custom_outcome_to_an_incompatible_stage() throws Throwable {
+        Cusp cusp = createPipeline(new ParseRequestStage(), new LogRequestStage(sink), new BackorderingQueryInventoryStage(), new QueryBackupSystem(), new ManufactureWidgetsStage());
+
+        try {
+            cusp.addRoute(WidgetStages.QUERY_INVENTORY, BackorderingQueryInventoryStage.BACKORDERED, WidgetStages.PLACE_ORDER);
+            fail();
+        } catch(AssertionError expectedException) {
+            assertTrue(expectedException.getMessage(), expectedException.getMessage().contains(CuspErrorCode.INVALID_STAGE_INPUT_DATA_TYPE.toString()));
+        }
+    }
+
+    @Test
+    public void it_skips_downstream_stages_when_a_stage_completes_the_pipeline_early() throws Throwable {
+        Cusp cusp = createPipeline(new ParseRequestStage(), new LogRequestStage(sink), new CachedQueryInventoryStage(), new QueryBackupSystem(), new ManufactureWidgetsStage());
+        cusp.allowEarlyExit(WidgetStages.QUERY_INVENTORY);
+        CuspExecutor executor = new CuspExecutor(cusp, taskExecutor, timerScheduler);
+        StageOutcomeListener listener = mock(StageOutcomeListener.class);
+        executor.useStageOutcomeListener(listener);
+        executor.constructPipeline(WidgetStages.RECEIVE_REQUEST, request);
+
+        String order = executor.execute();
+
+        assertEquals(CachedQueryInventoryStage.CACHED_ORDER, order);
+        verify(listener, never()).success(eq(new PlaceOrderStage()), any(), anyLong());
+    }
+
+    @Test
+    public void it_fails_stages_that_exit_early_with_a_result_the_pipeline_does_not_output() throws Throwable {
+        CachedQueryInventoryStage cachedStage = new CachedQueryInventoryStage(new Widgets("cached"));
+        Cusp cusp = createPipeline(new ParseRequestStage(), new LogRequestStage(sink), cachedStage, new FailingQueryBackupSystemStage(), new FailedManufactureWidgetsStage());
+        cusp.allowEarlyExit(WidgetStages.QUERY_INVENTORY);
+        assertEquals(String.class, cusp.getEarlyExitType(cachedStage));
+        CuspExecutor executor = new CuspExecutor(cusp, taskExecutor, timerScheduler);
+        StageOutcomeListener listener = mock(StageOutcomeListener.class);
+        ArgumentCaptor<Throwable> causes = ArgumentCaptor.forClass(Throwable.class);
+        executor.useStageOutcomeListener(listener);
+        executor.constructPipeline(WidgetStages.RECEIVE_REQUEST, request);
+
+        try {
+            executor.execute();
+            fail();
+        } catch (StageFailedException expectedException) {
+            verify(listener).recover(eq(cachedStage), eq(new FailingQueryBackupSystemStage()), causes.capture(), anyLong());
+        }
+
+        StaticPipeline<WidgetRequest, Object> pipeline = StaticPipeline.<WidgetRequest, Object>compile(cusp, WidgetStages.RECEIVE_REQUEST)
+                .useStageOutcomeListener(listener);
+        try {
+            pipeline.execute(request);
+            fail();
+        } catch (StageFailedException expectedException) {
+            verify(listener, times(2)).recover(eq(cachedStage), eq(new FailingQueryBackupSystemStage()), causes.capture(), anyLong());
+        }
+        for (Throwable cause : causes.getAllValues()) {
+            assertTrue(cause.getMessage(), cause.getMessage().contains("pipeline outputs java.lang.String"));
+        }
+    }
+
+    @Test
+    public void it_fails_stages_that_exit_early_without_being_allowed_to() throws Throwable {
+        Cusp cusp = createPipeline(new ParseRequestStage(), new LogRequestStage(sink), new CachedQueryInventoryStage(), new FailingQueryBackupSystemStage(), new FailedManufactureWidgetsStage());
+        CuspExecutor executor = new CuspExecutor(cusp, taskExecutor, timerScheduler);
+        StageOutcomeListener listener = mock(StageOutcomeListener.class);
+        executor.useStageOutcomeListener(listener);
+        executor.constructPipeline(WidgetStages.RECEIVE_REQUEST, request);
+
+        try {
+            executor.execute();
+            fail();
+        } catch (StageFailedException expectedException) {
+            verify(listener).recover(eq(new CachedQueryInventoryStage()), eq(new FailingQueryBackupSystemStage()), any(), anyLong());
+            verify(listener, never()).success(eq(new PlaceOrderStage()), any(), anyLong());
+        }
+    }
+
+    @Test
+    public void it_cancels_an_execution_and_interrupts_its_running_stages() throws Throwable {
+        CountDownLatch started = new CountDownLatch(1);
+        StalledQueryInventoryStage stalledStage = new StalledQueryInventoryStage(started);
+        Cusp cusp = createPipeline(new ParseRequestStage(), new LogRequestStage(sink), stalledStage, new QueryBackupSystem(), new ManufactureWidgetsStage());
+        CuspExecutor executor = new CuspExecutor(cusp, taskExecutor, timerScheduler);
+        executor.useInterruption(true);
+        StageOutcomeListener listener = mock(StageOutcomeListener.class);
+        CountDownLatch reported = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            reported.countDown();
+            return null;
+        }).when(listener).cancelled(eq(stalledStage), any(ExecutionCancelledException.class), anyLong());
+        executor.useStageOutcomeListener(listener);
+        executor.constructPipeline(WidgetStages.RECEIVE_REQUEST, request);
+        Cancellation cancellation = executor.getCancellation();
+        timerScheduler.execute(() -> {
+            awaitUninterruptibly(started);
+            cancellation.cancel("client disconnected");
+        });
+
+        try {
+            executor.execute();
+            fail();
+        } catch (ExecutionCancelledException expectedException) {
+            assertEquals(CuspErrorCode.CANCELLED, expectedException.getCode());
+            assertTrue(expectedException.getMessage(), expectedException.getMessage().contains("client disconnected"));
+        }
+
+        // the stalled stage only ends, and is reported, once it is interrupted
+        assertTrue(reported.await(10, TimeUnit.SECONDS));
+        verify(listener).cancelled(eq(stalledStage), any(ExecutionCancelledException.class), anyLong());
+        verify(listener, never()).recover(any(), any(), any(), anyLong());
+        verify(listener, never()).success(eq(new PlaceOrderStage()), any(), anyLong());
+    }
+
+    @Test
+    public void it_degrades_stages_that_miss_the_deadline() throws Throwable {
+        Cusp cusp = createPipeline(new ParseRequestStage(), new LogRequestStage(sink), new DegradableQueryInventoryStage(), new QueryBackupSystem(), new ManufactureWidgetsStage());
+        // the deadline is handled by ParSeq on the task executor, so it needs a thread the slow stage is not holding
+        CuspExecutor executor = new CuspExecutor(cusp, Executors.newFixedThreadPool(2), timerScheduler);
+        executor.useDeadline(100, TimeUnit.MILLISECONDS);
+        StageOutcomeListener listener = mock(StageOutcomeListener.class);
+        executor.useStageOutcomeListener(listener);
+        executor.constructPipeline(WidgetStages.RECEIVE_REQUEST, request);
+
+        long start = System.nanoTime();
+        String order = executor.execute();
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500);
+        assertEquals("serialized procured unqueried parsed received WidgetRequest", order);
+        verify(listener).degraded(eq(new DegradableQueryInventoryStage()), any(Widgets.class), anyLong());
+        verify(listener).success(eq(new PlaceOrderStage()), eq(order), anyLong());
+    }
+
+    @Test
+    public void it_reports_a_degraded_stage_once_after_the_stage_finishes() throws Throwable {
+        Cusp cusp = createPipeline(new ParseRequestStage(), new LogRequestStage(sink), new DegradableQueryInventoryStage(), new QueryBackupSystem(), new ManufactureWidgetsStage());
+        CuspExecutor executor = new CuspExecutor(cusp, Executors.newFixedThreadPool(2), timerScheduler);
+        executor.useDeadline(100, TimeUnit.MILLISECONDS);
+        StageOutcomeListener listener = mock(StageOutcomeListener.class);
+        executor.useStageOutcomeListener(listener);
+        List<StageEvent> events = Collections.synchronizedList(new ArrayList<>());
+        executor.useStageEventListener(event -> events.add(event.copy()));
+        executor.constructPipeline(WidgetStages.RECEIVE_REQUEST, request);
+
+        executor.execute();
+        // let the degraded stage finish in the background
+        Thread.sleep(1500);
+
+        verify(listener).degraded(eq(new DegradableQueryInventoryStage()), any(Widgets.class), anyLong());
+        verify(listener, never()).success(eq(new DegradableQueryInventoryStage()), any(), anyLong());
+        List<StageEvent.Outcome> outcomes = new ArrayList<>();
+        synchronized (events) {
+            for (StageEvent event : events) {
+                if (event.getStage().name().equals(WidgetStages.QUERY_INVENTORY)) {
+                    outcomes.add(event.getOutcome());
+                }
+            }
+        }
+        assertEquals(Collections.singletonList(StageEvent.Outcome.DEGRADED), outcomes);
+    }
+
+    @Test
+    public void it_runs_a_pipeline_per_item_of_a_reactive_stream_within_the_in_flight_limit() throws Throwable {
+        Cusp cusp = createPipeline(new ParseRequestStage(), new LogRequestStage(sink), new QueryInventoryStage(), new QueryBackupSystem(), new ManufactureWidgetsStage());
+        CuspProcessor<WidgetRequest, String> processor = new CuspProcessor<>(() -> new CuspExecutor(cusp, taskExecutor, timerScheduler), WidgetStages.RECEIVE_REQUEST, 2);
+        WidgetRequestPublisher publisher = new WidgetRequestPublisher(5);
+        List<String> orders = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch completed = new CountDownLatch(1);
+
+        publisher.subscribe(processor);
+        processor.subscribe(new Subscriber<String>() {
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(String order) {
+                orders.add(order);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                logger.error("stream failed", throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                completed.countDown();
+            }
+        });
+
+        assertTrue(completed.await(10, TimeUnit.SECONDS));
+        assertEquals(5, orders.size());
+        assertEquals("serialized procured queried parsed received WidgetRequest", orders.get(0));
+        assertTrue(publisher.getMaxOutstanding() <= 2);
+    }
+
     @Test
     public void it_returns_an_error_when_all_search_stages_fail() throws Throwable {
         final String EXPECTED_ERROR_MESSAGE = "STAGE_FAILED: Stage manufactureWidgets failed: widget manufacture failed!";
@@ -453,6 +767,703 @@ public class CuspTest {
 
     }
 
+    @Test
+    public void it_executes_a_pipeline_loaded_from_a_precompiled_definition() throws Throwable {
+        PipelineCompiler compiler = new PipelineCompiler();
+        compiler.registerFactory(WidgetStageFactory.class.getName(), new WidgetStageFactory(sink));
+
+        PipelinePlan plan;
+        try (InputStream in = getClass().getResourceAsStream("/pipelines/widgets.json")) {
+            plan = compiler.compile(PipelineDefinition.read(in));
+        }
+
+        ByteArrayOutputStream serializedPlan = new ByteArrayOutputStream();
+        plan.writeTo(serializedPlan);
+        PipelinePlan loadedPlan = PipelinePlan.readFrom(new ByteArrayInputStream(serializedPlan.toByteArray()));
+
+        Cusp cusp = compiler.load(loadedPlan);
+        assertTrue(cusp.isValidated());
+
+        CuspExecutor executor = new CuspExecutor(cusp, taskExecutor, timerScheduler);
+        executor.constructPipeline(loadedPlan.getInitialStageName(), request);
+        Object result = executor.execute();
+
+        assertEquals(EXPECTED_LOG_SINK_SIZE, sink.size());
+        assertEquals("serialized procured re-queried parsed received WidgetRequest", result);
+    }
+
+    @Test
+    public void a_precompiled_plan_keeps_the_definition_it_was_compiled_from() throws Throwable {
+        PipelineCompiler compiler = new PipelineCompiler();
+        compiler.registerFactory(WidgetStageFactory.class.getName(), new WidgetStageFactory(sink));
+        PipelineDefinition definition;
+        try (InputStream in = getClass().getResourceAsStream("/pipelines/widgets.json")) {
+            definition = PipelineDefinition.read(in);
+        }
+        // collections a plan is not read with
+        definition.setStages(Collections.unmodifiableList(definition.getStages()));
+        definition.setRoutes(Arrays.asList(definition.getRoutes().toArray(new RouteDefinition[0])));
+        definition.getStages().get(0).setParameters(Collections.singletonMap("source", "test"));
+        definition.getRoutes().get(0).setConditions(Collections.emptyList());
+
+        PipelinePlan plan = compiler.compile(definition);
+        definition.setRoutes(Collections.singletonList(new RouteDefinition(WidgetStages.RECEIVE_REQUEST, StageOutcomes.SUCCESS.name(), WidgetStages.PLACE_ORDER)));
+        plan.getDefinition().getRoutes().clear();
+
+        ByteArrayOutputStream serializedPlan = new ByteArrayOutputStream();
+        plan.writeTo(serializedPlan);
+        PipelinePlan loadedPlan = PipelinePlan.readFrom(new ByteArrayInputStream(serializedPlan.toByteArray()));
+
+        assertEquals(7, loadedPlan.getDefinition().getRoutes().size());
+        assertEquals("test", loadedPlan.getDefinition().getStages().get(0).getParameters().get("source"));
+        CuspExecutor executor = new CuspExecutor(compiler.load(loadedPlan), taskExecutor, timerScheduler);
+        executor.constructPipeline(loadedPlan.getInitialStageName(), request);
+        assertEquals("serialized procured re-queried parsed received WidgetRequest", executor.execute());
+    }
+
+    @Test
+    public void it_complains_when_a_definition_routes_incompatible_stages() throws Throwable {
+        PipelineDefinition definition;
+        try (InputStream in = getClass().getResourceAsStream("/pipelines/widgets.json")) {
+            definition = PipelineDefinition.read(in);
+        }
+        definition.addRoute(new RouteDefinition(WidgetStages.RECEIVE_REQUEST, StageOutcomes.SUCCESS.name(), WidgetStages.PLACE_ORDER));
+
+        try {
+            new PipelineCompiler().compile(definition);
+            fail();
+        } catch(AssertionError expectedException) {
+            assertTrue(expectedException.getMessage(), expectedException.getMessage().contains(CuspErrorCode.INVALID_STAGE_INPUT_DATA_TYPE.toString()));
+        }
+    }
+
+    @Test
+    public void it_inlines_sub_pipelines_into_the_parent_pipeline() throws Throwable {
+        Cusp fulfilment = new Cusp();
+        fulfilment.addStage(new ParseRequestStage());
+        fulfilment.addStage(new LogRequestStage(sink));
+        fulfilment.addStage(new FailingQueryInventoryStage());
+        fulfilment.addStage(new QueryBackupSystem());
+        fulfilment.addRoute(WidgetStages.PARSE_REQUEST, StageOutcomes.SUCCESS, WidgetStages.LOG_REQUEST);
+        fulfilment.addRoute(WidgetStages.PARSE_REQUEST, StageOutcomes.SUCCESS, WidgetStages.QUERY_INVENTORY);
+        fulfilment.addRoute(WidgetStages.QUERY_INVENTORY, StageOutcomes.RECOVERABLE_FAILURE, WidgetStages.QUERY_BACKUP_SYSTEM);
+
+        Cusp cusp = new Cusp();
+        cusp.addStage(new WidgetPurchaseRequestStage());
+        cusp.addStage(new ParseRequestStage());
+        cusp.addStage(new SubPipeline<String, Widgets>("fulfilment", fulfilment, WidgetStages.PARSE_REQUEST));
+        cusp.addStage(new PlaceOrderStage());
+        cusp.addRoute(WidgetStages.RECEIVE_REQUEST, StageOutcomes.SUCCESS, WidgetStages.PARSE_REQUEST);
+        cusp.addRoute(WidgetStages.PARSE_REQUEST, StageOutcomes.SUCCESS, "fulfilment");
+        cusp.addRoute("fulfilment", StageOutcomes.SUCCESS, WidgetStages.PLACE_ORDER);
+
+        CuspExecutor executor = new CuspExecutor(cusp, taskExecutor, timerScheduler);
+        StageOutcomeListener mockStageOutcomeListener = mock(StageOutcomeListener.class);
+        executor.useStageOutcomeListener(mockStageOutcomeListener);
+        executor.constructPipeline(WidgetStages.RECEIVE_REQUEST, request);
+        Object result = executor.execute();
+
+        assertEquals("serialized procured re-queried parsed parsed received WidgetRequest", result);
+        assertEquals(1, sink.size());
+        verify(mockStageOutcomeListener).recover(eq(cusp.getStage("fulfilment/" + WidgetStages.QUERY_INVENTORY)), eq(cusp.getStage("fulfilment/" + WidgetStages.QUERY_BACKUP_SYSTEM)), isA(Exception.class), msGreaterThanOrEqual(0L));
+        verify(mockStageOutcomeListener).success(eq(cusp.getStage("fulfilment/" + WidgetStages.LOG_REQUEST)), isNull(), msGreaterThanOrEqual(50L));
+    }
+
+    @Test
+    public void it_degrades_stages_inlined_from_sub_pipelines() throws Throwable {
+        Cusp fulfilment = new Cusp();
+        fulfilment.addStage(new ParseRequestStage());
+        fulfilment.addStage(new DegradableQueryInventoryStage());
+        fulfilment.addRoute(WidgetStages.PARSE_REQUEST, StageOutcomes.SUCCESS, WidgetStages.QUERY_INVENTORY);
+
+        Cusp cusp = new Cusp();
+        cusp.addStage(new WidgetPurchaseRequestStage());
+        cusp.addStage(new ParseRequestStage());
+        cusp.addStage(new SubPipeline<String, Widgets>("fulfilment", fulfilment, WidgetStages.PARSE_REQUEST));
+        cusp.addStage(new PlaceOrderStage());
+        cusp.addRoute(WidgetStages.RECEIVE_REQUEST, StageOutcomes.SUCCESS, WidgetStages.PARSE_REQUEST);
+        cusp.addRoute(WidgetStages.PARSE_REQUEST, StageOutcomes.SUCCESS, "fulfilment");
+        cusp.addRoute("fulfilment", StageOutcomes.SUCCESS, WidgetStages.PLACE_ORDER);
+
+        CuspExecutor executor = new CuspExecutor(cusp, Executors.newFixedThreadPool(2), timerScheduler);
+        executor.useDeadline(100, TimeUnit.MILLISECONDS);
+        StageOutcomeListener listener = mock(StageOutcomeListener.class);
+        executor.useStageOutcomeListener(listener);
+        executor.constructPipeline(WidgetStages.RECEIVE_REQUEST, request);
+        Object result = executor.execute();
+
+        assertEquals("serialized procured unqueried parsed parsed received WidgetRequest", result);
+        verify(listener).degraded(eq(cusp.getStage("fulfilment/" + WidgetStages.QUERY_INVENTORY)), any(Widgets.class), anyLong());
+    }
+
+    @Test
+    public void it_complains_when_recovering_from_a_whole_sub_pipeline() {
+        Cusp fulfilment = new Cusp();
+        fulfilment.addStage(new ParseRequestStage());
+        fulfilment.addStage(new QueryInventoryStage());
+        fulfilment.addRoute(WidgetStages.PARSE_REQUEST, StageOutcomes.SUCCESS, WidgetStages.QUERY_INVENTORY);
+
+        Cusp cusp = new Cusp();
+        cusp.addStage(new SubPipeline<String, Widgets>("fulfilment", fulfilment, WidgetStages.PARSE_REQUEST));
+        cusp.addStage(new QueryBackupSystem());
+
+        try {
+            cusp.addRoute("fulfilment", StageOutcomes.RECOVERABLE_FAILURE, WidgetStages.QUERY_BACKUP_SYSTEM);
+            fail();
+        } catch(CuspConstructionError expectedException) {
+            assertEquals(CuspErrorCode.INVALID_SUB_PIPELINE, expectedException.getCode());
+        }
+    }
+
+    @Test
+    public void it_finds_the_critical_path_from_declared_latencies() {
+        Cusp cusp = createPipeline(new ParseRequestStage(), new LogRequestStage(sink), new QueryInventoryStage(), new QueryBackupSystem(), new ManufactureWidgetsStage());
+        StageLatencies latencies = new StageLatencies()
+                .declare(WidgetStages.RECEIVE_REQUEST, Duration.ofMillis(1))
+                .declare(WidgetStages.PARSE_REQUEST, Duration.ofMillis(1))
+                .declare(WidgetStages.SEND_EMAIL, Duration.ofMillis(50))
+                .declare(WidgetStages.LOG_REQUEST, Duration.ofMillis(120))
+                .declare(WidgetStages.QUERY_INVENTORY, Duration.ofMillis(100))
+                .declareFailureRate(WidgetStages.QUERY_INVENTORY, 0.5)
+                .declare(WidgetStages.QUERY_BACKUP_SYSTEM, Duration.ofMillis(200))
+                .declare(WidgetStages.PLACE_ORDER, Duration.ofMillis(5));
+
+        LatencyAnalysis analysis = cusp.analyzeLatency(WidgetStages.RECEIVE_REQUEST, latencies);
+        logger.debug(analysis.describe());
+
+        assertEquals(Duration.ofMillis(227).toNanos(), analysis.getExpectedLatencyNanos());
+        assertEquals(Arrays.asList(WidgetStages.RECEIVE_REQUEST, WidgetStages.PARSE_REQUEST, WidgetStages.LOG_REQUEST, WidgetStages.QUERY_BACKUP_SYSTEM, WidgetStages.PLACE_ORDER), analysis.getCriticalPath());
+        assertEquals(Duration.ofMillis(20).toNanos(), analysis.getStage(WidgetStages.QUERY_INVENTORY).getSlackNanos());
+        assertEquals(Duration.ofMillis(70).toNanos(), analysis.getStage(WidgetStages.SEND_EMAIL).getSlackNanos());
+        assertTrue(analysis.getStage(WidgetStages.LOG_REQUEST).isOnCriticalPath());
+
+        LatencyRecommendation parallelize = analysis.getRecommendations().stream()
+                .filter(recommendation -> recommendation.getStageName().equals(WidgetStages.LOG_REQUEST))
+                .findFirst()
+                .get();
+        assertEquals(LatencyRecommendation.Kind.PARALLELIZE, parallelize.getKind());
+        assertEquals(Duration.ofMillis(20).toNanos(), parallelize.getPotentialSavingsNanos());
+        assertEquals(Duration.ofMillis(127).toNanos(), analysis.getLatencyPercentileNanos(1));
+        assertEquals(Duration.ofMillis(327).toNanos(), analysis.getLatencyPercentileNanos(99));
+    }
+
+    @Test
+    public void it_finds_the_critical_path_from_recorded_latencies() throws Throwable {
+        Cusp cusp = createPipeline(new ParseRequestStage(), new LogRequestStage(sink), new QueryInventoryStage(), new QueryBackupSystem(), new ManufactureWidgetsStage());
+        LatencyRecorder recorder = new LatencyRecorder();
+
+        CuspExecutor executor = new CuspExecutor(cusp, taskExecutor, timerScheduler);
+        executor.useStageOutcomeListener(recorder);
+        executor.constructPipeline(WidgetStages.RECEIVE_REQUEST, request);
+        executor.execute();
+
+        LatencyAnalysis analysis = cusp.analyzeLatency(WidgetStages.RECEIVE_REQUEST, recorder.getLatencies());
+
+        assertTrue(analysis.getCriticalPath().toString(), analysis.getCriticalPath().contains(WidgetStages.QUERY_INVENTORY));
+        assertTrue(analysis.getStage(WidgetStages.LOG_REQUEST).getSlackNanos() > 0);
+        assertTrue(analysis.getExpectedLatencyNanos() >= Duration.ofMillis(200).toNanos());
+    }
+
+    @Test
+    public void it_queues_stages_by_remaining_critical_path() throws Throwable {
+        Cusp cusp = createPipeline(new ParseRequestStage(), new LogRequestStage(sink), new QueryInventoryStage(), new QueryBackupSystem(), new ManufactureWidgetsStage());
+        StageLatencies latencies = new StageLatencies()
+                .declare(WidgetStages.SEND_EMAIL, Duration.ofMillis(50))
+                .declare(WidgetStages.LOG_REQUEST, Duration.ofMillis(120))
+                .declare(WidgetStages.QUERY_INVENTORY, Duration.ofMillis(100))
+                .declare(WidgetStages.PLACE_ORDER, Duration.ofMillis(5));
+
+        CuspExecutor executor = new CuspExecutor(cusp, new PriorityTaskExecutor(1), timerScheduler);
+        executor.prioritizeCriticalPath(latencies);
+        executor.constructPipeline(WidgetStages.RECEIVE_REQUEST, request);
+
+        Map<String, Long> priorities = executor.getStagePriorities();
+        assertEquals(Duration.ofMillis(125).toNanos(), (long) priorities.get(WidgetStages.LOG_REQUEST));
+        assertEquals(Duration.ofMillis(105).toNanos(), (long) priorities.get(WidgetStages.QUERY_INVENTORY));
+        assertEquals(Duration.ofMillis(55).toNanos(), (long) priorities.get(WidgetStages.SEND_EMAIL));
+        assertEquals("serialized procured queried parsed received WidgetRequest", executor.execute());
+        assertTrue(latencies.getSamples(WidgetStages.PARSE_REQUEST).length > 0);
+    }
+
+    @Test
+    public void it_runs_queued_tasks_in_priority_order() throws InterruptedException {
+        PriorityTaskExecutor executor = new PriorityTaskExecutor(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+        executor.execute(() -> awaitUninterruptibly(blocked));
+        executor.execute(() -> order.add("low"), 1);
+        executor.execute(() -> order.add("high"), 100);
+        executor.execute(() -> order.add("also high"), 100);
+        executor.execute(() -> order.add("unprioritized"));
+        blocked.countDown();
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("unprioritized", "high", "also high", "low"), order);
+    }
+
+    @Test
+    public void it_reports_reusable_timer_measurements_in_nanoseconds() throws InterruptedException {
+        List<Long> durations = Collections.synchronizedList(new ArrayList<>());
+        CuspObserver observer = new CuspObserver() {
+            @Override
+            public void receiveDuration(String identifier, long elapsedNanos) {
+                reportedEvents.add(identifier + " was recorded");
+                durations.add(elapsedNanos);
+            }
+        };
+        CuspTimer timer = new CuspTimer("sleep", observer);
+
+        for (int i = 0; i < 2; i++) {
+            long start = timer.start();
+            Thread.sleep(5);
+            timer.stop(start);
+        }
+
+        assertEquals(Arrays.asList("sleep was recorded", "sleep was recorded"), reportedEvents);
+        assertTrue(durations.stream().allMatch(elapsedNanos -> elapsedNanos >= TimeUnit.MILLISECONDS.toNanos(5)));
+    }
+
+    @Test
+    public void it_records_stage_route_and_pipeline_metrics() throws Throwable {
+        Cusp cusp = createPipeline(new ParseRequestStage(), new LogRequestStage(sink), new FailingQueryInventoryStage(), new QueryBackupSystem(), new ManufactureWidgetsStage());
+        CuspMetrics metrics = new CuspMetrics();
+
+        for (int i = 0; i < 2; i++) {
+            CuspExecutor executor = new CuspExecutor(cusp, taskExecutor, timerScheduler);
+            executor.useMetrics(metrics);
+            executor.constructPipeline(WidgetStages.RECEIVE_REQUEST, request);
+            executor.execute();
+        }
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        logger.debug(snapshot.describe());
+
+        assertEquals(2, snapshot.getPipeline(WidgetStages.RECEIVE_REQUEST).getSuccesses());
+        assertEquals(2, snapshot.getStage(WidgetStages.QUERY_INVENTORY).getRecoveries());
+        assertEquals(0, snapshot.getStage(WidgetStages.QUERY_INVENTORY).getSuccesses());
+        assertEquals(2, snapshot.getStage(WidgetStages.LOG_REQUEST).getSuccesses());
+        assertEquals(2, snapshot.getRouteCount(WidgetStages.PARSE_REQUEST, StageOutcomes.SUCCESS, WidgetStages.SEND_EMAIL));
+        assertEquals(2, snapshot.getRouteCount(WidgetStages.QUERY_INVENTORY, StageOutcomes.RECOVERABLE_FAILURE, WidgetStages.QUERY_BACKUP_SYSTEM));
+        assertEquals(0, snapshot.getRouteCount(WidgetStages.QUERY_BACKUP_SYSTEM, StageOutcomes.RECOVERABLE_FAILURE, WidgetStages.MANUFACTURE_WIDGETS));
+
+        LatencySnapshot latency = snapshot.getStage(WidgetStages.LOG_REQUEST).getLatency();
+        assertEquals(2, latency.getCount());
+        assertTrue(latency.getPercentileNanos(50) >= Duration.ofMillis(50).toNanos());
+        assertTrue(snapshot.getPipeline(WidgetStages.RECEIVE_REQUEST).getLatency().getMaxNanos() >= latency.getMaxNanos());
+    }
+
+    @Test
+    public void it_separates_queue_wait_from_run_time() throws Throwable {
+        Cusp cusp = createPipeline(new ParseRequestStage(), new LogRequestStage(sink), new QueryInventoryStage(), new QueryBackupSystem(), new ManufactureWidgetsStage());
+        CuspMetrics metrics = new CuspMetrics();
+
+        CuspExecutor executor = new CuspExecutor(cusp, Executors.newSingleThreadExecutor(), timerScheduler);
+        executor.useMetrics(metrics);
+        executor.constructPipeline(WidgetStages.RECEIVE_REQUEST, request);
+        executor.execute();
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        long longestQueueWait = Arrays.asList(WidgetStages.SEND_EMAIL, WidgetStages.LOG_REQUEST, WidgetStages.QUERY_INVENTORY).stream()
+                .mapToLong(stageName -> snapshot.getStage(stageName).getQueueWait().getMaxNanos())
+                .max()
+                .getAsLong();
+        assertTrue(longestQueueWait >= Duration.ofMillis(50).toNanos());
+
+        StageMetricsSnapshot logRequest = snapshot.getStage(WidgetStages.LOG_REQUEST);
+        assertTrue(logRequest.getTotal().getMaxNanos() >= logRequest.getLatency().getMaxNanos() + logRequest.getQueueWait().getMaxNanos() - 1_000);
+        assertTrue(executor.generateTrace().contains("queueWaitNanos"));
+    }
+
+    @Test
+    public void it_accounts_stage_cpu_time_and_allocations() throws Throwable {
+        Cusp cusp = createPipeline(new ParseRequestStage(), new LogRequestStage(sink), new QueryInventoryStage(), new QueryBackupSystem(), new ManufactureWidgetsStage());
+        CuspMetrics metrics = new CuspMetrics();
+        List<ExecutionTrace> traces = Collections.synchronizedList(new ArrayList<>());
+
+        CuspExecutor executor = new CuspExecutor(cusp, taskExecutor, timerScheduler);
+        executor.useMetrics(metrics);
+        executor.useTracing(TraceSampler.always(), traces::add);
+        executor.useResourceAccounting(true);
+        executor.constructPipeline(WidgetStages.RECEIVE_REQUEST, request);
+        executor.execute();
+
+        StageMetricsSnapshot logRequest = metrics.snapshot().getStage(WidgetStages.LOG_REQUEST);
+        logger.debug(logRequest.toString());
+        assertEquals(1, logRequest.getCpuTime().getCount());
+        assertTrue(logRequest.getCpuTime().getMaxNanos() < logRequest.getLatency().getMaxNanos());
+        assertEquals(1, logRequest.getAllocationCount());
+        assertTrue(logRequest.getAllocatedBytes() >= 0);
+
+        assertEquals(1, traces.size());
+        for (StageSpan span : traces.get(0).getSpans()) {
+            assertTrue(span.getCpuNanos() >= 0);
+            assertTrue(span.getAllocatedBytes() >= 0);
+        }
+        assertTrue(traces.get(0).toChromeTraceJson().contains("\"cpuUs\""));
+    }
+
+    @Test
+    public void it_serves_metrics_and_health_over_http() throws Throwable {
+        Cusp cusp = createPipeline(new ParseRequestStage(), new LogRequestStage(sink), new FailingQueryInventoryStage(), new QueryBackupSystem(), new ManufactureWidgetsStage());
+        CuspMetrics metrics = new CuspMetrics();
+        CuspExecutor executor = new CuspExecutor(cusp, taskExecutor, timerScheduler);
+        executor.useMetrics(metrics);
+        executor.constructPipeline(WidgetStages.RECEIVE_REQUEST, request);
+        executor.execute();
+
+        boolean[] breakerClosed = {true};
+        try (MetricsHttpServer server = new MetricsHttpServer(metrics)
+                .monitorExecutor("tasks", (ThreadPoolExecutor) taskExecutor)
+                .gauge("inventory_breaker_open", "Whether the inventory circuit breaker is open", () -> breakerClosed[0] ? 0 : 1)
+                .healthCheck("inventory breaker", () -> breakerClosed[0])
+                .start(0)) {
+            String scraped = get(server.getPort(), "/metrics", 200);
+            assertTrue(scraped.contains("cusp_stage_run_seconds_count{stage=\"" + WidgetStages.LOG_REQUEST + "\"} 1"));
+            assertTrue(scraped.contains("cusp_stage_outcomes_total{stage=\"" + WidgetStages.QUERY_INVENTORY + "\",outcome=\"recovery\"} 1"));
+            assertTrue(scraped.contains("cusp_pipeline_in_flight{pipeline=\"" + WidgetStages.RECEIVE_REQUEST + "\"} 0"));
+            assertTrue(scraped.contains("cusp_executor_queue_depth{executor=\"tasks\"} 0"));
+            assertTrue(scraped.contains("inventory_breaker_open 0.0"));
+            assertTrue(get(server.getPort(), "/health", 200).startsWith("UP"));
+
+            breakerClosed[0] = false;
+            assertTrue(get(server.getPort(), "/health", 503).contains("inventory breaker: DOWN"));
+        }
+    }
+
+    private static String get(int port, String path, int expectedStatus) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        assertEquals(expectedStatus, connection.getResponseCode());
+        try (InputStream body = expectedStatus < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for (int read; (read = body.read(buffer)) != -1; ) {
+                bytes.write(buffer, 0, read);
+            }
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void it_measures_open_loop_latency_from_intended_start_times() throws Throwable {
+        AtomicInteger calls = new AtomicInteger();
+        Cusp cusp = new Cusp();
+        cusp.addStage(new SyntheticStage("receive", LatencyDistribution.constant(Duration.ofMillis(1))));
+        cusp.addStage(new SyntheticStage("stall", () -> calls.incrementAndGet() == 10 ? Duration.ofMillis(300).toNanos() : 0));
+        cusp.addRoute("receive", StageOutcomes.SUCCESS, "stall");
+
+        LoadGenerator generator = new LoadGenerator(cusp, "receive", () -> "request");
+        generator.useExecutors(taskExecutor, timerScheduler);
+        generator.useWorkers(1);
+        LoadReport report = generator.run(100, Duration.ofSeconds(1));
+        logger.debug(report.describe());
+
+        assertEquals(100, report.getArrivals());
+        assertEquals(100, report.getSucceeded());
+        assertEquals(0, report.getIncomplete());
+        assertEquals(100, report.getStages().getStage("stall").getSuccesses());
+        assertTrue(report.getLatency().getPercentileNanos(90) > Duration.ofMillis(50).toNanos());
+        assertTrue(report.getServiceTime().getPercentileNanos(90) < Duration.ofMillis(50).toNanos());
+        assertTrue(report.getThroughput() > 50);
+    }
+
+    @Test
+    public void it_reports_histogram_percentiles_within_microsecond_precision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 10_000; micros++) {
+            histogram.recordMicros(micros);
+        }
+
+        LatencySnapshot snapshot = histogram.snapshot();
+        assertEquals(10_000, snapshot.getCount());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(100), snapshot.getPercentileNanos(1));
+        assertEquals(5_000, TimeUnit.NANOSECONDS.toMicros(snapshot.getPercentileNanos(50)), 5_000 / 64);
+        assertEquals(9_900, TimeUnit.NANOSECONDS.toMicros(snapshot.getPercentileNanos(99)), 9_900 / 64);
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(10_000), snapshot.getPercentileNanos(100));
+    }
+
+    @Test
+    public void it_delivers_stage_outcomes_off_the_worker_threads() throws Throwable {
+        Cusp cusp = createPipeline(new ParseRequestStage(), new LogRequestStage(sink), new FailingQueryInventoryStage(), new QueryBackupSystem(), new ManufactureWidgetsStage());
+        StageOutcomeListener mockStageOutcomeListener = mock(StageOutcomeListener.class);
+        AsyncStageOutcomeListener asyncListener = new AsyncStageOutcomeListener(mockStageOutcomeListener);
+
+        CuspExecutor executor = new CuspExecutor(cusp, taskExecutor, timerScheduler);
+        executor.useStageOutcomeListener(asyncListener);
+        executor.constructPipeline(WidgetStages.RECEIVE_REQUEST, request);
+        executor.execute();
+        asyncListener.close();
+
+        verify(mockStageOutcomeListener).recover(eq(new FailingQueryInventoryStage()), eq(new QueryBackupSystem()), isA(Exception.class), msGreaterThanOrEqual(0L));
+        verify(mockStageOutcomeListener).success(eq(new PlaceOrderStage()), isA(String.class), msGreaterThanOrEqual(0L));
+        assertEquals(7, asyncListener.getDeliveredCount());
+        assertEquals(0, asyncListener.getDroppedCount());
+    }
+
+    @Test
+    public void it_counts_stage_outcomes_dropped_when_the_dispatch_ring_is_full() throws InterruptedException {
+        CountDownLatch delivering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Object> outputs = Collections.synchronizedList(new ArrayList<>());
+        StageOutcomeListener slowListener = mock(StageOutcomeListener.class);
+        doAnswer(invocation -> {
+            delivering.countDown();
+            awaitUninterruptibly(release);
+            outputs.add(invocation.getArguments()[1]);
+            return null;
+        }).when(slowListener).success(any(), any(), anyLong());
+
+        AsyncStageOutcomeListener asyncListener = new AsyncStageOutcomeListener(slowListener, 2, AsyncStageOutcomeListener.OverflowPolicy.DROP_NEWEST);
+        asyncListener.success(new PlaceOrderStage(), 0, 0);
+        assertTrue(delivering.await(1, TimeUnit.SECONDS));
+        for (int i = 1; i <= 5; i++) {
+            asyncListener.success(new PlaceOrderStage(), i, 0);
+        }
+        release.countDown();
+        asyncListener.close();
+
+        assertEquals(Arrays.asList(0, 1, 2), outputs);
+        assertEquals(3, asyncListener.getDroppedCount());
+    }
+
+    @Test
+    public void it_delivers_or_counts_as_dropped_every_stage_outcome_published_while_closing() throws InterruptedException {
+        AtomicInteger received = new AtomicInteger();
+        StageOutcomeListener countingListener = mock(StageOutcomeListener.class);
+        doAnswer(invocation -> received.incrementAndGet()).when(countingListener).success(any(), any(), anyLong());
+        AsyncStageOutcomeListener asyncListener = new AsyncStageOutcomeListener(countingListener, 64, AsyncStageOutcomeListener.OverflowPolicy.DROP_NEWEST);
+
+        int publishers = 4;
+        int outcomesPerPublisher = 5_000;
+        CountDownLatch publishing = new CountDownLatch(publishers);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < publishers; i++) {
+            Thread thread = new Thread(() -> {
+                publishing.countDown();
+                for (int j = 0; j < outcomesPerPublisher; j++) {
+                    asyncListener.success(new PlaceOrderStage(), j, 0);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        publishing.await();
+        asyncListener.close();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(received.get(), asyncListener.getDeliveredCount());
+        assertEquals(publishers * outcomesPerPublisher, asyncListener.getDeliveredCount() + asyncListener.getDroppedCount());
+    }
+
+    @Test
+    public void it_reports_stage_events_with_execution_and_timing_details() throws Throwable {
+        Cusp cusp = createPipeline(new ParseRequestStage(), new LogRequestStage(sink), new FailingQueryInventoryStage(), new QueryBackupSystem(), new ManufactureWidgetsStage());
+        List<StageEvent> events = Collections.synchronizedList(new ArrayList<>());
+
+        CuspExecutor executor = new CuspExecutor(cusp, taskExecutor, timerScheduler);
+        executor.useStageEventListener(event -> events.add(event.copy()));
+        executor.constructPipeline(WidgetStages.RECEIVE_REQUEST, request);
+        executor.execute();
+
+        assertEquals(7, events.size());
+        for (StageEvent event : events) {
+            assertEquals(executor.getExecutionId(), event.getExecutionId());
+            assertEquals(cusp.getStageIndex(event.getStage()), event.getStageIndex());
+            assertEquals(1, event.getAttempt());
+            assertTrue(event.getQueueWaitNanos() >= 0);
+            assertTrue(event.getRunNanos() >= 0);
+            assertNotNull(event.getThreadName());
+        }
+
+        StageEvent recovery = events.stream()
+                .filter(event -> event.getStage().name().equals(WidgetStages.QUERY_INVENTORY))
+                .findFirst()
+                .get();
+        assertEquals(StageEvent.Outcome.RECOVERY, recovery.getOutcome());
+        assertEquals(WidgetStages.QUERY_BACKUP_SYSTEM, recovery.getRecoveryStage().name());
+        assertTrue(recovery.getThrowable() instanceof FailingQueryInventoryStage.InventoryQueryException);
+
+        StageEvent logged = events.stream()
+                .filter(event -> event.getStage().name().equals(WidgetStages.LOG_REQUEST))
+                .findFirst()
+                .get();
+        assertEquals(StageEvent.Outcome.SUCCESS, logged.getOutcome());
+        assertTrue(logged.getRunNanos() >= Duration.ofMillis(50).toNanos());
+    }
+
+    @Test
+    public void it_makes_a_recovery_stage_ready_when_the_stage_it_recovers_from_ends() throws Throwable {
+        Cusp cusp = createPipeline(new ParseRequestStage(), new LogRequestStage(sink), new FailingQueryInventoryStage(), new QueryBackupSystem(), new ManufactureWidgetsStage());
+        List<StageEvent> events = Collections.synchronizedList(new ArrayList<>());
+
+        CuspExecutor executor = new CuspExecutor(cusp, taskExecutor, timerScheduler);
+        executor.useStageEventListener(event -> events.add(event.copy()));
+        executor.constructPipeline(WidgetStages.RECEIVE_REQUEST, request);
+        executor.execute();
+
+        StageEvent failed = events.stream()
+                .filter(event -> event.getStage().name().equals(WidgetStages.QUERY_INVENTORY))
+                .findFirst()
+                .get();
+        StageEvent recovery = events.stream()
+                .filter(event -> event.getStage().name().equals(WidgetStages.QUERY_BACKUP_SYSTEM))
+                .findFirst()
+                .get();
+        // the recovery stage does not wait in the queue while the stage it recovers from runs
+        assertTrue(recovery.getReadyNanos() >= failed.getEndNanos());
+        assertTrue(recovery.getQueueWaitNanos() < failed.getRunNanos());
+    }
+
+    @Test
+    public void it_exports_sampled_traces_as_chrome_trace_events() throws Throwable {
+        Cusp cusp = createPipeline(new ParseRequestStage(), new LogRequestStage(sink), new FailingQueryInventoryStage(), new QueryBackupSystem(), new ManufactureWidgetsStage());
+        Path directory = Files.createTempDirectory("cusp-traces");
+        List<ExecutionTrace> unsampled = Collections.synchronizedList(new ArrayList<>());
+
+        RollingTraceFileSink traceSink = new RollingTraceFileSink(directory);
+        for (TraceSink executionSink : Arrays.<TraceSink>asList(traceSink, unsampled::add)) {
+            CuspExecutor executor = new CuspExecutor(cusp, taskExecutor, timerScheduler);
+            executor.useTracing(executionSink == traceSink ? TraceSampler.always() : TraceSampler.never(), executionSink);
+            executor.constructPipeline(WidgetStages.RECEIVE_REQUEST, request);
+            executor.execute();
+        }
+        traceSink.close();
+
+        assertTrue(unsampled.isEmpty());
+        assertEquals(1, traceSink.getFiles().size());
+        JsonNode events = new ObjectMapper().readTree(traceSink.getFiles().get(0).toFile());
+        Map<String, Long> phases = new HashMap<>();
+        Set<String> stageNames = new HashSet<>();
+        for (JsonNode event : events) {
+            phases.merge(event.get("ph").asText(), 1L, Long::sum);
+            if (event.get("ph").asText().equals("X")) {
+                stageNames.add(event.get("name").asText());
+            }
+        }
+        assertEquals(7, (long) phases.get("X"));
+        assertEquals(1, (long) phases.get("s"));
+        assertEquals(1, (long) phases.get("f"));
+        assertTrue(phases.get("M") >= 1);
+        assertTrue(stageNames.contains(WidgetStages.QUERY_BACKUP_SYSTEM));
+    }
+
+    @Test
+    public void it_retains_traces_of_failed_executions() throws Throwable {
+        Cusp cusp = createPipeline(new FailingParseRequestStage(), new LogRequestStage(sink), new FailingQueryInventoryStage(), new QueryBackupSystem(), new ManufactureWidgetsStage());
+        TailTraceReservoir reservoir = new TailTraceReservoir();
+
+        CuspExecutor executor = new CuspExecutor(cusp, taskExecutor, timerScheduler);
+        executor.useTailRetention(reservoir);
+        executor.constructPipeline(WidgetStages.RECEIVE_REQUEST, request);
+        try {
+            executor.execute();
+            fail();
+        } catch(StageFailedException expectedException) {
+            List<ExecutionTrace> failed = reservoir.getFailed(WidgetStages.RECEIVE_REQUEST);
+            assertEquals(1, failed.size());
+            assertEquals(executor.getExecutionId(), failed.get(0).getExecutionId());
+            StageSpan parseRequest = failed.get(0).getSpans().get(1);
+            assertEquals(WidgetStages.PARSE_REQUEST, parseRequest.getStageName());
+            assertEquals(StageEvent.Outcome.FAILURE, parseRequest.getOutcome());
+            assertTrue(reservoir.getTrace(executor.getExecutionId()).isPresent());
+        }
+    }
+
+    @Test
+    public void it_retains_only_the_slowest_traces_per_window() {
+        TailTraceReservoir reservoir = new TailTraceReservoir(2, 10, Duration.ofHours(1), 1);
+        for (long durationNanos : new long[] {5, 1, 9, 3}) {
+            if (reservoir.qualifies(WidgetStages.RECEIVE_REQUEST, durationNanos, false)) {
+                reservoir.retain(new ExecutionTrace(durationNanos, WidgetStages.RECEIVE_REQUEST, 0, durationNanos, false, Collections.emptyList()));
+            }
+        }
+
+        assertEquals(Arrays.asList(9L, 5L), reservoir.getSlowest(WidgetStages.RECEIVE_REQUEST).stream()
+                .map(ExecutionTrace::getDurationNanos)
+                .collect(Collectors.toList()));
+        assertFalse(reservoir.qualifies(WidgetStages.RECEIVE_REQUEST, 4, false));
+        assertTrue(reservoir.qualifies(WidgetStages.RECEIVE_REQUEST, 1, true));
+        assertTrue(reservoir.getSlowest(WidgetStages.PARSE_REQUEST).isEmpty());
+    }
+
+    @Test
+    public void it_emits_flight_recorder_events_for_stages_and_pipelines() throws Throwable {
+        Cusp cusp = createPipeline(new ParseRequestStage(), new LogRequestStage(sink), new FailingQueryInventoryStage(), new QueryBackupSystem(), new ManufactureWidgetsStage());
+        Path recordingFile = Files.createTempFile("cusp", ".jfr");
+
+        CuspExecutor executor = new CuspExecutor(cusp, taskExecutor, timerScheduler);
+        try (Recording recording = new Recording()) {
+            for (String event : Arrays.asList("StageExecution", "StageQueueWait", "StageRecovery", "PipelineExecution")) {
+                recording.enable("com.ibm.cusp." + event).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+            executor.constructPipeline(WidgetStages.RECEIVE_REQUEST, request);
+            executor.execute();
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        Map<String, Long> eventCounts = RecordingFile.readAllEvents(recordingFile).stream()
+                .filter(event -> event.getLong("executionId") == executor.getExecutionId())
+                .collect(Collectors.groupingBy(event -> event.getEventType().getName(), Collectors.counting()));
+        assertEquals(7, (long) eventCounts.get("com.ibm.cusp.StageExecution"));
+        assertEquals(7, (long) eventCounts.get("com.ibm.cusp.StageQueueWait"));
+        assertEquals(1, (long) eventCounts.get("com.ibm.cusp.StageRecovery"));
+        assertEquals(1, (long) eventCounts.get("com.ibm.cusp.PipelineExecution"));
+    }
+
+    @Test
+    public void a_static_pipeline_routes_and_reports_stages_like_an_executor() throws Throwable {
+        Cusp cusp = createPipeline(new ParseRequestStage(), new LogRequestStage(sink), new FailingQueryInventoryStage(), new FailingQueryBackupSystemStage(), new ManufactureWidgetsStage());
+        StageOutcomeListener listener = mock(StageOutcomeListener.class);
+        StaticPipeline<WidgetRequest, Object> pipeline = StaticPipeline.<WidgetRequest, Object>compile(cusp, WidgetStages.RECEIVE_REQUEST)
+                .useStageOutcomeListener(listener);
+
+        Object result = pipeline.execute(request);
+
+        assertEquals("serialized procured basicSearch parsed received WidgetRequest", result);
+        assertEquals(EXPECTED_LOG_SINK_SIZE, sink.size());
+        verify(listener).recover(eq(new FailingQueryInventoryStage()), eq(new FailingQueryBackupSystemStage()), any(), anyLong());
+        verify(listener).recover(eq(new FailingQueryBackupSystemStage()), eq(new ManufactureWidgetsStage()), any(), anyLong());
+        verify(listener).success(eq(new PlaceOrderStage()), eq(result), anyLong());
+        verify(listener, never()).failure(any(), any(), anyLong());
+    }
+
+    @Test
+    public void a_static_pipeline_clears_signals_that_a_stage_returned_an_output_after() throws Throwable {
+        Cusp cusp = createPipeline(new IndecisiveParseRequestStage(), new LogRequestStage(sink), new QueryInventoryStage(), new QueryBackupSystem(), new ManufactureWidgetsStage());
+        StageOutcomeListener listener = mock(StageOutcomeListener.class);
+        StaticPipeline<WidgetRequest, Object> pipeline = StaticPipeline.<WidgetRequest, Object>compile(cusp, WidgetStages.RECEIVE_REQUEST)
+                .useStageOutcomeListener(listener);
+
+        pipeline.execute(request);
+
+        // every stage of a static pipeline runs on the calling thread, so the log stage returns null where the parse stage signalled
+        assertEquals(EXPECTED_LOG_SINK_SIZE, sink.size());
+        verify(listener).success(eq(new LogRequestStage(sink)), any(), anyLong());
+        verify(listener, never()).failure(any(), any(), anyLong());
+    }
+
+    @Test
+    public void a_static_pipeline_fails_like_an_executor() throws Throwable {
+        Cusp cusp = createPipeline(new FailingParseRequestStage(), new LogRequestStage(sink), new FailingQueryInventoryStage(), new QueryBackupSystem(), new ManufactureWidgetsStage());
+        StageOutcomeListener listener = mock(StageOutcomeListener.class);
+        StaticPipeline<WidgetRequest, Object> pipeline = StaticPipeline.<WidgetRequest, Object>compile(cusp, WidgetStages.RECEIVE_REQUEST)
+                .useStageOutcomeListener(listener);
+
+        try {
+            pipeline.execute(request);
+            fail();
+        } catch (StageFailedException e) {
+            assertEquals("STAGE_FAILED: Stage parseRequest failed: failed to parse request", e.getMessage());
+            assertEquals(0, sink.size());
+        }
+        verify(listener).failure(eq(new FailingParseRequestStage()), any(), anyLong());
+    }
+
     @Test
     @Ignore
     public void it_can_generate_a_visualization_of_the_stage_graph() throws InvalidStageInputException, StageAlreadyExistsException {
@@ -460,6 +1471,14 @@ public class CuspTest {
         CuspVisualizer.visualize(cusp);
     }
 
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
 
     private Cusp createPipeline(Stage parseRequestStage, Stage logRequestStage, Stage queryInventoryStage, Stage queryBackupSystemStage, Stage manufactureWidgetsStage) throws StageAlreadyExistsException, InvalidStageInputException {
         Cusp cusp = new Cusp();
@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp;
+
+import com.ibm.cusp.execution.ExecutionEngine;
+import com.ibm.cusp.execution.StageOutcomeListener;
+import com.ibm.cusp.graph.Cusp;
+import com.ibm.cusp.graph.errors.StageFailedException;
+import com.ibm.cusp.graph.errors.UnknownExecutionError;
+import com.ibm.cusp.graph.stages.Stage;
+import com.ibm.cusp.graph.stages.StageOutcomes;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * The behaviour every {@link ExecutionEngine} shares with a {@link com.ibm.cusp.execution.CuspExecutor}; each engine
+ * runs it through a subclass.
+ */
+public abstract class ExecutionEngineContractTest {
+    private static final int EXPECTED_LOG_SINK_SIZE = 2;
+
+    private final WidgetRequest request = new WidgetRequest();
+    private final Executor taskExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    private final ScheduledExecutorService timerScheduler = Executors.newSingleThreadScheduledExecutor();
+
+    private List<String> sink;
+    private ExecutionEngine engine;
+
+    protected abstract ExecutionEngine createEngine(Executor taskExecutor, ScheduledExecutorService timerScheduler);
+
+    @Before
+    public void sanitize() {
+        sink = Collections.synchronizedList(new ArrayList<>());
+        engine = createEngine(taskExecutor, timerScheduler);
+    }
+
+    @Test
+    public void it_runs_concurrent_stages_and_recovers_like_an_executor() throws Throwable {
+        Cusp cusp = createPipeline(new ParseRequestStage(), new FailingQueryInventoryStage(), new FailingQueryBackupSystemStage());
+        StageOutcomeListener listener = mock(StageOutcomeListener.class);
+
+        Object result = engine.<WidgetRequest, Object>compile(cusp, WidgetStages.RECEIVE_REQUEST).execute(request, listener).get();
+
+        assertEquals("serialized procured basicSearch parsed received WidgetRequest", result);
+        assertEquals(EXPECTED_LOG_SINK_SIZE, sink.size());
+        verify(listener).recover(eq(new FailingQueryInventoryStage()), eq(new FailingQueryBackupSystemStage()), any(), anyLong());
+        verify(listener).recover(eq(new FailingQueryBackupSystemStage()), eq(new ManufactureWidgetsStage()), any(), anyLong());
+        verify(listener).success(eq(new LogRequestStage(sink)), any(), anyLong());
+        verify(listener).success(eq(new PlaceOrderStage()), eq(result), anyLong());
+        verify(listener, never()).failure(any(), any(), anyLong());
+    }
+
+    @Test
+    public void it_fails_like_an_executor() throws Throwable {
+        Cusp cusp = createPipeline(new FailingParseRequestStage(), new FailingQueryInventoryStage(), new QueryBackupSystem());
+        StageOutcomeListener listener = mock(StageOutcomeListener.class);
+
+        try {
+            engine.compile(cusp, WidgetStages.RECEIVE_REQUEST).execute(request, listener).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof StageFailedException);
+            assertEquals("STAGE_FAILED: Stage parseRequest failed: failed to parse request", e.getCause().getMessage());
+        }
+        assertEquals(0, sink.size());
+        verify(listener).failure(eq(new FailingParseRequestStage()), any(), anyLong());
+    }
+
+    @Test
+    public void it_reports_a_stage_that_throws_an_error_like_an_executor() throws Throwable {
+        Cusp cusp = createPipeline(new UnlinkedParseRequestStage(), new QueryInventoryStage(), new QueryBackupSystem());
+        StageOutcomeListener listener = mock(StageOutcomeListener.class);
+
+        try {
+            engine.compile(cusp, WidgetStages.RECEIVE_REQUEST).execute(request, listener).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof UnknownExecutionError);
+            assertTrue(e.getCause().getCause() instanceof NoClassDefFoundError);
+        }
+        assertEquals(0, sink.size());
+        verify(listener).failure(eq(new UnlinkedParseRequestStage()), isA(NoClassDefFoundError.class), anyLong());
+    }
+
+    @Test
+    public void it_follows_custom_outcomes_and_early_exits_like_an_executor() throws Throwable {
+        Cusp backordering = createPipeline(new ParseRequestStage(), new BackorderingQueryInventoryStage(), new QueryBackupSystem());
+        backordering.addRoute(WidgetStages.QUERY_INVENTORY, BackorderingQueryInventoryStage.BACKORDERED, WidgetStages.MANUFACTURE_WIDGETS);
+        Cusp cached = createPipeline(new ParseRequestStage(), new CachedQueryInventoryStage(), new QueryBackupSystem());
+        cached.allowEarlyExit(WidgetStages.QUERY_INVENTORY);
+        StageOutcomeListener listener = mock(StageOutcomeListener.class);
+
+        Object widgets = engine.compile(backordering, WidgetStages.RECEIVE_REQUEST).execute(request, listener).get();
+        Object order = engine.compile(cached, WidgetStages.RECEIVE_REQUEST).execute(request, listener).get();
+
+        assertEquals(new ManufactureWidgetsStage().execute("parsed received WidgetRequest").toString(), widgets.toString());
+        assertEquals(CachedQueryInventoryStage.CACHED_ORDER, order);
+        verify(listener, never()).success(eq(new PlaceOrderStage()), any(), anyLong());
+        verify(listener, never()).recover(any(), any(), any(), anyLong());
+    }
+
+    private Cusp createPipeline(Stage parseRequestStage, Stage queryInventoryStage, Stage queryBackupSystemStage) {
+        Cusp cusp = new Cusp();
+
+        cusp.addStage(new WidgetPurchaseRequestStage());
+        cusp.addStage(parseRequestStage);
+        cusp.addStage(new SendEmailStage(sink));
+        cusp.addStage(new LogRequestStage(sink));
+        cusp.addStage(queryInventoryStage);
+        cusp.addStage(queryBackupSystemStage);
+        cusp.addStage(new ManufactureWidgetsStage());
+        cusp.addStage(new PlaceOrderStage());
+
+        cusp.addRoute(WidgetStages.RECEIVE_REQUEST, StageOutcomes.SUCCESS, WidgetStages.PARSE_REQUEST);
+        cusp.addRoute(WidgetStages.PARSE_REQUEST, StageOutcomes.SUCCESS, WidgetStages.SEND_EMAIL);
+        cusp.addRoute(WidgetStages.PARSE_REQUEST, StageOutcomes.SUCCESS, WidgetStages.LOG_REQUEST);
+        cusp.addRoute(WidgetStages.PARSE_REQUEST, StageOutcomes.SUCCESS, WidgetStages.QUERY_INVENTORY);
+        cusp.addRoute(WidgetStages.QUERY_INVENTORY, StageOutcomes.SUCCESS, WidgetStages.PLACE_ORDER);
+        cusp.addRoute(WidgetStages.QUERY_INVENTORY, StageOutcomes.RECOVERABLE_FAILURE, WidgetStages.QUERY_BACKUP_SYSTEM);
+        cusp.addRoute(WidgetStages.QUERY_BACKUP_SYSTEM, StageOutcomes.RECOVERABLE_FAILURE, WidgetStages.MANUFACTURE_WIDGETS);
+
+        return cusp;
+    }
+}
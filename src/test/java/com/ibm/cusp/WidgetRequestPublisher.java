@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Publishes a fixed number of requests as they are requested, remembering the most that were ever requested but not
+ * yet published.
+ */
+class WidgetRequestPublisher implements Publisher<WidgetRequest> {
+    private final int count;
+    private long requested;
+    private long published;
+    private long maxOutstanding;
+    private boolean publishing;
+    private boolean completed;
+
+    WidgetRequestPublisher(int count) {
+        this.count = count;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super WidgetRequest> subscriber) {
+        subscriber.onSubscribe(new Subscription() {
+            @Override
+            public void request(long n) {
+                synchronized (WidgetRequestPublisher.this) {
+                    requested += n;
+                    maxOutstanding = Math.max(maxOutstanding, requested - published);
+                    if (publishing) {
+                        return;
+                    }
+                    publishing = true;
+                }
+                while (true) {
+                    boolean complete;
+                    synchronized (WidgetRequestPublisher.this) {
+                        complete = published == count && !completed;
+                        if (complete) {
+                            completed = true;
+                        } else if (published == requested || published == count) {
+                            publishing = false;
+                            return;
+                        } else {
+                            published++;
+                        }
+                    }
+                    if (complete) {
+                        subscriber.onComplete();
+                        return;
+                    }
+                    subscriber.onNext(new WidgetRequest());
+                }
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+    }
+
+    synchronized long getMaxOutstanding() {
+        return maxOutstanding;
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright (c) 2020 International Business Machines
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.ibm.cusp;
+
+import com.ibm.cusp.graph.definition.StageDefinition;
+import com.ibm.cusp.graph.definition.StageFactory;
+import com.ibm.cusp.graph.stages.Stage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class WidgetStageFactory implements StageFactory {
+    private final List<String> sink;
+
+    public WidgetStageFactory() {
+        this(Collections.synchronizedList(new ArrayList<>()));
+    }
+
+    public WidgetStageFactory(List<String> sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public Stage<?, ?> create(StageDefinition definition) {
+        switch (definition.getName()) {
+            case WidgetStages.SEND_EMAIL:
+                return new SendEmailStage(sink);
+            case WidgetStages.LOG_REQUEST:
+                return new LogRequestStage(sink);
+            default:
+                throw new IllegalArgumentException("No widget stage named " + definition.getName());
+        }
+    }
+}